@@ -0,0 +1,136 @@
+package example.shopping.cache;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * 按ID批量加载实体
+ * <p>
+ * {@link #load(Long)} 只登记ID并返回结果的 future，{@link #dispatch()} 把登记的ID合并为
+ * 每批最多 {@value #MAX_BATCH_SIZE} 个的 IN 查询一次加载。加载过的实体按ID保存在本加载器内，
+ * 同一ID不会重复查询，不存在的ID得到 null。加载器通过 {@link BatchLoaders} 按请求获取，
+ * 只适合读取，同一请求内修改过的实体需先 {@link #clear(Long)}。
+ *
+ * @param <T> 实体类型
+ */
+public class BatchLoader<T> {
+
+    /**
+     * 单条 IN 查询包含的最大ID数
+     */
+    public static final int MAX_BATCH_SIZE = 500;
+
+    private final Function<Collection<Long>, List<T>> batchFunction;
+
+    private final Function<T, Long> idFunction;
+
+    private final Map<Long, CompletableFuture<T>> loaded = new HashMap<>();
+
+    private final Set<Long> pending = new LinkedHashSet<>();
+
+    public BatchLoader(Function<Collection<Long>, List<T>> batchFunction, Function<T, Long> idFunction) {
+        this.batchFunction = batchFunction;
+        this.idFunction = idFunction;
+    }
+
+    /**
+     * 登记要加载的ID，结果在下次 {@link #dispatch()} 后可用
+     *
+     * @param id 实体ID，为null时直接得到null
+     * @return 实体的 future
+     */
+    public synchronized CompletableFuture<T> load(Long id) {
+        if (id == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<T> future = loaded.get(id);
+        if (future == null) {
+            future = new CompletableFuture<>();
+            loaded.put(id, future);
+            pending.add(id);
+        }
+        return future;
+    }
+
+    /**
+     * 加载一组ID并立即执行查询
+     *
+     * @param ids 实体ID
+     * @return ID到实体的映射，不存在的实体不在映射中
+     */
+    public Map<Long, T> loadAll(Collection<Long> ids) {
+        Map<Long, CompletableFuture<T>> futures = new LinkedHashMap<>();
+        for (Long id : ids) {
+            if (id != null) {
+                futures.put(id, load(id));
+            }
+        }
+        dispatch();
+        Map<Long, T> result = new LinkedHashMap<>();
+        for (Map.Entry<Long, CompletableFuture<T>> entry : futures.entrySet()) {
+            T entity = entry.getValue().join();
+            if (entity != null) {
+                result.put(entry.getKey(), entity);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 加载单个ID并立即执行查询，会一并加载此前登记的ID
+     *
+     * @param id 实体ID
+     * @return 实体，不存在时为null
+     */
+    public T get(Long id) {
+        CompletableFuture<T> future = load(id);
+        dispatch();
+        return future.join();
+    }
+
+    /**
+     * 批量查询所有已登记的ID
+     */
+    public synchronized void dispatch() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(pending);
+        pending.clear();
+        for (int from = 0; from < ids.size(); from += MAX_BATCH_SIZE) {
+            List<Long> batch = ids.subList(from, Math.min(from + MAX_BATCH_SIZE, ids.size()));
+            List<T> entities;
+            try {
+                entities = batchFunction.apply(batch);
+            } catch (RuntimeException e) {
+                // 本批及之后未查询的ID都以异常结束，并移出已加载表以便重试
+                for (Long id : ids.subList(from, ids.size())) {
+                    loaded.remove(id).completeExceptionally(e);
+                }
+                throw e;
+            }
+            for (T entity : entities) {
+                CompletableFuture<T> future = loaded.get(idFunction.apply(entity));
+                if (future != null) {
+                    future.complete(entity);
+                }
+            }
+            for (Long id : batch) {
+                loaded.get(id).complete(null);
+            }
+        }
+    }
+
+    /**
+     * 移除已加载的实体，下次加载时重新查询
+     *
+     * @param id 实体ID
+     */
+    public synchronized void clear(Long id) {
+        CompletableFuture<T> future = loaded.get(id);
+        if (future != null && future.isDone()) {
+            loaded.remove(id);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package example.shopping.cache;
+
+import example.shopping.entity.Product;
+import example.shopping.entity.Store;
+import example.shopping.entity.User;
+import example.shopping.mapper.ProductMapper;
+import example.shopping.mapper.StoreMapper;
+import example.shopping.mapper.UserMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 按请求获取实体批量加载器
+ * <p>
+ * 在 Web 请求中，同一请求内每种实体共用一个 {@link BatchLoader}，请求结束即丢弃，
+ * 同一请求里多个服务加载同一实体只查询一次。不在请求中（如后台任务）时每次返回新的加载器。
+ */
+@Component
+public class BatchLoaders {
+
+    private static final String ATTRIBUTE_PREFIX = BatchLoaders.class.getName() + ".";
+
+    @Autowired
+    private StoreMapper storeMapper;
+
+    @Autowired
+    private UserMapper userMapper;
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    /**
+     * 店铺加载器
+     */
+    public BatchLoader<Store> stores() {
+        return loader("stores", storeMapper::findByIds, Store::getId);
+    }
+
+    /**
+     * 用户加载器
+     */
+    public BatchLoader<User> users() {
+        return loader("users", userMapper::findByIds, User::getId);
+    }
+
+    /**
+     * 商品加载器
+     */
+    public BatchLoader<Product> products() {
+        return loader("products", productMapper::findByIds, Product::getId);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> BatchLoader<T> loader(String name, Function<Collection<Long>, List<T>> batchFunction,
+                                      Function<T, Long> idFunction) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return new BatchLoader<>(batchFunction, idFunction);
+        }
+        String key = ATTRIBUTE_PREFIX + name;
+        BatchLoader<T> loader = (BatchLoader<T>) attributes.getAttribute(key, RequestAttributes.SCOPE_REQUEST);
+        if (loader == null) {
+            loader = new BatchLoader<>(batchFunction, idFunction);
+            attributes.setAttribute(key, loader, RequestAttributes.SCOPE_REQUEST);
+        }
+        return loader;
+    }
+}
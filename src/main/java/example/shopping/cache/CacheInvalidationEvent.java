@@ -0,0 +1,43 @@
+package example.shopping.cache;
+
+/**
+ * 其他节点的实体变更事件
+ * <p>
+ * 由 {@link InvalidationBus} 轮询到其他节点写入的变更记录后在本节点发布，
+ * 收到后失效或重新加载本地缓存中对应的数据。
+ */
+public class CacheInvalidationEvent {
+
+    private final String entity;
+
+    private final Long entityId;
+
+    private final long version;
+
+    public CacheInvalidationEvent(String entity, Long entityId, long version) {
+        this.entity = entity;
+        this.entityId = entityId;
+        this.version = version;
+    }
+
+    /**
+     * 实体类型，如 {@link InvalidationBus#PRODUCT}、{@link InvalidationBus#STORE} 或 Mapper 命名空间
+     */
+    public String getEntity() {
+        return entity;
+    }
+
+    /**
+     * 实体ID，为null表示该类型全部失效
+     */
+    public Long getEntityId() {
+        return entityId;
+    }
+
+    /**
+     * 变更版本号（变更记录ID），同一实体的版本越大变更越晚
+     */
+    public long getVersion() {
+        return version;
+    }
+}
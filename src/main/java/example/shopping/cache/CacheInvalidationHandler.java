@@ -0,0 +1,116 @@
+package example.shopping.cache;
+
+import example.shopping.entity.Product;
+import example.shopping.entity.Store;
+import example.shopping.mapper.ProductMapper;
+import example.shopping.mapper.StoreMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * 按其他节点的变更刷新本地缓存
+ * <p>
+ * 商品和店铺变更从数据库重新读取后更新ID过滤器、排行榜、列表索引和店铺搜索索引，并清空搜索结果缓存；
+ * 订单计数和购物车商品总数按用户失效；
+ * Mapper 命名空间的变更清空本节点对应的查询缓存。
+ */
+@Slf4j
+@Component
+public class CacheInvalidationHandler {
+
+    @Autowired
+    private SqlSessionFactory sqlSessionFactory;
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    @Autowired
+    private StoreMapper storeMapper;
+
+    @Autowired
+    private ProductLeaderboard productLeaderboard;
+
+    @Autowired
+    private ProductListingIndex productListingIndex;
+
+    @Autowired
+    private SearchResultCache searchResultCache;
+
+    @Autowired
+    private StoreSearchIndex storeSearchIndex;
+
+    @Autowired
+    private ExistenceFilters existenceFilters;
+
+    @Autowired
+    private OrderCountCache orderCountCache;
+
+    @Autowired
+    private CartCountCache cartCountCache;
+
+    @EventListener
+    public void onInvalidation(CacheInvalidationEvent event) {
+        log.debug("收到缓存变更: {} {} 版本 {}", event.getEntity(), event.getEntityId(), event.getVersion());
+        switch (event.getEntity()) {
+            case InvalidationBus.PRODUCT:
+                refreshProduct(event.getEntityId());
+                break;
+            case InvalidationBus.STORE:
+                refreshStore(event.getEntityId());
+                break;
+            case InvalidationBus.ORDER_COUNT:
+                orderCountCache.remove(event.getEntityId());
+                break;
+            case InvalidationBus.CART_COUNT:
+                cartCountCache.remove(event.getEntityId());
+                break;
+            default:
+                clearMapperCache(event.getEntity());
+        }
+    }
+
+    private void refreshProduct(Long productId) {
+        if (productId == null) {
+            productLeaderboard.rebuild();
+            productListingIndex.load();
+        } else {
+            Product product = productMapper.findById(productId);
+            if (product == null) {
+                productLeaderboard.remove(productId);
+                productListingIndex.remove(productId);
+            } else {
+                existenceFilters.products().put(productId);
+                productLeaderboard.put(product);
+                productListingIndex.put(product);
+            }
+        }
+        searchResultCache.invalidateAll();
+    }
+
+    private void refreshStore(Long storeId) {
+        // 先清空店铺查询缓存，避免读到本节点缓存的旧数据
+        clearMapperCache(StoreMapper.class.getName());
+        if (storeId == null) {
+            storeSearchIndex.load();
+            return;
+        }
+        Store store = storeMapper.findById(storeId);
+        if (store == null) {
+            storeSearchIndex.remove(storeId);
+        } else {
+            existenceFilters.stores().put(storeId);
+            storeSearchIndex.put(store);
+        }
+    }
+
+    private void clearMapperCache(String namespace) {
+        Configuration configuration = sqlSessionFactory.getConfiguration();
+        if (configuration.hasCache(namespace)) {
+            configuration.getCache(namespace).clear();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package example.shopping.cache;
+
+import example.shopping.utils.TransactionUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+
+/**
+ * 用户购物车商品总数缓存
+ * <p>
+ * 页头角标每个页面都会请求，缓存每个用户的商品总数：首次访问时由一次 SUM 查询加载，
+ * 购物车的任何修改提交后失效，下次访问重新加载，按LRU淘汰不活跃的用户。
+ * 失效时递增版本号，加载期间发生过失效的结果只返回不缓存，避免事务提交前读到的旧值覆盖失效。
+ * 失效随事务通过 {@link InvalidationBus} 通知其他节点，未开启缓存失效通知时只适用于单实例部署。
+ * 关闭时每次都执行 SUM 查询。
+ */
+@Component
+public class CartCountCache {
+
+    @Autowired
+    private InvalidationBus invalidationBus;
+
+    private final boolean enabled;
+
+    private final Map<Long, Integer> counters;
+
+    private final AtomicLong version = new AtomicLong();
+
+    public CartCountCache(@Value("${cache.cart-count.enabled:true}") boolean enabled,
+                          @Value("${cache.cart-count.max-users:10000}") int maxUsers) {
+        this.enabled = enabled;
+        this.counters = new LinkedHashMap<Long, Integer>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Integer> eldest) {
+                return size() > maxUsers;
+            }
+        };
+    }
+
+    /**
+     * 获取用户购物车商品总数，未缓存时通过 loader 加载
+     *
+     * @param userId 用户ID
+     * @param loader 统计商品总数的加载函数
+     * @return 商品总数
+     */
+    public int get(Long userId, IntSupplier loader) {
+        if (!enabled) {
+            return loader.getAsInt();
+        }
+        long loadVersion;
+        synchronized (counters) {
+            Integer count = counters.get(userId);
+            if (count != null) {
+                return count;
+            }
+            loadVersion = version.get();
+        }
+        int loaded = loader.getAsInt();
+        synchronized (counters) {
+            if (version.get() == loadVersion) {
+                counters.put(userId, loaded);
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * 在当前事务提交后失效用户的商品总数，下次访问重新加载
+     *
+     * @param userId 用户ID
+     */
+    public void evict(Long userId) {
+        if (!enabled) {
+            return;
+        }
+        invalidationBus.publish(InvalidationBus.CART_COUNT, userId);
+        TransactionUtils.afterCommit(() -> remove(userId));
+    }
+
+    /**
+     * 立即移除本节点缓存的商品总数，用于其他节点的变更通知
+     *
+     * @param userId 用户ID，为null表示全部移除
+     */
+    public void remove(Long userId) {
+        synchronized (counters) {
+            version.incrementAndGet();
+            if (userId == null) {
+                counters.clear();
+            } else {
+                counters.remove(userId);
+            }
+        }
+    }
+}
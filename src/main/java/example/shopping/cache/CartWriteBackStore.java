@@ -0,0 +1,488 @@
+package example.shopping.cache;
+
+import example.shopping.entity.Cart;
+import example.shopping.mapper.CartMapper;
+import example.shopping.utils.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * 购物车写回缓存
+ * <p>
+ * 开启后按用户缓存购物车项，读取购物车和修改数量、选择状态都只访问内存，修改过的购物车项由后台线程
+ * 定期合并为批量更新写回数据库。新增和删除购物车项仍直接写数据库：写库前先通过 {@link #flush(Long)}
+ * 写回该用户的修改，提交后通过 {@link #invalidate(Long)} 失效该用户的缓存，下次访问重新加载。
+ * 缓存按LRU淘汰不活跃且没有未写回修改的用户。各实例的内存购物车互不可见，只适用于单实例部署。
+ */
+@Slf4j
+@Component
+public class CartWriteBackStore {
+
+    /**
+     * 单条批量更新语句包含的最大购物车项数
+     */
+    private static final int FLUSH_BATCH_SIZE = 500;
+
+    @Autowired
+    private CartMapper cartMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final boolean enabled;
+
+    private final int maxUsers;
+
+    private final long flushIntervalMillis;
+
+    private final Map<Long, UserCart> users = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final Set<UserCart> dirtyCarts = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 串行化写回，保证同一购物车项较早的快照不会在较新的快照之后写入
+     */
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private ScheduledExecutorService flusher;
+
+    public CartWriteBackStore(@Value("${cart.write-back.enabled:false}") boolean enabled,
+                              @Value("${cart.write-back.max-users:10000}") int maxUsers,
+                              @Value("${cart.write-back.flush-interval-ms:1000}") long flushIntervalMillis) {
+        this.enabled = enabled;
+        this.maxUsers = maxUsers;
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "cart-write-back");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(() -> {
+            try {
+                flushAll();
+            } catch (RuntimeException e) {
+                log.error("购物车写回失败，将在下次重试", e);
+            }
+        }, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (flusher == null) {
+            return;
+        }
+        flusher.shutdown();
+        flusher.awaitTermination(10, TimeUnit.SECONDS);
+        flushAll();
+    }
+
+    /**
+     * 是否开启写回缓存，未开启时其余方法不应被调用（{@link #flush(Long)} 和 {@link #invalidate(Long)} 除外）
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 获取用户的购物车项
+     *
+     * @param userId 用户ID
+     * @return 购物车项副本列表
+     */
+    public List<Cart> getCarts(Long userId) {
+        return withUserCart(userId, cart -> {
+            List<Cart> result = new ArrayList<>(cart.lines.size());
+            for (Line line : cart.lines.values()) {
+                result.add(copyOf(line.cart));
+            }
+            return result;
+        });
+    }
+
+    /**
+     * 统计用户购物车商品总数量
+     *
+     * @param userId 用户ID
+     * @return 商品总数量
+     */
+    public int getProductCount(Long userId) {
+        return withUserCart(userId, cart -> {
+            int count = 0;
+            for (Line line : cart.lines.values()) {
+                count += line.cart.getQuantity();
+            }
+            return count;
+        });
+    }
+
+    /**
+     * 获取用户的购物车项
+     *
+     * @param userId 用户ID
+     * @param id     购物车项ID
+     * @return 购物车项副本，不存在或不属于该用户时为null
+     */
+    public Cart getCart(Long userId, Long id) {
+        return withUserCart(userId, cart -> {
+            Line line = cart.lines.get(id);
+            return line != null ? copyOf(line.cart) : null;
+        });
+    }
+
+    /**
+     * 修改购物车项数量，稍后写回
+     *
+     * @param userId   用户ID
+     * @param id       购物车项ID
+     * @param quantity 数量
+     * @return 修改后的购物车项副本，不存在时为null
+     */
+    public Cart updateQuantity(Long userId, Long id, Integer quantity) {
+        return withUserCart(userId, cart -> {
+            Line line = cart.lines.get(id);
+            if (line == null) {
+                return null;
+            }
+            line.cart.setQuantity(quantity);
+            line.quantityDirty = true;
+            markDirty(cart);
+            return copyOf(line.cart);
+        });
+    }
+
+    /**
+     * 修改购物车项选择状态，稍后写回
+     *
+     * @param userId   用户ID
+     * @param id       购物车项ID
+     * @param selected 选择状态
+     * @return 修改后的购物车项副本，不存在时为null
+     */
+    public Cart updateSelected(Long userId, Long id, Boolean selected) {
+        return withUserCart(userId, cart -> {
+            Line line = cart.lines.get(id);
+            if (line == null) {
+                return null;
+            }
+            line.cart.setSelected(selected);
+            line.selectedDirty = true;
+            markDirty(cart);
+            return copyOf(line.cart);
+        });
+    }
+
+    /**
+     * 修改用户所有购物车项的选择状态，稍后写回
+     *
+     * @param userId   用户ID
+     * @param selected 选择状态
+     * @return 购物车项数量
+     */
+    public int updateAllSelected(Long userId, Boolean selected) {
+        return withUserCart(userId, cart -> {
+            for (Line line : cart.lines.values()) {
+                line.cart.setSelected(selected);
+                line.selectedDirty = true;
+            }
+            if (!cart.lines.isEmpty()) {
+                markDirty(cart);
+            }
+            return cart.lines.size();
+        });
+    }
+
+    /**
+     * 立即写回用户未写回的修改
+     * <p>
+     * 写回在独立事务中提交。在事务中调用时应放在该事务的第一次查询之前，
+     * 否则可重复读隔离级别下事务内的查询看不到写回的数据。
+     *
+     * @param userId 用户ID
+     */
+    public void flush(Long userId) {
+        if (!enabled) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            UserCart cart;
+            synchronized (users) {
+                cart = users.get(userId);
+            }
+            if (cart != null) {
+                write(snapshot(Collections.singletonList(cart), false));
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * 写回所有未写回的修改
+     */
+    public void flushAll() {
+        flushLock.lock();
+        try {
+            write(snapshot(new ArrayList<>(dirtyCarts), false));
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * 在当前事务提交后失效用户的缓存（先写回未写回的修改），没有事务时立即失效
+     *
+     * @param userId 用户ID
+     */
+    public void invalidate(Long userId) {
+        if (!enabled) {
+            return;
+        }
+        TransactionUtils.afterCommit(() -> {
+            flushLock.lock();
+            try {
+                UserCart cart;
+                synchronized (users) {
+                    cart = users.remove(userId);
+                }
+                if (cart != null) {
+                    write(snapshot(Collections.singletonList(cart), true));
+                }
+            } finally {
+                flushLock.unlock();
+            }
+        });
+    }
+
+    private <T> T withUserCart(Long userId, Function<UserCart, T> action) {
+        while (true) {
+            UserCart cart = acquire(userId);
+            cart.lock.lock();
+            try {
+                // 已被失效或淘汰，重新获取
+                if (cart.removed) {
+                    continue;
+                }
+                if (cart.lines == null) {
+                    Map<Long, Line> lines = new LinkedHashMap<>();
+                    for (Cart row : cartMapper.findByUserId(userId)) {
+                        lines.put(row.getId(), new Line(row));
+                    }
+                    cart.lines = lines;
+                }
+                return action.apply(cart);
+            } finally {
+                cart.lock.unlock();
+            }
+        }
+    }
+
+    private UserCart acquire(Long userId) {
+        synchronized (users) {
+            UserCart cart = users.get(userId);
+            if (cart == null) {
+                cart = new UserCart();
+                users.put(userId, cart);
+                if (users.size() > maxUsers) {
+                    evictIdle();
+                }
+            }
+            return cart;
+        }
+    }
+
+    /**
+     * 从最久未访问的用户开始淘汰已加载且没有未写回修改的购物车，调用方需持有 users 的锁
+     */
+    private void evictIdle() {
+        Iterator<UserCart> it = users.values().iterator();
+        while (users.size() > maxUsers && it.hasNext()) {
+            UserCart cart = it.next();
+            if (!cart.lock.tryLock()) {
+                continue;
+            }
+            try {
+                if (cart.lines != null && !cart.dirty) {
+                    cart.removed = true;
+                    it.remove();
+                }
+            } finally {
+                cart.lock.unlock();
+            }
+        }
+    }
+
+    private void markDirty(UserCart cart) {
+        cart.dirty = true;
+        dirtyCarts.add(cart);
+    }
+
+    /**
+     * 取出购物车中未写回的修改并清除修改标记
+     *
+     * @param carts  用户购物车
+     * @param remove 是否同时将购物车标记为已移除
+     */
+    private Batch snapshot(Collection<UserCart> carts, boolean remove) {
+        Batch batch = new Batch();
+        for (UserCart cart : carts) {
+            cart.lock.lock();
+            try {
+                cart.removed |= remove;
+                dirtyCarts.remove(cart);
+                if (!cart.dirty) {
+                    continue;
+                }
+                for (Line line : cart.lines.values()) {
+                    Long id = line.cart.getId();
+                    if (line.quantityDirty) {
+                        batch.quantities.put(id, line.cart.getQuantity());
+                    }
+                    if (line.selectedDirty) {
+                        batch.selections.put(id, line.cart.getSelected());
+                    }
+                    if (line.quantityDirty || line.selectedDirty) {
+                        batch.owners.put(id, cart);
+                        line.quantityDirty = false;
+                        line.selectedDirty = false;
+                    }
+                }
+                cart.dirty = false;
+            } finally {
+                cart.lock.unlock();
+            }
+        }
+        return batch;
+    }
+
+    private void write(Batch batch) {
+        if (batch.owners.isEmpty()) {
+            return;
+        }
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                List<Long> ids = new ArrayList<>(batch.owners.keySet());
+                for (int from = 0; from < ids.size(); from += FLUSH_BATCH_SIZE) {
+                    List<Long> chunk = ids.subList(from, Math.min(from + FLUSH_BATCH_SIZE, ids.size()));
+                    cartMapper.updateBatch(slice(batch.quantities, chunk), slice(batch.selections, chunk), chunk);
+                }
+            });
+        } catch (RuntimeException e) {
+            restore(batch);
+            throw e;
+        }
+    }
+
+    /**
+     * 写回失败时恢复修改标记，已被移除的购物车无法恢复
+     */
+    private void restore(Batch batch) {
+        for (Map.Entry<Long, UserCart> entry : batch.owners.entrySet()) {
+            Long id = entry.getKey();
+            UserCart cart = entry.getValue();
+            cart.lock.lock();
+            try {
+                Line line = cart.removed ? null : cart.lines.get(id);
+                if (line == null) {
+                    log.error("购物车项 {} 的修改写回失败且缓存已失效，修改丢失", id);
+                    continue;
+                }
+                line.quantityDirty |= batch.quantities.containsKey(id);
+                line.selectedDirty |= batch.selections.containsKey(id);
+                markDirty(cart);
+            } finally {
+                cart.lock.unlock();
+            }
+        }
+    }
+
+    private static <V> Map<Long, V> slice(Map<Long, V> values, List<Long> ids) {
+        Map<Long, V> result = new LinkedHashMap<>();
+        for (Long id : ids) {
+            V value = values.get(id);
+            if (value != null) {
+                result.put(id, value);
+            }
+        }
+        return result;
+    }
+
+    private static Cart copyOf(Cart source) {
+        Cart cart = new Cart();
+        cart.setId(source.getId());
+        cart.setUserId(source.getUserId());
+        cart.setProductId(source.getProductId());
+        cart.setSpecInfo(source.getSpecInfo());
+        cart.setSpecHash(source.getSpecHash());
+        cart.setQuantity(source.getQuantity());
+        cart.setSelected(source.getSelected());
+        cart.setCreateTime(source.getCreateTime());
+        return cart;
+    }
+
+    /**
+     * 单个用户的购物车，所有字段在 lock 保护下访问
+     */
+    private static class UserCart {
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        /**
+         * 按购物车项ID存放，首次访问时加载
+         */
+        private Map<Long, Line> lines;
+
+        private boolean dirty;
+
+        private boolean removed;
+    }
+
+    private static class Line {
+
+        private final Cart cart;
+
+        private boolean quantityDirty;
+
+        private boolean selectedDirty;
+
+        private Line(Cart cart) {
+            this.cart = cart;
+        }
+    }
+
+    /**
+     * 一次写回的数据
+     */
+    private static class Batch {
+
+        private final Map<Long, Integer> quantities = new HashMap<>();
+
+        private final Map<Long, Boolean> selections = new HashMap<>();
+
+        private final Map<Long, UserCart> owners = new LinkedHashMap<>();
+    }
+}
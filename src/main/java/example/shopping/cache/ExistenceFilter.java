@@ -0,0 +1,166 @@
+package example.shopping.cache;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 实体ID存在性过滤器
+ * <p>
+ * 按ID查询数据库前先查布隆过滤器，一定不存在的ID直接返回；布隆过滤器误判、
+ * 数据库确认不存在的ID记入短期的不存在缓存，有效期内再次查询也不访问数据库。
+ * 全量ID加载完成前不拦截任何查询。新增实体时调用 {@link #put(Long)}，
+ * 早于提交写入不影响正确性，最多让不存在的ID多查一次数据库。
+ */
+public class ExistenceFilter {
+
+    private final String name;
+
+    private final long expectedIds;
+
+    private final double fpp;
+
+    private final long negativeTtlMillis;
+
+    private final int negativeMaxEntries;
+
+    private final AtomicLong lookups = new AtomicLong();
+
+    private final AtomicLong rejected = new AtomicLong();
+
+    private final AtomicLong negativeHits = new AtomicLong();
+
+    private final AtomicLong falsePositives = new AtomicLong();
+
+    private final BloomFilter bloomFilter;
+
+    private volatile boolean loaded;
+
+    private final Map<Long, Long> misses = new LinkedHashMap<Long, Long>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+            return size() > negativeMaxEntries;
+        }
+    };
+
+    /**
+     * @param name               过滤器名称，用于统计
+     * @param expectedIds        预期ID数
+     * @param fpp                预期ID数下布隆过滤器的误判率
+     * @param negativeTtlSeconds 不存在的ID的缓存时间（秒）
+     * @param negativeMaxEntries 缓存的不存在ID的最大数量
+     */
+    public ExistenceFilter(String name, long expectedIds, double fpp, long negativeTtlSeconds, int negativeMaxEntries) {
+        this.name = name;
+        this.expectedIds = expectedIds;
+        this.fpp = fpp;
+        this.negativeTtlMillis = TimeUnit.SECONDS.toMillis(negativeTtlSeconds);
+        this.negativeMaxEntries = negativeMaxEntries;
+        this.bloomFilter = new BloomFilter(expectedIds, fpp);
+    }
+
+    /**
+     * 判断ID是否可能存在，返回 false 时无需查询数据库
+     */
+    public boolean mightExist(Long id) {
+        if (id == null) {
+            return false;
+        }
+        lookups.incrementAndGet();
+        if (!loaded) {
+            return true;
+        }
+        if (!bloomFilter.mightContain(id)) {
+            rejected.incrementAndGet();
+            return false;
+        }
+        synchronized (misses) {
+            Long expireAt = misses.get(id);
+            if (expireAt != null) {
+                if (expireAt >= System.currentTimeMillis()) {
+                    negativeHits.incrementAndGet();
+                    return false;
+                }
+                misses.remove(id);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 记录数据库确认不存在的ID
+     */
+    public void recordMiss(Long id) {
+        if (id == null || !loaded) {
+            return;
+        }
+        falsePositives.incrementAndGet();
+        synchronized (misses) {
+            misses.put(id, System.currentTimeMillis() + negativeTtlMillis);
+        }
+    }
+
+    /**
+     * 添加新增实体的ID
+     */
+    public void put(Long id) {
+        if (id == null) {
+            return;
+        }
+        bloomFilter.put(id);
+        synchronized (misses) {
+            misses.remove(id);
+        }
+    }
+
+    /**
+     * 加载全部ID，完成后开始拦截查询
+     *
+     * @param ids 数据库中的全部ID
+     */
+    public void load(Collection<Long> ids) {
+        for (Long id : ids) {
+            bloomFilter.put(id);
+        }
+        loaded = true;
+    }
+
+    /**
+     * 是否已加载全部ID
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * 统计信息
+     *
+     * @return 名称、布隆过滤器参数、查询数、拦截数、误判数和误判率
+     */
+    public Map<String, Object> stat() {
+        long rejectedCount = rejected.get();
+        long negativeCount = negativeHits.get();
+        long falsePositiveCount = falsePositives.get();
+        // 布隆过滤器放行的不存在ID（包括命中不存在缓存的）都是误判
+        long wrong = falsePositiveCount + negativeCount;
+        Map<String, Object> stat = new LinkedHashMap<>();
+        stat.put("name", name);
+        stat.put("loaded", loaded);
+        stat.put("expectedIds", expectedIds);
+        stat.put("fpp", fpp);
+        stat.put("bits", bloomFilter.bitSize());
+        stat.put("hashes", bloomFilter.hashCount());
+        stat.put("expectedFpp", bloomFilter.expectedFpp());
+        stat.put("lookups", lookups.get());
+        stat.put("rejected", rejectedCount);
+        stat.put("negativeHits", negativeCount);
+        stat.put("falsePositives", falsePositiveCount);
+        stat.put("falsePositiveRate", rejectedCount + wrong == 0 ? 0.0 : (double) wrong / (rejectedCount + wrong));
+        synchronized (misses) {
+            stat.put("negativeEntries", misses.size());
+        }
+        return stat;
+    }
+}
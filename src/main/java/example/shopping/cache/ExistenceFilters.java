@@ -0,0 +1,101 @@
+package example.shopping.cache;
+
+import example.shopping.mapper.ProductMapper;
+import example.shopping.mapper.StoreMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 商品和店铺的ID过滤器
+ * <p>
+ * 防止按不存在的ID批量请求详情时每次都穿透到数据库。启动时从数据库加载全部ID，
+ * 之后由新增商品、店铺（包括其他节点的变更通知）补充；关闭时不加载，所有查询照常访问数据库。
+ * 多实例部署时其他节点新增的ID只能通过 {@link InvalidationBus} 得知，因此只在单实例部署
+ * （cache.existence.single-instance）或开启了缓存失效通知时才加载，否则新增的商品、店铺
+ * 在其他节点上会被误判为不存在。开启通知时，其他节点新增的ID最多在一个轮询间隔后才能查到。
+ */
+@Slf4j
+@Component
+public class ExistenceFilters {
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    @Autowired
+    private StoreMapper storeMapper;
+
+    @Autowired
+    private InvalidationBus invalidationBus;
+
+    private final boolean enabled;
+
+    private final boolean singleInstance;
+
+    private final ExistenceFilter products;
+
+    private final ExistenceFilter stores;
+
+    public ExistenceFilters(@Value("${cache.existence.enabled:true}") boolean enabled,
+                            @Value("${cache.existence.single-instance:false}") boolean singleInstance,
+                            @Value("${cache.existence.expected-products:1000000}") long expectedProducts,
+                            @Value("${cache.existence.expected-stores:100000}") long expectedStores,
+                            @Value("${cache.existence.fpp:0.01}") double fpp,
+                            @Value("${cache.existence.negative-ttl-seconds:60}") long negativeTtlSeconds,
+                            @Value("${cache.existence.negative-max-entries:10000}") int negativeMaxEntries) {
+        this.enabled = enabled;
+        this.singleInstance = singleInstance;
+        this.products = new ExistenceFilter("products", expectedProducts, fpp, negativeTtlSeconds, negativeMaxEntries);
+        this.stores = new ExistenceFilter("stores", expectedStores, fpp, negativeTtlSeconds, negativeMaxEntries);
+    }
+
+    /**
+     * 商品ID过滤器
+     */
+    public ExistenceFilter products() {
+        return products;
+    }
+
+    /**
+     * 店铺ID过滤器
+     */
+    public ExistenceFilter stores() {
+        return stores;
+    }
+
+    /**
+     * 所有过滤器的统计信息
+     */
+    public List<Map<String, Object>> stats() {
+        return Arrays.asList(products, stores).stream().map(ExistenceFilter::stat).collect(Collectors.toList());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        if (!singleInstance && !invalidationBus.isEnabled()) {
+            log.info("未开启缓存失效通知且未声明单实例部署，ID过滤器不拦截查询");
+            return;
+        }
+        try {
+            List<Long> productIds = productMapper.findAllIds();
+            products.load(productIds);
+            List<Long> storeIds = storeMapper.findAllIds();
+            stores.load(storeIds);
+            log.info("ID过滤器已构建，商品 {} 个，店铺 {} 个", productIds.size(), storeIds.size());
+        } catch (RuntimeException e) {
+            // 未加载的过滤器不拦截查询，不影响正常访问
+            log.error("ID过滤器构建失败", e);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package example.shopping.cache;
+
+import example.shopping.utils.Result;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 幂等请求缓存
+ * <p>
+ * 以请求键记录正在处理或已完成的请求：首个请求占用条目并执行，重复请求等待同一结果，
+ * 完成的结果保留到过期。条目数超过上限时先清理过期条目，仍超出则淘汰较早的已完成条目，
+ * 处理中的条目不会被淘汰。
+ * <p>
+ * 条目同时记录首个请求内容的指纹，供调用方拒绝内容不同的重复请求。
+ */
+@Component
+public class IdempotencyCache {
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private final long ttlMillis;
+
+    private final int maxEntries;
+
+    public IdempotencyCache(@Value("${idempotency.ttl-minutes:1440}") long ttlMinutes,
+                            @Value("${idempotency.max-entries:100000}") int maxEntries) {
+        this.ttlMillis = TimeUnit.MINUTES.toMillis(ttlMinutes);
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * 查找未过期的条目，不占用请求键
+     *
+     * @param key 请求键
+     * @return 已存在的条目（{@link Entry#isOwner()} 为 false），不存在或已过期时返回null
+     */
+    public Entry find(String key) {
+        Entry existing = entries.get(key);
+        if (existing == null || existing.isExpired(System.currentTimeMillis())) {
+            return null;
+        }
+        return existing.asWaiter();
+    }
+
+    /**
+     * 尝试占用请求键
+     *
+     * @param key         请求键
+     * @param fingerprint 请求内容的指纹
+     * @return 新占用的条目（{@link Entry#isOwner()} 为 true），或已存在的条目
+     */
+    public Entry claim(String key, String fingerprint) {
+        long now = System.currentTimeMillis();
+        Entry created = new Entry(fingerprint, now + ttlMillis, true);
+        while (true) {
+            Entry existing = entries.putIfAbsent(key, created);
+            if (existing == null) {
+                if (entries.size() > maxEntries) {
+                    evict(now);
+                }
+                return created;
+            }
+            if (!existing.isExpired(now)) {
+                return existing.asWaiter();
+            }
+            if (entries.replace(key, existing, created)) {
+                return created;
+            }
+        }
+    }
+
+    /**
+     * 记录处理结果，结果保留到过期时间
+     *
+     * @param entry  占用的条目
+     * @param result 处理结果
+     */
+    public void complete(Entry entry, Result<?> result) {
+        entry.expireAt = System.currentTimeMillis() + ttlMillis;
+        entry.future.complete(result);
+    }
+
+    /**
+     * 释放请求键，等待中的重复请求得到同样的结果或异常，之后的请求重新执行
+     *
+     * @param key     请求键
+     * @param entry   占用的条目
+     * @param result  处理结果，异常时为null
+     * @param failure 异常，正常返回时为null
+     */
+    public void release(String key, Entry entry, Result<?> result, RuntimeException failure) {
+        entries.remove(key, entry);
+        if (failure != null) {
+            entry.future.completeExceptionally(failure);
+        } else {
+            entry.future.complete(result);
+        }
+    }
+
+    private void evict(long now) {
+        entries.entrySet().removeIf(e -> e.getValue().isExpired(now));
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (entries.size() > maxEntries && it.hasNext()) {
+            if (it.next().getValue().future.isDone()) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * 缓存条目
+     */
+    public static class Entry {
+
+        private final CompletableFuture<Result<?>> future;
+
+        private final String fingerprint;
+
+        private final boolean owner;
+
+        private volatile long expireAt;
+
+        private Entry(String fingerprint, long expireAt, boolean owner) {
+            this(new CompletableFuture<>(), fingerprint, expireAt, owner);
+        }
+
+        private Entry(CompletableFuture<Result<?>> future, String fingerprint, long expireAt, boolean owner) {
+            this.future = future;
+            this.fingerprint = fingerprint;
+            this.expireAt = expireAt;
+            this.owner = owner;
+        }
+
+        /**
+         * 是否为本次占用的条目，为 false 表示请求重复
+         */
+        public boolean isOwner() {
+            return owner;
+        }
+
+        /**
+         * 是否与首个请求的内容相同
+         */
+        public boolean matches(String fingerprint) {
+            return Objects.equals(this.fingerprint, fingerprint);
+        }
+
+        /**
+         * 首个请求的处理结果
+         */
+        public CompletableFuture<Result<?>> getFuture() {
+            return future;
+        }
+
+        private boolean isExpired(long now) {
+            return future.isDone() && expireAt < now;
+        }
+
+        private Entry asWaiter() {
+            return new Entry(future, fingerprint, expireAt, false);
+        }
+    }
+}
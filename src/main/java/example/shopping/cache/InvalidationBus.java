@@ -0,0 +1,186 @@
+package example.shopping.cache;
+
+import example.shopping.entity.CacheChange;
+import example.shopping.mapper.CacheChangeMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 跨节点缓存失效总线
+ * <p>
+ * 多实例部署时，修改数据的节点在同一事务中向 cache_changes 表写入变更记录，事务提交后其他节点才可见。
+ * 每个节点后台按自增ID轮询比上次处理过的最大ID（高水位）更大的记录，
+ * 把其他节点写入的变更作为 {@link CacheInvalidationEvent} 在本节点发布，各节点在一个轮询间隔内收敛。
+ * <p>
+ * 并发事务的自增ID可能晚于更大的ID提交，轮询时跳过的ID会作为空洞保留 gap-timeout 时间，
+ * 期间每次轮询按ID补查，超时仍不存在的视为回滚。变更记录保留 retention-hours 后分批删除。
+ * 关闭时不写入也不轮询，只适用于单实例部署。
+ */
+@Slf4j
+@Component
+public class InvalidationBus {
+
+    public static final String PRODUCT = "product";
+
+    public static final String STORE = "store";
+
+    public static final String ORDER_COUNT = "order-count";
+
+    public static final String CART_COUNT = "cart-count";
+
+    private static final long PURGE_INTERVAL_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private static final int PURGE_BATCH_SIZE = 1000;
+
+    @Autowired
+    private CacheChangeMapper cacheChangeMapper;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private final boolean enabled;
+
+    private final long pollIntervalMillis;
+
+    private final long gapTimeoutMillis;
+
+    private final long retentionMillis;
+
+    private final int batchSize;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    /**
+     * 尚未出现的ID到放弃补查的时间
+     */
+    private final Map<Long, Long> gaps = new TreeMap<>();
+
+    private long highWaterMark;
+
+    private long lastPurge;
+
+    private ScheduledExecutorService poller;
+
+    public InvalidationBus(@Value("${cache.invalidation.enabled:false}") boolean enabled,
+                           @Value("${cache.invalidation.poll-interval-ms:1000}") long pollIntervalMillis,
+                           @Value("${cache.invalidation.gap-timeout-ms:60000}") long gapTimeoutMillis,
+                           @Value("${cache.invalidation.retention-hours:24}") long retentionHours,
+                           @Value("${cache.invalidation.batch-size:500}") int batchSize) {
+        this.enabled = enabled;
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.gapTimeoutMillis = gapTimeoutMillis;
+        this.retentionMillis = TimeUnit.HOURS.toMillis(retentionHours);
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * 是否开启，未开启时其他节点的变更不会通知到本节点
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 记录实体变更，在当前事务中写入，随事务一起提交
+     *
+     * @param entity   实体类型
+     * @param entityId 实体ID，为null表示该类型全部失效
+     */
+    public void publish(String entity, Long entityId) {
+        if (!enabled) {
+            return;
+        }
+        CacheChange change = new CacheChange();
+        change.setEntity(entity);
+        change.setEntityId(entityId);
+        change.setNodeId(nodeId);
+        change.setCreateTime(new Date());
+        cacheChangeMapper.insert(change);
+    }
+
+    /**
+     * 从当前最大ID开始轮询，启动前的变更由各缓存的启动加载覆盖
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (!enabled) {
+            return;
+        }
+        highWaterMark = cacheChangeMapper.findMaxId();
+        lastPurge = System.currentTimeMillis();
+        poller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "cache-invalidation");
+            thread.setDaemon(true);
+            return thread;
+        });
+        poller.scheduleWithFixedDelay(() -> {
+            try {
+                poll();
+            } catch (RuntimeException e) {
+                log.error("轮询缓存变更失败，将在下次重试", e);
+            }
+        }, pollIntervalMillis, pollIntervalMillis, TimeUnit.MILLISECONDS);
+        log.info("缓存失效总线已启动，节点 {}，起始版本 {}", nodeId, highWaterMark);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (poller != null) {
+            poller.shutdownNow();
+        }
+    }
+
+    /**
+     * 拉取新的变更记录并发布其他节点的变更
+     */
+    public synchronized void poll() {
+        long now = System.currentTimeMillis();
+        List<CacheChange> changes = new ArrayList<>();
+
+        if (!gaps.isEmpty()) {
+            for (CacheChange change : cacheChangeMapper.findByIds(new ArrayList<>(gaps.keySet()))) {
+                gaps.remove(change.getId());
+                changes.add(change);
+            }
+            gaps.values().removeIf(deadline -> deadline < now);
+        }
+
+        List<CacheChange> batch;
+        do {
+            batch = cacheChangeMapper.findAfter(highWaterMark, batchSize);
+            for (CacheChange change : batch) {
+                // 空洞过多时只跟踪最近的一部分，更早的视为回滚
+                for (long id = Math.max(highWaterMark + 1, change.getId() - batchSize); id < change.getId(); id++) {
+                    gaps.put(id, now + gapTimeoutMillis);
+                }
+                highWaterMark = change.getId();
+                changes.add(change);
+            }
+        } while (batch.size() >= batchSize);
+
+        changes.sort(Comparator.comparing(CacheChange::getId));
+        for (CacheChange change : changes) {
+            if (!nodeId.equals(change.getNodeId())) {
+                eventPublisher.publishEvent(
+                        new CacheInvalidationEvent(change.getEntity(), change.getEntityId(), change.getId()));
+            }
+        }
+
+        if (now - lastPurge >= PURGE_INTERVAL_MILLIS) {
+            lastPurge = now;
+            int purged = cacheChangeMapper.deleteBefore(new Date(now - retentionMillis), PURGE_BATCH_SIZE);
+            log.debug("清理过期缓存变更记录 {} 条", purged);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package example.shopping.cache;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.io.Resources;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * MyBatis 二级缓存实现
+ * <p>
+ * 在 Mapper 接口上通过 {@code @CacheNamespace(implementation = MapperCache.class)} 启用，
+ * 缓存键由 MyBatis 按语句、参数和 SQL 生成，同一 Mapper 的 insert/update/delete 提交后清空整个缓存。
+ * 查询结果序列化后保存，每次读取得到新的副本，调用方修改返回的对象不会影响缓存；
+ * 条目超过 size 时按LRU淘汰，超过 ttlSeconds 后失效。所有实例登记在一起，供统计命中率和占用内存。
+ */
+public class MapperCache implements Cache {
+
+    private static final Map<String, MapperCache> CACHES = new ConcurrentHashMap<>();
+
+    private final String id;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private int size = 1000;
+
+    private long ttlMillis = TimeUnit.MINUTES.toMillis(10);
+
+    private long bytes;
+
+    private final Map<Object, Entry> entries = new LinkedHashMap<Object, Entry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Object, Entry> eldest) {
+            if (size() > size) {
+                bytes -= eldest.getValue().value.length;
+                return true;
+            }
+            return false;
+        }
+    };
+
+    public MapperCache(String id) {
+        this.id = id;
+        CACHES.put(id, this);
+    }
+
+    /**
+     * 所有缓存的统计信息
+     *
+     * @return 每个缓存的名称、条目数、容量、有效期、命中数、未命中数、命中率和占用字节数
+     */
+    public static List<Map<String, Object>> stats() {
+        List<Map<String, Object>> stats = new ArrayList<>();
+        for (MapperCache cache : CACHES.values()) {
+            stats.add(cache.stat());
+        }
+        stats.sort(Comparator.comparing(stat -> (String) stat.get("name")));
+        return stats;
+    }
+
+    /**
+     * 最大条目数，由 {@code @Property(name = "size")} 设置
+     */
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    /**
+     * 条目有效期（秒），由 {@code @Property(name = "ttlSeconds")} 设置
+     */
+    public void setTtlSeconds(long ttlSeconds) {
+        this.ttlMillis = TimeUnit.SECONDS.toMillis(ttlSeconds);
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public void putObject(Object key, Object value) {
+        // MyBatis 提交时会为未命中的键写入null，不缓存
+        if (value == null) {
+            return;
+        }
+        Entry entry = new Entry(serialize(value), System.currentTimeMillis() + ttlMillis);
+        synchronized (entries) {
+            Entry previous = entries.put(key, entry);
+            bytes += entry.value.length - (previous != null ? previous.value.length : 0);
+        }
+    }
+
+    @Override
+    public Object getObject(Object key) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && entry.expireAt < System.currentTimeMillis()) {
+                entries.remove(key);
+                bytes -= entry.value.length;
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return deserialize(entry.value);
+    }
+
+    @Override
+    public Object removeObject(Object key) {
+        synchronized (entries) {
+            Entry entry = entries.remove(key);
+            if (entry == null) {
+                return null;
+            }
+            bytes -= entry.value.length;
+            return deserialize(entry.value);
+        }
+    }
+
+    @Override
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+            bytes = 0;
+        }
+    }
+
+    @Override
+    public int getSize() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private Map<String, Object> stat() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        Map<String, Object> stat = new LinkedHashMap<>();
+        stat.put("name", id);
+        synchronized (entries) {
+            stat.put("entries", entries.size());
+            stat.put("bytes", bytes);
+        }
+        stat.put("maxEntries", size);
+        stat.put("ttlSeconds", TimeUnit.MILLISECONDS.toSeconds(ttlMillis));
+        stat.put("hits", hitCount);
+        stat.put("misses", missCount);
+        stat.put("hitRatio", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        return stat;
+    }
+
+    private static byte[] serialize(Object value) {
+        try (ByteArrayOutputStream bos = new ByteArrayOutputStream();
+             ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+            oos.writeObject(value);
+            oos.flush();
+            return bos.toByteArray();
+        } catch (IOException e) {
+            throw new CacheException("缓存查询结果失败: " + e, e);
+        }
+    }
+
+    private static Object deserialize(byte[] value) {
+        try (ObjectInputStream ois = new ClassLoaderObjectInputStream(new ByteArrayInputStream(value))) {
+            return ois.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new CacheException("读取缓存的查询结果失败: " + e, e);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof Cache && id.equals(((Cache) o).getId());
+    }
+
+    @Override
+    public int hashCode() {
+        return id.hashCode();
+    }
+
+    /**
+     * 缓存条目
+     */
+    private static final class Entry {
+
+        private final byte[] value;
+
+        private final long expireAt;
+
+        private Entry(byte[] value, long expireAt) {
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+    }
+
+    /**
+     * 通过 MyBatis 的类加载器解析类，避免开发环境热重启后类加载器不一致
+     */
+    private static final class ClassLoaderObjectInputStream extends ObjectInputStream {
+
+        private ClassLoaderObjectInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            try {
+                return Resources.classForName(desc.getName());
+            } catch (ClassNotFoundException e) {
+                return super.resolveClass(desc);
+            }
+        }
+    }
+}
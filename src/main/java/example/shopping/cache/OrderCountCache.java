@@ -0,0 +1,127 @@
+package example.shopping.cache;
+
+import example.shopping.statemachine.OrderTransitionEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Supplier;
+
+/**
+ * 用户订单状态计数缓存
+ * <p>
+ * 每个用户缓存一组按状态值下标存放的订单数量，首次访问时由一次 GROUP BY 查询加载，
+ * 之后在订单状态流转事件提交后增量维护，按LRU淘汰不活跃的用户。
+ * 状态流转随事务通过 {@link InvalidationBus} 通知其他节点失效该用户的计数，
+ * 未开启缓存失效通知时其他节点修改的订单不会反映到本节点，只适用于单实例部署。
+ */
+@Component
+public class OrderCountCache {
+
+    /**
+     * 订单状态值上限（不含），与 OrderStatus 的取值范围一致
+     */
+    public static final int STATUS_SLOTS = 9;
+
+    @Autowired
+    private InvalidationBus invalidationBus;
+
+    private final Map<Long, AtomicIntegerArray> counters;
+
+    public OrderCountCache(@Value("${cache.order-count.max-users:10000}") int maxUsers) {
+        this.counters = new LinkedHashMap<Long, AtomicIntegerArray>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, AtomicIntegerArray> eldest) {
+                return size() > maxUsers;
+            }
+        };
+    }
+
+    /**
+     * 获取用户各状态订单数量，未缓存时通过 loader 加载
+     *
+     * @param userId 用户ID
+     * @param loader 按状态统计订单数量的加载函数
+     * @return 按状态值下标存放的订单数量
+     */
+    public int[] get(Long userId, Supplier<int[]> loader) {
+        AtomicIntegerArray counter;
+        synchronized (counters) {
+            counter = counters.get(userId);
+        }
+        if (counter == null) {
+            AtomicIntegerArray loaded = new AtomicIntegerArray(loader.get());
+            synchronized (counters) {
+                counter = counters.get(userId);
+                if (counter == null) {
+                    counters.put(userId, loaded);
+                    counter = loaded;
+                }
+            }
+        }
+
+        int[] snapshot = new int[STATUS_SLOTS];
+        for (int i = 0; i < STATUS_SLOTS; i++) {
+            snapshot[i] = counter.get(i);
+        }
+        return snapshot;
+    }
+
+    /**
+     * 订单状态流转时在同一事务中记录变更，其他节点收到后失效该用户的计数
+     *
+     * @param event 订单状态流转事件
+     */
+    @EventListener
+    public void publishTransition(OrderTransitionEvent event) {
+        invalidationBus.publish(InvalidationBus.ORDER_COUNT, event.getOrder().getUserId());
+    }
+
+    /**
+     * 订单状态流转提交后调整计数，原状态为 null 表示新建订单
+     *
+     * @param event 订单状态流转事件
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTransition(OrderTransitionEvent event) {
+        AtomicIntegerArray counter;
+        synchronized (counters) {
+            counter = counters.get(event.getOrder().getUserId());
+        }
+        if (counter == null) {
+            return;
+        }
+        Integer fromStatus = event.getFromStatus();
+        Integer toStatus = event.getToStatus();
+        if (fromStatus != null && isSlot(fromStatus)) {
+            counter.decrementAndGet(fromStatus);
+        }
+        if (toStatus != null && isSlot(toStatus)) {
+            counter.incrementAndGet(toStatus);
+        }
+    }
+
+    /**
+     * 立即移除本节点缓存的用户计数，用于其他节点的变更通知
+     *
+     * @param userId 用户ID，为null表示全部移除
+     */
+    public void remove(Long userId) {
+        synchronized (counters) {
+            if (userId == null) {
+                counters.clear();
+            } else {
+                counters.remove(userId);
+            }
+        }
+    }
+
+    private boolean isSlot(int status) {
+        return status >= 0 && status < STATUS_SLOTS;
+    }
+}
@@ -0,0 +1,431 @@
+package example.shopping.cache;
+
+import example.shopping.entity.Order;
+import example.shopping.entity.Product;
+import example.shopping.mapper.OrderMapper;
+import example.shopping.mapper.ProductMapper;
+import example.shopping.statemachine.OrderTransitionEvent;
+import example.shopping.utils.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 商品排行榜
+ * <p>
+ * 在内存中维护在售商品的销量榜、新品榜和热度榜（全站及各分类）。启动时从数据库重建，之后在订单创建、
+ * 取消、退款和商品变更提交后增量更新。每个榜单是按分数排序的跳表，取前 n 名只需遍历 n 个节点。
+ * <p>
+ * 热度按半衰期指数衰减：每件销量计入 2^((下单时间 - 基准时间) / 半衰期) 的权重。
+ * 所有商品同步衰减不改变相对顺序，因此无需定时衰减，只在权重指数过大时把全部热度换算到新的基准时间。
+ */
+@Slf4j
+@Component
+public class ProductLeaderboard {
+
+    /**
+     * 权重指数超过该值时换算基准时间，避免 double 溢出
+     */
+    private static final double MAX_EXPONENT = 64;
+
+    /**
+     * 重建热度时统计的订单时间范围（半衰期的倍数），更早的销量权重不足 1/32，忽略不计
+     */
+    private static final int REBUILD_HALF_LIVES = 5;
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    @Autowired
+    private OrderMapper orderMapper;
+
+    private final long halfLifeMillis;
+
+    /**
+     * 增量更新持有读锁并发执行（同一商品由条目自身同步），重建和换算基准时间持有写锁
+     */
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    private volatile Board salesBoard = new Board();
+
+    private volatile Board newestBoard = new Board();
+
+    private volatile Board trendingBoard = new Board();
+
+    private volatile long baseTime;
+
+    private volatile boolean loaded;
+
+    public ProductLeaderboard(@Value("${cache.leaderboard.trending-half-life-hours:24}") long halfLifeHours) {
+        this.halfLifeMillis = TimeUnit.HOURS.toMillis(halfLifeHours);
+    }
+
+    /**
+     * 销量榜
+     *
+     * @param categoryId 分类ID，为null时为全站榜
+     * @param limit      数量
+     * @return 商品ID列表
+     */
+    public List<Long> topSelling(Long categoryId, int limit) {
+        ensureLoaded();
+        return salesBoard.top(categoryId, limit);
+    }
+
+    /**
+     * 新品榜
+     *
+     * @param categoryId 分类ID，为null时为全站榜
+     * @param limit      数量
+     * @return 商品ID列表
+     */
+    public List<Long> newest(Long categoryId, int limit) {
+        ensureLoaded();
+        return newestBoard.top(categoryId, limit);
+    }
+
+    /**
+     * 热度榜
+     *
+     * @param categoryId 分类ID，为null时为全站榜
+     * @param limit      数量
+     * @return 商品ID列表
+     */
+    public List<Long> trending(Long categoryId, int limit) {
+        ensureLoaded();
+        return trendingBoard.top(categoryId, limit);
+    }
+
+    /**
+     * 在当前事务提交后按商品最新信息更新排行，商品不在售时移出排行
+     *
+     * @param product 商品信息
+     */
+    public void put(Product product) {
+        Long id = product.getId();
+        Long categoryId = product.getCategoryId();
+        boolean onSale = product.getStatus() != null && product.getStatus() == 1;
+        long sales = product.getSales() != null ? product.getSales() : 0;
+        long createTime = product.getCreateTime() != null ? product.getCreateTime().getTime() : System.currentTimeMillis();
+        TransactionUtils.afterCommit(() -> update(() -> {
+            if (!onSale) {
+                removeEntry(id);
+                return;
+            }
+            Entry entry = entries.computeIfAbsent(id, Entry::new);
+            synchronized (entry) {
+                if (entry.removed) {
+                    return;
+                }
+                entry.categoryId = categoryId;
+                entry.sales = sales;
+                entry.createTime = createTime;
+                reindex(entry, true, true, true);
+            }
+        }));
+    }
+
+    /**
+     * 在当前事务提交后将商品移出排行
+     *
+     * @param productId 商品ID
+     */
+    public void remove(Long productId) {
+        TransactionUtils.afterCommit(() -> update(() -> removeEntry(productId)));
+    }
+
+    /**
+     * 在当前事务提交后调整商品销量，不计入热度
+     *
+     * @param productId 商品ID
+     * @param increment 销量增量
+     */
+    public void addSales(Long productId, int increment) {
+        TransactionUtils.afterCommit(() -> update(() -> adjust(productId, increment, 0)));
+    }
+
+    /**
+     * 订单创建提交后计入销量和热度，取消或退款提交后按下单时间扣回
+     *
+     * @param event 订单状态流转事件
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTransition(OrderTransitionEvent event) {
+        Map<Long, Integer> salesDelta = event.getSalesDelta();
+        if (salesDelta.isEmpty()) {
+            return;
+        }
+        Order order = event.getOrder();
+        long orderTime = order.getCreateTime() != null ? order.getCreateTime().getTime() : System.currentTimeMillis();
+        update(() -> {
+            double weight = weight(orderTime);
+            for (Map.Entry<Long, Integer> item : salesDelta.entrySet()) {
+                adjust(item.getKey(), item.getValue(), item.getValue() * weight);
+            }
+        });
+    }
+
+    /**
+     * 从数据库重建所有榜单
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            long now = System.currentTimeMillis();
+            baseTime = now;
+            Map<Long, Entry> rebuilt = new ConcurrentHashMap<>();
+            for (Product product : productMapper.findRankFields()) {
+                Entry entry = new Entry(product.getId());
+                entry.categoryId = product.getCategoryId();
+                entry.sales = product.getSales() != null ? product.getSales() : 0;
+                entry.createTime = product.getCreateTime() != null ? product.getCreateTime().getTime() : now;
+                rebuilt.put(entry.id, entry);
+            }
+
+            Date since = new Date(now - REBUILD_HALF_LIVES * halfLifeMillis);
+            for (Order order : orderMapper.findItemsCreatedAfter(since)) {
+                double weight = weight(order.getCreateTime().getTime());
+                for (Map.Entry<Long, Integer> item : OrderTransitionEvent.parseItemQuantities(order.getItems()).entrySet()) {
+                    Entry entry = rebuilt.get(item.getKey());
+                    if (entry != null) {
+                        entry.trend += item.getValue() * weight;
+                    }
+                }
+            }
+
+            Board sales = new Board();
+            Board newest = new Board();
+            Board trending = new Board();
+            for (Entry entry : rebuilt.values()) {
+                entry.salesRank = sales.add(entry.sales, entry);
+                entry.newestRank = newest.add(entry.createTime, entry);
+                entry.trendingRank = trending.add(entry.trend, entry);
+            }
+            entries = rebuilt;
+            salesBoard = sales;
+            newestBoard = newest;
+            trendingBoard = trending;
+            loaded = true;
+            log.info("商品排行榜已重建，在售商品 {} 个", rebuilt.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            lock.writeLock().lock();
+            try {
+                if (!loaded) {
+                    rebuild();
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * 在读锁下执行增量更新，排行榜尚未重建时忽略（重建时会读到已提交的数据）
+     */
+    private void update(Runnable action) {
+        if (!loaded) {
+            return;
+        }
+        if ((System.currentTimeMillis() - baseTime) / (double) halfLifeMillis > MAX_EXPONENT) {
+            rebase();
+        }
+        lock.readLock().lock();
+        try {
+            action.run();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void adjust(Long productId, int salesDelta, double trendDelta) {
+        Entry entry = entries.get(productId);
+        if (entry == null) {
+            return;
+        }
+        synchronized (entry) {
+            if (entry.removed) {
+                return;
+            }
+            entry.sales = Math.max(0, entry.sales + salesDelta);
+            entry.trend = Math.max(0, entry.trend + trendDelta);
+            reindex(entry, true, false, trendDelta != 0);
+        }
+    }
+
+    private void removeEntry(Long productId) {
+        Entry entry = entries.remove(productId);
+        if (entry == null) {
+            return;
+        }
+        synchronized (entry) {
+            entry.removed = true;
+            salesBoard.remove(entry.salesRank);
+            newestBoard.remove(entry.newestRank);
+            trendingBoard.remove(entry.trendingRank);
+        }
+    }
+
+    /**
+     * 重新计算条目在各榜单中的位置，调用方需持有条目的锁
+     */
+    private void reindex(Entry entry, boolean sales, boolean newest, boolean trending) {
+        if (sales) {
+            salesBoard.remove(entry.salesRank);
+            entry.salesRank = salesBoard.add(entry.sales, entry);
+        }
+        if (newest) {
+            newestBoard.remove(entry.newestRank);
+            entry.newestRank = newestBoard.add(entry.createTime, entry);
+        }
+        if (trending) {
+            trendingBoard.remove(entry.trendingRank);
+            entry.trendingRank = trendingBoard.add(entry.trend, entry);
+        }
+    }
+
+    /**
+     * 将热度换算到当前时间为基准，并重建热度榜
+     */
+    private void rebase() {
+        lock.writeLock().lock();
+        try {
+            long now = System.currentTimeMillis();
+            double factor = Math.pow(2, -(now - baseTime) / (double) halfLifeMillis);
+            Board trending = new Board();
+            for (Entry entry : entries.values()) {
+                entry.trend *= factor;
+                entry.trendingRank = trending.add(entry.trend, entry);
+            }
+            baseTime = now;
+            trendingBoard = trending;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private double weight(long time) {
+        return Math.pow(2, (time - baseTime) / (double) halfLifeMillis);
+    }
+
+    /**
+     * 单个商品的排行数据，由自身同步
+     */
+    private static class Entry {
+
+        private final long id;
+
+        /**
+         * 分类ID，没有分类时只进入全站榜
+         */
+        private Long categoryId;
+
+        private long sales;
+
+        private long createTime;
+
+        /**
+         * 相对基准时间的热度
+         */
+        private double trend;
+
+        private Rank salesRank;
+
+        private Rank newestRank;
+
+        private Rank trendingRank;
+
+        private boolean removed;
+
+        private Entry(long id) {
+            this.id = id;
+        }
+    }
+
+    /**
+     * 榜单中的位置，分数高的在前，分数相同时ID大的在前
+     */
+    private static final class Rank implements Comparable<Rank> {
+
+        private final double score;
+
+        private final long id;
+
+        private final Long categoryId;
+
+        private Rank(double score, long id, Long categoryId) {
+            this.score = score;
+            this.id = id;
+            this.categoryId = categoryId;
+        }
+
+        @Override
+        public int compareTo(Rank other) {
+            int result = Double.compare(other.score, score);
+            return result != 0 ? result : Long.compare(other.id, id);
+        }
+    }
+
+    /**
+     * 一种榜单，包含全站和各分类的排序
+     */
+    private static class Board {
+
+        private final ConcurrentSkipListSet<Rank> all = new ConcurrentSkipListSet<>();
+
+        private final Map<Long, ConcurrentSkipListSet<Rank>> byCategory = new ConcurrentHashMap<>();
+
+        private Rank add(double score, Entry entry) {
+            Rank rank = new Rank(score, entry.id, entry.categoryId);
+            all.add(rank);
+            if (rank.categoryId != null) {
+                byCategory.computeIfAbsent(rank.categoryId, k -> new ConcurrentSkipListSet<>()).add(rank);
+            }
+            return rank;
+        }
+
+        private void remove(Rank rank) {
+            if (rank == null) {
+                return;
+            }
+            all.remove(rank);
+            Set<Rank> category = rank.categoryId != null ? byCategory.get(rank.categoryId) : null;
+            if (category != null) {
+                category.remove(rank);
+            }
+        }
+
+        private List<Long> top(Long categoryId, int limit) {
+            Set<Rank> ranks = categoryId == null ? all : byCategory.get(categoryId);
+            List<Long> ids = new ArrayList<>(limit);
+            if (ranks == null) {
+                return ids;
+            }
+            for (Rank rank : ranks) {
+                if (ids.size() >= limit) {
+                    break;
+                }
+                ids.add(rank.id);
+            }
+            return ids;
+        }
+    }
+}
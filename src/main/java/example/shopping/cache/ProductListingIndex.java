@@ -0,0 +1,589 @@
+package example.shopping.cache;
+
+import example.shopping.dto.ProductFacetsDTO;
+import example.shopping.entity.Product;
+import example.shopping.mapper.ProductMapper;
+import example.shopping.statemachine.OrderTransitionEvent;
+import example.shopping.utils.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 商品列表索引
+ * <p>
+ * 按列存放所有商品的排序字段（价格以分为单位的 long、销量 int、评分 float、上架时间 long），
+ * 为每个分类、店铺和状态各建一个位图，并为每个排序字段预先排好行下标顺序。
+ * 查询时先求筛选位图的交集，再按排序下标顺序取出命中的一页，不访问数据库。
+ * 价格和评分另按固定区间建位图，用于统计搜索结果的分面。
+ * <p>
+ * 列数据是不可变快照，读取无锁。商品变更提交后先写入按商品ID存放的行数据，
+ * 后台线程每个刷新间隔检查一次，有变更时重建快照，查询线程始终使用已构建好的快照。
+ */
+@Slf4j
+@Component
+public class ProductListingIndex {
+
+    public static final String SORT_PRICE = "price";
+
+    public static final String SORT_SALES = "sales";
+
+    public static final String SORT_RATING = "rating";
+
+    public static final String SORT_NEW = "new";
+
+    /**
+     * 价格分面各区间的下限（元），最后一个区间没有上限
+     */
+    private static final int[] PRICE_BUCKETS = {0, 50, 100, 200, 500, 1000};
+
+    /**
+     * 评分分面各区间的下限，最后一个区间没有上限
+     */
+    private static final double[] RATING_BUCKETS = {0, 3, 4, 4.5};
+
+    private static final String[] PRICE_LABELS = labels(Arrays.stream(PRICE_BUCKETS).asDoubleStream().toArray());
+
+    private static final String[] RATING_LABELS = labels(RATING_BUCKETS);
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    private final long refreshIntervalMillis;
+
+    private final Map<Long, Row> rows = new ConcurrentHashMap<>();
+
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    private volatile Snapshot snapshot;
+
+    private volatile boolean dirty;
+
+    private ScheduledExecutorService refresher;
+
+    public ProductListingIndex(@Value("${cache.product-listing.refresh-interval-ms:1000}") long refreshIntervalMillis) {
+        this.refreshIntervalMillis = refreshIntervalMillis;
+    }
+
+    /**
+     * 查询一页商品ID
+     *
+     * @param categoryId 分类ID，为null时不限
+     * @param storeId    店铺ID，为null时不限
+     * @param status     商品状态，为null时不限
+     * @param minPrice   最低价格（含），为null时不限
+     * @param maxPrice   最高价格（含），为null时不限
+     * @param sort       排序字段，为null时按商品ID升序
+     * @param asc        是否升序
+     * @param offset     偏移量
+     * @param limit      数量限制
+     * @return 本页商品ID和命中总数
+     */
+    public Page query(Long categoryId, Long storeId, Integer status, BigDecimal minPrice, BigDecimal maxPrice,
+                      String sort, boolean asc, int offset, int limit) {
+        long minCents = minPrice != null ? toCents(minPrice.setScale(2, RoundingMode.CEILING)) : Long.MIN_VALUE;
+        long maxCents = maxPrice != null ? toCents(maxPrice.setScale(2, RoundingMode.FLOOR)) : Long.MAX_VALUE;
+        return current().query(categoryId, storeId, status, minCents, maxCents, sort, asc, offset, limit);
+    }
+
+    /**
+     * 统计一组商品的分类、店铺、价格区间和评分区间分面
+     *
+     * @param productIds 商品ID，不在索引中的商品不计入
+     * @return 分面统计
+     */
+    public ProductFacetsDTO facets(Collection<Long> productIds) {
+        return current().facets(productIds);
+    }
+
+    /**
+     * 在当前事务提交后更新商品的列表字段
+     *
+     * @param product 商品信息
+     */
+    public void put(Product product) {
+        Row row = Row.of(product);
+        TransactionUtils.afterCommit(() -> {
+            if (snapshot != null) {
+                rows.put(row.id, row);
+                dirty = true;
+            }
+        });
+    }
+
+    /**
+     * 在当前事务提交后移除商品
+     *
+     * @param productId 商品ID
+     */
+    public void remove(Long productId) {
+        TransactionUtils.afterCommit(() -> {
+            if (snapshot != null && rows.remove(productId) != null) {
+                dirty = true;
+            }
+        });
+    }
+
+    /**
+     * 在当前事务提交后调整商品销量
+     *
+     * @param productId 商品ID
+     * @param increment 销量增量
+     */
+    public void addSales(Long productId, int increment) {
+        TransactionUtils.afterCommit(() -> adjustSales(productId, increment));
+    }
+
+    /**
+     * 订单创建、取消或退款提交后调整商品销量
+     *
+     * @param event 订单状态流转事件
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTransition(OrderTransitionEvent event) {
+        for (Map.Entry<Long, Integer> item : event.getSalesDelta().entrySet()) {
+            adjustSales(item.getKey(), item.getValue());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        load();
+        refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "product-listing-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(() -> {
+            try {
+                refresh();
+            } catch (RuntimeException e) {
+                log.error("商品列表索引刷新失败", e);
+            }
+        }, refreshIntervalMillis, refreshIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+
+    /**
+     * 有变更时按当前行数据重建快照
+     */
+    public void refresh() {
+        if (!dirty) {
+            return;
+        }
+        rebuildLock.lock();
+        try {
+            if (dirty) {
+                // 先清除标记，构建期间的变更会再次标记并在下次刷新时生效
+                dirty = false;
+                snapshot = Snapshot.build(rows.values());
+            }
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * 从数据库加载所有商品并构建快照
+     */
+    public void load() {
+        rebuildLock.lock();
+        try {
+            rows.clear();
+            for (Product product : productMapper.findListingFields()) {
+                Row row = Row.of(product);
+                rows.put(row.id, row);
+            }
+            dirty = false;
+            snapshot = Snapshot.build(rows.values());
+            log.info("商品列表索引已构建，商品 {} 个", rows.size());
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private void adjustSales(Long productId, int delta) {
+        if (snapshot == null) {
+            return;
+        }
+        Row updated = rows.computeIfPresent(productId, (id, row) -> row.withSales(Math.max(0, row.sales + delta)));
+        if (updated != null) {
+            dirty = true;
+        }
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            rebuildLock.lock();
+            try {
+                if (snapshot == null) {
+                    load();
+                }
+                return snapshot;
+            } finally {
+                rebuildLock.unlock();
+            }
+        }
+        return current;
+    }
+
+    private static long toCents(BigDecimal price) {
+        return price.movePointRight(2).longValue();
+    }
+
+    private static String[] labels(double[] bounds) {
+        String[] labels = new String[bounds.length];
+        for (int i = 0; i < bounds.length; i++) {
+            String lower = BigDecimal.valueOf(bounds[i]).stripTrailingZeros().toPlainString();
+            labels[i] = i + 1 < bounds.length
+                    ? lower + "-" + BigDecimal.valueOf(bounds[i + 1]).stripTrailingZeros().toPlainString()
+                    : lower + "+";
+        }
+        return labels;
+    }
+
+    /**
+     * 查询结果
+     */
+    public static class Page {
+
+        private final List<Long> ids;
+
+        private final int total;
+
+        private Page(List<Long> ids, int total) {
+            this.ids = ids;
+            this.total = total;
+        }
+
+        /**
+         * 本页商品ID，按排序顺序
+         */
+        public List<Long> getIds() {
+            return ids;
+        }
+
+        /**
+         * 命中的商品总数
+         */
+        public int getTotal() {
+            return total;
+        }
+    }
+
+    /**
+     * 单个商品的列表字段
+     */
+    private static final class Row {
+
+        private final long id;
+
+        private final long categoryId;
+
+        private final long storeId;
+
+        private final long priceCents;
+
+        private final int sales;
+
+        private final float rating;
+
+        private final int status;
+
+        private final long createTime;
+
+        private Row(long id, long categoryId, long storeId, long priceCents, int sales, float rating,
+                    int status, long createTime) {
+            this.id = id;
+            this.categoryId = categoryId;
+            this.storeId = storeId;
+            this.priceCents = priceCents;
+            this.sales = sales;
+            this.rating = rating;
+            this.status = status;
+            this.createTime = createTime;
+        }
+
+        private static Row of(Product product) {
+            return new Row(product.getId(),
+                    product.getCategoryId() != null ? product.getCategoryId() : 0,
+                    product.getStoreId() != null ? product.getStoreId() : 0,
+                    product.getPrice() != null ? toCents(product.getPrice()) : 0,
+                    product.getSales() != null ? product.getSales() : 0,
+                    product.getRating() != null ? product.getRating().floatValue() : 0,
+                    product.getStatus() != null ? product.getStatus() : 0,
+                    product.getCreateTime() != null ? product.getCreateTime().getTime() : 0);
+        }
+
+        private Row withSales(int sales) {
+            return new Row(id, categoryId, storeId, priceCents, sales, rating, status, createTime);
+        }
+    }
+
+    /**
+     * 按列值比较两个行下标
+     */
+    @FunctionalInterface
+    private interface IndexComparator {
+
+        int compare(int a, int b);
+    }
+
+    /**
+     * 按列存放的不可变快照，行按商品ID升序排列
+     */
+    private static final class Snapshot {
+
+        private final long[] ids;
+
+        private final long[] priceCents;
+
+        private final long[] categoryIds;
+
+        private final long[] storeIds;
+
+        private final BitSet[] byPriceBucket = new BitSet[PRICE_BUCKETS.length];
+
+        private final BitSet[] byRatingBucket = new BitSet[RATING_BUCKETS.length];
+
+        private final Map<Long, BitSet> byCategory = new HashMap<>();
+
+        private final Map<Long, BitSet> byStore = new HashMap<>();
+
+        private final Map<Integer, BitSet> byStatus = new HashMap<>();
+
+        private final BitSet all;
+
+        /**
+         * 各排序字段升序排列的行下标
+         */
+        private final Map<String, int[]> orders = new HashMap<>();
+
+        private Snapshot(int size) {
+            ids = new long[size];
+            priceCents = new long[size];
+            categoryIds = new long[size];
+            storeIds = new long[size];
+            for (int i = 0; i < byPriceBucket.length; i++) {
+                byPriceBucket[i] = new BitSet(size);
+            }
+            for (int i = 0; i < byRatingBucket.length; i++) {
+                byRatingBucket[i] = new BitSet(size);
+            }
+            all = new BitSet(size);
+            all.set(0, size);
+        }
+
+        private static Snapshot build(Collection<Row> source) {
+            List<Row> sorted = new ArrayList<>(source);
+            sorted.sort(Comparator.comparingLong(row -> row.id));
+            int size = sorted.size();
+
+            Snapshot snapshot = new Snapshot(size);
+            int[] sales = new int[size];
+            float[] rating = new float[size];
+            long[] createTime = new long[size];
+            for (int i = 0; i < size; i++) {
+                Row row = sorted.get(i);
+                snapshot.ids[i] = row.id;
+                snapshot.priceCents[i] = row.priceCents;
+                snapshot.categoryIds[i] = row.categoryId;
+                snapshot.storeIds[i] = row.storeId;
+                snapshot.byPriceBucket[priceBucket(row.priceCents)].set(i);
+                snapshot.byRatingBucket[ratingBucket(row.rating)].set(i);
+                sales[i] = row.sales;
+                rating[i] = row.rating;
+                createTime[i] = row.createTime;
+                snapshot.byCategory.computeIfAbsent(row.categoryId, k -> new BitSet(size)).set(i);
+                snapshot.byStore.computeIfAbsent(row.storeId, k -> new BitSet(size)).set(i);
+                snapshot.byStatus.computeIfAbsent(row.status, k -> new BitSet(size)).set(i);
+            }
+
+            // 值相同时按商品ID升序，行下标本身即为商品ID顺序
+            long[] price = snapshot.priceCents;
+            snapshot.orders.put(SORT_PRICE, sortedIndexes(size, (a, b) -> Long.compare(price[a], price[b])));
+            snapshot.orders.put(SORT_SALES, sortedIndexes(size, (a, b) -> Integer.compare(sales[a], sales[b])));
+            snapshot.orders.put(SORT_RATING, sortedIndexes(size, (a, b) -> Float.compare(rating[a], rating[b])));
+            snapshot.orders.put(SORT_NEW, sortedIndexes(size, (a, b) -> Long.compare(createTime[a], createTime[b])));
+            return snapshot;
+        }
+
+        private static int priceBucket(long priceCents) {
+            int i = PRICE_BUCKETS.length - 1;
+            while (i > 0 && priceCents < PRICE_BUCKETS[i] * 100L) {
+                i--;
+            }
+            return i;
+        }
+
+        private static int ratingBucket(float rating) {
+            int i = RATING_BUCKETS.length - 1;
+            while (i > 0 && rating < RATING_BUCKETS[i]) {
+                i--;
+            }
+            return i;
+        }
+
+        /**
+         * 对行下标做稳定的归并排序，值相同的行保持下标升序，不装箱
+         */
+        private static int[] sortedIndexes(int size, IndexComparator comparator) {
+            int[] indexes = new int[size];
+            for (int i = 0; i < size; i++) {
+                indexes[i] = i;
+            }
+            int[] buffer = new int[size];
+            for (int width = 1; width < size; width *= 2) {
+                for (int lo = 0; lo < size - width; lo += 2 * width) {
+                    int mid = lo + width;
+                    int hi = Math.min(lo + 2 * width, size);
+                    if (comparator.compare(indexes[mid - 1], indexes[mid]) <= 0) {
+                        continue;
+                    }
+                    System.arraycopy(indexes, lo, buffer, lo, hi - lo);
+                    int i = lo;
+                    int j = mid;
+                    for (int k = lo; k < hi; k++) {
+                        if (j >= hi || i < mid && comparator.compare(buffer[i], buffer[j]) <= 0) {
+                            indexes[k] = buffer[i++];
+                        } else {
+                            indexes[k] = buffer[j++];
+                        }
+                    }
+                }
+            }
+            return indexes;
+        }
+
+        private Page query(Long categoryId, Long storeId, Integer status, long minCents, long maxCents,
+                           String sort, boolean asc, int offset, int limit) {
+            BitSet filter = (BitSet) all.clone();
+            if (!intersect(filter, categoryId, byCategory)
+                    || !intersect(filter, storeId, byStore)
+                    || !intersect(filter, status, byStatus)) {
+                return new Page(Collections.emptyList(), 0);
+            }
+
+            boolean priceFiltered = minCents != Long.MIN_VALUE || maxCents != Long.MAX_VALUE;
+            int total;
+            if (priceFiltered) {
+                total = 0;
+                for (int i = filter.nextSetBit(0); i >= 0; i = filter.nextSetBit(i + 1)) {
+                    if (priceCents[i] < minCents || priceCents[i] > maxCents) {
+                        filter.clear(i);
+                    } else {
+                        total++;
+                    }
+                }
+            } else {
+                total = filter.cardinality();
+            }
+
+            List<Long> page = new ArrayList<>(Math.max(0, Math.min(limit, total - offset)));
+            int[] order = sort != null ? orders.get(sort) : null;
+            int skipped = 0;
+            int size = ids.length;
+            for (int k = 0; k < size && page.size() < limit; k++) {
+                int i;
+                if (order == null) {
+                    i = asc ? k : size - 1 - k;
+                } else {
+                    i = asc ? order[k] : order[size - 1 - k];
+                }
+                if (!filter.get(i)) {
+                    continue;
+                }
+                if (skipped < offset) {
+                    skipped++;
+                    continue;
+                }
+                page.add(ids[i]);
+            }
+            return new Page(page, total);
+        }
+
+        private ProductFacetsDTO facets(Collection<Long> productIds) {
+            BitSet hits = new BitSet(ids.length);
+            for (Long id : productIds) {
+                int i = Arrays.binarySearch(ids, id);
+                if (i >= 0) {
+                    hits.set(i);
+                }
+            }
+
+            // 分类和店铺数量多，按命中行的列值计数；价格和评分区间少，与区间位图求交集
+            Map<Long, Integer> categories = new HashMap<>();
+            Map<Long, Integer> stores = new HashMap<>();
+            for (int i = hits.nextSetBit(0); i >= 0; i = hits.nextSetBit(i + 1)) {
+                categories.merge(categoryIds[i], 1, Integer::sum);
+                stores.merge(storeIds[i], 1, Integer::sum);
+            }
+
+            ProductFacetsDTO facets = new ProductFacetsDTO();
+            putByCount(facets.getCategories(), categories);
+            putByCount(facets.getStores(), stores);
+            putBuckets(facets.getPrices(), hits, byPriceBucket, PRICE_LABELS);
+            putBuckets(facets.getRatings(), hits, byRatingBucket, RATING_LABELS);
+            return facets;
+        }
+
+        /**
+         * 按命中数从多到少、ID从小到大写入
+         */
+        private static void putByCount(Map<Long, Integer> target, Map<Long, Integer> counts) {
+            counts.entrySet().stream()
+                    .sorted(Map.Entry.<Long, Integer>comparingByValue().reversed()
+                            .thenComparing(Map.Entry.comparingByKey()))
+                    .forEach(entry -> target.put(entry.getKey(), entry.getValue()));
+        }
+
+        private static void putBuckets(Map<String, Integer> target, BitSet hits, BitSet[] buckets, String[] labels) {
+            for (int i = 0; i < buckets.length; i++) {
+                BitSet bucket = (BitSet) hits.clone();
+                bucket.and(buckets[i]);
+                int count = bucket.cardinality();
+                if (count > 0) {
+                    target.put(labels[i], count);
+                }
+            }
+        }
+
+        /**
+         * 与指定值的位图求交集
+         *
+         * @return 是否可能还有命中，值不存在时为false
+         */
+        private static <K> boolean intersect(BitSet filter, K value, Map<K, BitSet> bitmaps) {
+            if (value == null) {
+                return true;
+            }
+            BitSet bitmap = bitmaps.get(value);
+            if (bitmap == null) {
+                return false;
+            }
+            filter.and(bitmap);
+            return true;
+        }
+    }
+}
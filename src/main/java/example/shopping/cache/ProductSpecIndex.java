@@ -0,0 +1,148 @@
+package example.shopping.cache;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONException;
+import com.alibaba.fastjson.JSONObject;
+import com.alibaba.fastjson.TypeReference;
+import com.alibaba.fastjson.parser.Feature;
+import example.shopping.exception.BusinessException;
+
+import java.util.*;
+
+/**
+ * 编译后的商品规格索引
+ * <p>
+ * 由商品的 specifications JSON 解析一次得到，每个规格名对应一个可选值的哈希集合，
+ * 校验规格只需常数次查找。规格信息统一编码为按规格名排序的 JSON，作为购物车去重的规格键。
+ */
+public final class ProductSpecIndex {
+
+    private static final ProductSpecIndex EMPTY = new ProductSpecIndex(null, Collections.emptyMap());
+
+    private final String source;
+
+    private final Map<String, List<String>> specs;
+
+    private final Map<String, Set<String>> allowedValues;
+
+    private ProductSpecIndex(String source, Map<String, List<String>> specs) {
+        this.source = source;
+        this.specs = specs;
+        Map<String, Set<String>> allowed = new HashMap<>(specs.size() * 2);
+        for (Map.Entry<String, List<String>> entry : specs.entrySet()) {
+            allowed.put(entry.getKey(), new HashSet<>(entry.getValue()));
+        }
+        this.allowedValues = allowed;
+    }
+
+    /**
+     * 解析商品规格
+     *
+     * @param specifications 商品规格JSON，形如 {"颜色":["红色","蓝色"],"尺寸":"均码"}
+     * @return 规格索引
+     */
+    public static ProductSpecIndex compile(String specifications) {
+        if (specifications == null || specifications.trim().isEmpty()) {
+            return EMPTY;
+        }
+        JSONObject json;
+        try {
+            json = JSON.parseObject(specifications, Feature.OrderedField);
+        } catch (JSONException e) {
+            throw new BusinessException("商品规格信息格式错误");
+        }
+        if (json == null) {
+            return EMPTY;
+        }
+
+        Map<String, List<String>> specs = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> entry : json.entrySet()) {
+            Object values = entry.getValue();
+            List<String> valueList = new ArrayList<>();
+            if (values instanceof Collection) {
+                for (Object value : (Collection<?>) values) {
+                    valueList.add(String.valueOf(value));
+                }
+            } else if (values instanceof String) {
+                valueList.add((String) values);
+            } else {
+                throw new BusinessException("规格信息格式不支持");
+            }
+            specs.put(entry.getKey(), Collections.unmodifiableList(valueList));
+        }
+        return new ProductSpecIndex(specifications, Collections.unmodifiableMap(specs));
+    }
+
+    /**
+     * 将规格信息编码为规格键，与规格名的提交顺序无关
+     *
+     * @param specInfo 规格名到规格值的映射
+     * @return 按规格名排序的JSON，规格信息为空时返回null
+     */
+    public static String encode(Map<String, String> specInfo) {
+        if (specInfo == null || specInfo.isEmpty()) {
+            return null;
+        }
+        return JSON.toJSONString(new TreeMap<>(specInfo));
+    }
+
+    /**
+     * 将已保存的规格信息JSON重新编码为规格键，用于迁移按提交顺序编码的旧数据
+     *
+     * @param specInfo 规格信息JSON
+     * @return 规格键，规格信息为空时返回null
+     * @throws JSONException 规格信息不是JSON对象时抛出
+     */
+    public static String reencode(String specInfo) {
+        if (specInfo == null || specInfo.isEmpty()) {
+            return null;
+        }
+        return encode(JSON.parseObject(specInfo, new TypeReference<Map<String, String>>() {
+        }));
+    }
+
+    /**
+     * 校验规格信息并编码为规格键
+     *
+     * @param specInfo 规格名到规格值的映射
+     * @return 规格键，规格信息为空时返回null
+     */
+    public String canonicalize(Map<String, String> specInfo) {
+        validate(specInfo);
+        return encode(specInfo);
+    }
+
+    /**
+     * 校验规格名和规格值是否为商品提供的选项
+     *
+     * @param specInfo 规格名到规格值的映射
+     */
+    public void validate(Map<String, String> specInfo) {
+        if (specInfo == null) {
+            return;
+        }
+        for (Map.Entry<String, String> entry : specInfo.entrySet()) {
+            Set<String> allowed = allowedValues.get(entry.getKey());
+            if (allowed == null) {
+                throw new BusinessException("无效的规格名称：" + entry.getKey());
+            }
+            if (!allowed.contains(entry.getValue())) {
+                throw new BusinessException("无效的规格值：" + entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * 规格名到可选值的映射，保持商品定义的顺序
+     */
+    public Map<String, List<String>> getSpecs() {
+        return specs;
+    }
+
+    /**
+     * 判断索引是否由给定的规格JSON编译而来
+     */
+    boolean isCompiledFrom(String specifications) {
+        return Objects.equals(source, specifications);
+    }
+}
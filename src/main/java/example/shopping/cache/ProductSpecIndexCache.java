@@ -0,0 +1,46 @@
+package example.shopping.cache;
+
+import example.shopping.entity.Product;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 商品规格索引缓存
+ * <p>
+ * 按商品ID缓存编译后的规格索引，并记录编译时的规格JSON：商品规格被修改后内容不再一致，
+ * 下次访问时自动重新编译，无需显式失效。
+ */
+@Component
+public class ProductSpecIndexCache {
+
+    private final Map<Long, ProductSpecIndex> indexes = new ConcurrentHashMap<>();
+
+    private final int maxProducts;
+
+    public ProductSpecIndexCache(@Value("${cache.product-spec.max-products:50000}") int maxProducts) {
+        this.maxProducts = maxProducts;
+    }
+
+    /**
+     * 获取商品的规格索引
+     *
+     * @param product 商品信息
+     * @return 规格索引
+     */
+    public ProductSpecIndex get(Product product) {
+        ProductSpecIndex index = indexes.get(product.getId());
+        if (index != null && index.isCompiledFrom(product.getSpecifications())) {
+            return index;
+        }
+
+        index = ProductSpecIndex.compile(product.getSpecifications());
+        if (indexes.size() >= maxProducts) {
+            indexes.clear();
+        }
+        indexes.put(product.getId(), index);
+        return index;
+    }
+}
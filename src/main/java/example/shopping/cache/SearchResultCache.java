@@ -0,0 +1,163 @@
+package example.shopping.cache;
+
+import example.shopping.exception.BusinessException;
+import example.shopping.utils.TransactionUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * 商品搜索结果缓存
+ * <p>
+ * 以规范化后的关键字为键缓存命中的商品ID列表（不缓存商品本身），短时间内过期。
+ * 同一关键字并发的多个请求只执行一次查询，其余请求等待同一结果；
+ * 商品新增、修改和删除提交后清空全部结果，查询中途遇到变更的结果不会被后续请求复用。
+ */
+@Component
+public class SearchResultCache {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private final AtomicLong generation = new AtomicLong();
+
+    private final boolean enabled;
+
+    private final long ttlMillis;
+
+    private final int maxEntries;
+
+    public SearchResultCache(@Value("${cache.search.enabled:true}") boolean enabled,
+                             @Value("${cache.search.ttl-seconds:30}") long ttlSeconds,
+                             @Value("${cache.search.max-entries:1000}") int maxEntries) {
+        this.enabled = enabled;
+        this.ttlMillis = TimeUnit.SECONDS.toMillis(ttlSeconds);
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * 规范化搜索关键字：去掉首尾空白，连续空白合并为一个空格，转为小写
+     *
+     * @param keyword 原始关键字
+     * @return 规范化后的关键字
+     */
+    public static String normalize(String keyword) {
+        return WHITESPACE.matcher(keyword.trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 获取关键字命中的商品ID，未缓存或已过期时通过 loader 查询
+     *
+     * @param keyword 规范化后的关键字
+     * @param loader  查询商品ID的加载函数
+     * @return 商品ID列表（不可修改）
+     */
+    public List<Long> get(String keyword, Supplier<List<Long>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        while (true) {
+            long current = generation.get();
+            Entry existing = entries.get(keyword);
+            if (existing != null && !existing.isStale(System.currentTimeMillis(), current)) {
+                return await(existing);
+            }
+            Entry created = new Entry(current);
+            boolean claimed = existing == null
+                    ? entries.putIfAbsent(keyword, created) == null
+                    : entries.replace(keyword, existing, created);
+            if (claimed) {
+                if (entries.size() > maxEntries) {
+                    evict(System.currentTimeMillis(), current);
+                }
+                return load(keyword, created, loader);
+            }
+        }
+    }
+
+    /**
+     * 在当前事务提交后清空所有搜索结果
+     */
+    public void invalidateAll() {
+        if (!enabled) {
+            return;
+        }
+        TransactionUtils.afterCommit(() -> {
+            generation.incrementAndGet();
+            entries.clear();
+        });
+    }
+
+    private List<Long> load(String keyword, Entry entry, Supplier<List<Long>> loader) {
+        List<Long> ids;
+        try {
+            ids = Collections.unmodifiableList(new ArrayList<>(loader.get()));
+        } catch (RuntimeException e) {
+            entries.remove(keyword, entry);
+            entry.future.completeExceptionally(e);
+            throw e;
+        }
+        entry.expireAt = System.currentTimeMillis() + ttlMillis;
+        entry.future.complete(ids);
+        return ids;
+    }
+
+    /**
+     * 等待首个请求的查询结果
+     */
+    private List<Long> await(Entry entry) {
+        try {
+            return entry.future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new BusinessException("搜索失败，请重试", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException("搜索失败，请重试", e);
+        }
+    }
+
+    private void evict(long now, long current) {
+        entries.values().removeIf(entry -> entry.isStale(now, current));
+        Iterator<Entry> it = entries.values().iterator();
+        while (entries.size() > maxEntries && it.hasNext()) {
+            if (it.next().future.isDone()) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * 缓存条目
+     */
+    private static class Entry {
+
+        private final CompletableFuture<List<Long>> future = new CompletableFuture<>();
+
+        private final long generation;
+
+        private volatile long expireAt = Long.MAX_VALUE;
+
+        private Entry(long generation) {
+            this.generation = generation;
+        }
+
+        /**
+         * 商品变更前开始的查询，或已完成且过期的结果，都不再复用
+         */
+        private boolean isStale(long now, long current) {
+            return generation != current || (future.isDone() && expireAt < now);
+        }
+    }
+}
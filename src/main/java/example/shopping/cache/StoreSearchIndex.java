@@ -0,0 +1,258 @@
+package example.shopping.cache;
+
+import example.shopping.entity.Store;
+import example.shopping.mapper.StoreMapper;
+import example.shopping.utils.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 店铺搜索索引
+ * <p>
+ * 只收录营业中（status=1）的店铺，把规范化后的名称和描述拆成单字和相邻两字，建立到店铺ID的倒排表。
+ * 查询时对关键字的每个两字片段求交集得到候选店铺，再逐个确认包含完整关键字，结果与 LIKE 一致；
+ * 名称完全相同的排在最前，其次是名称以关键字开头、名称包含关键字、仅描述包含关键字，同档按名称长度和ID排序。
+ */
+@Slf4j
+@Component
+public class StoreSearchIndex {
+
+    @Autowired
+    private StoreMapper storeMapper;
+
+    private final Map<Long, Doc> docs = new HashMap<>();
+
+    private final Map<String, Set<Long>> postings = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * 搜索店铺
+     *
+     * @param keyword 关键字
+     * @param offset  偏移量
+     * @param limit   数量限制
+     * @return 本页店铺ID和命中总数
+     */
+    public Page search(String keyword, int offset, int limit) {
+        String key = SearchResultCache.normalize(keyword);
+        List<Doc> hits = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (Long id : candidates(key)) {
+                Doc doc = docs.get(id);
+                if (doc.name.contains(key) || doc.description.contains(key)) {
+                    hits.add(doc);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        hits.sort(Comparator.comparingInt((Doc doc) -> doc.rank(key))
+                .thenComparingInt(doc -> doc.name.length())
+                .thenComparingLong(doc -> doc.id));
+        List<Long> ids = new ArrayList<>();
+        for (int i = offset; i < hits.size() && i < offset + limit; i++) {
+            ids.add(hits.get(i).id);
+        }
+        return new Page(ids, hits.size());
+    }
+
+    /**
+     * 在当前事务提交后更新店铺，不是营业中的店铺从索引中移除
+     *
+     * @param store 店铺信息
+     */
+    public void put(Store store) {
+        Long id = store.getId();
+        Doc doc = Integer.valueOf(1).equals(store.getStatus()) ? Doc.of(store) : null;
+        TransactionUtils.afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                unindex(id);
+                if (doc != null) {
+                    index(doc);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * 在当前事务提交后移除店铺
+     *
+     * @param storeId 店铺ID
+     */
+    public void remove(Long storeId) {
+        TransactionUtils.afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                unindex(storeId);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * 从数据库加载所有营业中的店铺
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        List<Store> stores = storeMapper.findByStatus(1);
+        lock.writeLock().lock();
+        try {
+            docs.clear();
+            postings.clear();
+            for (Store store : stores) {
+                index(Doc.of(store));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("店铺搜索索引已构建，店铺 {} 个", stores.size());
+    }
+
+    /**
+     * 关键字所有片段倒排表的交集，关键字只有一个字时取单字的倒排表
+     */
+    private Collection<Long> candidates(String key) {
+        if (key.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (key.length() == 1) {
+            return postings.getOrDefault(key, Collections.emptySet());
+        }
+        List<Set<Long>> lists = new ArrayList<>();
+        for (String gram : bigrams(key)) {
+            Set<Long> list = postings.get(gram);
+            if (list == null) {
+                return Collections.emptyList();
+            }
+            lists.add(list);
+        }
+        lists.sort(Comparator.comparingInt(Set::size));
+        List<Long> result = new ArrayList<>();
+        for (Long id : lists.get(0)) {
+            boolean all = true;
+            for (int i = 1; i < lists.size() && all; i++) {
+                all = lists.get(i).contains(id);
+            }
+            if (all) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    private void index(Doc doc) {
+        docs.put(doc.id, doc);
+        for (String gram : grams(doc)) {
+            postings.computeIfAbsent(gram, g -> new HashSet<>()).add(doc.id);
+        }
+    }
+
+    private void unindex(Long id) {
+        Doc doc = docs.remove(id);
+        if (doc == null) {
+            return;
+        }
+        for (String gram : grams(doc)) {
+            Set<Long> list = postings.get(gram);
+            if (list != null && list.remove(id) && list.isEmpty()) {
+                postings.remove(gram);
+            }
+        }
+    }
+
+    private static Set<String> grams(Doc doc) {
+        Set<String> grams = new HashSet<>();
+        for (String text : new String[]{doc.name, doc.description}) {
+            for (int i = 0; i < text.length(); i++) {
+                grams.add(text.substring(i, i + 1));
+            }
+            grams.addAll(bigrams(text));
+        }
+        return grams;
+    }
+
+    private static Set<String> bigrams(String text) {
+        Set<String> grams = new LinkedHashSet<>();
+        for (int i = 0; i + 2 <= text.length(); i++) {
+            grams.add(text.substring(i, i + 2));
+        }
+        return grams;
+    }
+
+    /**
+     * 查询结果
+     */
+    public static class Page {
+
+        private final List<Long> ids;
+
+        private final int total;
+
+        private Page(List<Long> ids, int total) {
+            this.ids = ids;
+            this.total = total;
+        }
+
+        /**
+         * 本页店铺ID，按相关度排序
+         */
+        public List<Long> getIds() {
+            return ids;
+        }
+
+        /**
+         * 命中的店铺总数
+         */
+        public int getTotal() {
+            return total;
+        }
+    }
+
+    /**
+     * 店铺的规范化名称和描述
+     */
+    private static final class Doc {
+
+        private final Long id;
+
+        private final String name;
+
+        private final String description;
+
+        private Doc(Long id, String name, String description) {
+            this.id = id;
+            this.name = name;
+            this.description = description;
+        }
+
+        private static Doc of(Store store) {
+            return new Doc(store.getId(),
+                    store.getName() == null ? "" : SearchResultCache.normalize(store.getName()),
+                    store.getDescription() == null ? "" : SearchResultCache.normalize(store.getDescription()));
+        }
+
+        private int rank(String key) {
+            if (name.equals(key)) {
+                return 0;
+            }
+            if (name.startsWith(key)) {
+                return 1;
+            }
+            return name.contains(key) ? 2 : 3;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package example.shopping.cache;
+
+import example.shopping.entity.Product;
+import example.shopping.entity.Store;
+import example.shopping.mapper.ProductMapper;
+import example.shopping.mapper.SearchHistoryMapper;
+import example.shopping.mapper.StoreMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 搜索联想索引
+ * <p>
+ * 由在售商品名称（按销量加权）、营业中的店铺名称（按店内在售商品总销量加权）
+ * 和搜索历史中的热门关键字（按搜索次数加权）构建 {@link SuggestTrie}，
+ * 启动后在后台线程构建并定期重建，重建期间继续使用旧的前缀树。
+ */
+@Slf4j
+@Component
+public class SuggestIndex {
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    @Autowired
+    private StoreMapper storeMapper;
+
+    @Autowired
+    private SearchHistoryMapper searchHistoryMapper;
+
+    private final int topK;
+
+    private final long refreshIntervalMinutes;
+
+    private final int hotKeywords;
+
+    private volatile SuggestTrie trie;
+
+    private ScheduledExecutorService rebuilder;
+
+    public SuggestIndex(@Value("${cache.suggest.top-k:10}") int topK,
+                        @Value("${cache.suggest.refresh-interval-minutes:10}") long refreshIntervalMinutes,
+                        @Value("${cache.suggest.hot-keywords:1000}") int hotKeywords) {
+        this.topK = topK;
+        this.refreshIntervalMinutes = refreshIntervalMinutes;
+        this.hotKeywords = hotKeywords;
+        this.trie = SuggestTrie.build(Collections.emptyMap(), topK);
+    }
+
+    /**
+     * 查询前缀对应的联想词
+     *
+     * @param prefix 输入前缀，支持拼音首字母
+     * @param limit  数量限制，超过 top-k 时按 top-k 返回
+     * @return 按权重从高到低排列的联想词
+     */
+    public List<String> suggest(String prefix, int limit) {
+        return trie.suggest(prefix, Math.min(limit, topK));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        rebuilder = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "suggest-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        });
+        rebuilder.scheduleWithFixedDelay(() -> {
+            try {
+                rebuild();
+            } catch (RuntimeException e) {
+                log.error("搜索联想索引构建失败，将在下次重试", e);
+            }
+        }, 0, refreshIntervalMinutes, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (rebuilder != null) {
+            rebuilder.shutdownNow();
+        }
+    }
+
+    /**
+     * 从数据库加载候选词并替换前缀树
+     */
+    public void rebuild() {
+        Map<String, Long> weights = new LinkedHashMap<>();
+        Map<Long, Long> storeSales = new HashMap<>();
+        for (Product product : productMapper.findSuggestFields()) {
+            long sales = product.getSales() == null ? 0 : product.getSales();
+            weights.merge(product.getName(), sales, Long::sum);
+            storeSales.merge(product.getStoreId(), sales, Long::sum);
+        }
+        for (Store store : storeMapper.findByStatus(1)) {
+            weights.merge(store.getName(), storeSales.getOrDefault(store.getId(), 0L), Long::sum);
+        }
+        for (Map<String, Object> row : searchHistoryMapper.findHotKeywords(hotKeywords)) {
+            weights.merge((String) row.get("keyword"), ((Number) row.get("count")).longValue(), Long::sum);
+        }
+
+        SuggestTrie rebuilt = SuggestTrie.build(weights, topK);
+        trie = rebuilt;
+        log.info("搜索联想索引已构建，候选词 {} 个", rebuilt.size());
+    }
+}
@@ -0,0 +1,194 @@
+package example.shopping.cache;
+
+import example.shopping.utils.PinyinUtils;
+
+import java.util.*;
+
+/**
+ * 搜索联想前缀树
+ * <p>
+ * 每个候选词以规范化后的文本和拼音首字母两种键插入，只有一个子节点的链路压缩为一条边。
+ * 候选词按权重从高到低编号，每个节点预先保存子树中编号最小（即权重最高）的前 K 个候选词，
+ * 查询只需沿前缀走到对应节点，不再遍历子树。构建后不可修改。
+ */
+public final class SuggestTrie {
+
+    /**
+     * 参与索引的最大键长度，更长的前缀不再联想
+     */
+    public static final int MAX_KEY_LENGTH = 32;
+
+    private static final int[] NO_TERMS = new int[0];
+
+    private final String[] texts;
+
+    private final Node root;
+
+    private SuggestTrie(String[] texts, Node root) {
+        this.texts = texts;
+        this.root = root;
+    }
+
+    /**
+     * 构建前缀树
+     *
+     * @param weights 候选词到权重的映射，规范化后相同的候选词权重合并，保留先出现的写法
+     * @param topK    每个节点保存的候选词数
+     * @return 前缀树
+     */
+    public static SuggestTrie build(Map<String, Long> weights, int topK) {
+        Map<String, String> texts = new HashMap<>();
+        Map<String, Long> merged = new HashMap<>();
+        for (Map.Entry<String, Long> entry : weights.entrySet()) {
+            String key = SearchResultCache.normalize(entry.getKey());
+            if (key.isEmpty()) {
+                continue;
+            }
+            texts.putIfAbsent(key, entry.getKey().trim());
+            merged.merge(key, entry.getValue(), Long::sum);
+        }
+
+        List<String> keys = new ArrayList<>(merged.keySet());
+        keys.sort(Comparator.comparing((String key) -> merged.get(key)).reversed().thenComparing(key -> key));
+
+        Builder root = new Builder();
+        String[] sorted = new String[keys.size()];
+        for (int i = 0; i < keys.size(); i++) {
+            String key = keys.get(i);
+            sorted[i] = texts.get(key);
+            root.insert(key, i);
+            String initials = PinyinUtils.initials(key);
+            if (initials != null && !initials.equals(key)) {
+                root.insert(initials, i);
+            }
+        }
+        return new SuggestTrie(sorted, root.freeze("", false, topK));
+    }
+
+    /**
+     * 查询前缀对应的候选词
+     *
+     * @param prefix 输入前缀
+     * @param limit  数量限制，不超过构建时的 K
+     * @return 按权重从高到低排列的候选词
+     */
+    public List<String> suggest(String prefix, int limit) {
+        String key = SearchResultCache.normalize(prefix);
+        if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+            return Collections.emptyList();
+        }
+        Node node = root;
+        int pos = 0;
+        while (pos < key.length()) {
+            int i = Arrays.binarySearch(node.keys, key.charAt(pos));
+            if (i < 0) {
+                return Collections.emptyList();
+            }
+            node = node.children[i];
+            int n = Math.min(node.label.length(), key.length() - pos);
+            if (!key.regionMatches(pos, node.label, 0, n)) {
+                return Collections.emptyList();
+            }
+            pos += n;
+        }
+        int size = Math.min(limit, node.top.length);
+        List<String> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(texts[node.top[i]]);
+        }
+        return result;
+    }
+
+    /**
+     * 候选词总数
+     */
+    public int size() {
+        return texts.length;
+    }
+
+    /**
+     * 构建后的节点，label 为从父节点到本节点的边
+     */
+    private static final class Node {
+
+        private final String label;
+
+        private final char[] keys;
+
+        private final Node[] children;
+
+        private final int[] top;
+
+        private Node(String label, char[] keys, Node[] children, int[] top) {
+            this.label = label;
+            this.keys = keys;
+            this.children = children;
+            this.top = top;
+        }
+    }
+
+    /**
+     * 构建中的节点
+     */
+    private static final class Builder {
+
+        private final TreeMap<Character, Builder> children = new TreeMap<>();
+
+        private int[] terms = NO_TERMS;
+
+        private void insert(String key, int term) {
+            Builder node = this;
+            int length = Math.min(key.length(), MAX_KEY_LENGTH);
+            for (int i = 0; i < length; i++) {
+                node = node.children.computeIfAbsent(key.charAt(i), c -> new Builder());
+            }
+            node.terms = Arrays.copyOf(node.terms, node.terms.length + 1);
+            node.terms[node.terms.length - 1] = term;
+        }
+
+        private Node freeze(String label, boolean compress, int topK) {
+            Builder node = this;
+            StringBuilder edge = new StringBuilder(label);
+            while (compress && node.terms.length == 0 && node.children.size() == 1) {
+                Map.Entry<Character, Builder> only = node.children.firstEntry();
+                edge.append(only.getKey());
+                node = only.getValue();
+            }
+
+            char[] keys = new char[node.children.size()];
+            Node[] children = new Node[keys.length];
+            int i = 0;
+            for (Map.Entry<Character, Builder> child : node.children.entrySet()) {
+                keys[i] = child.getKey();
+                children[i] = child.getValue().freeze(String.valueOf(child.getKey()), true, topK);
+                i++;
+            }
+            return new Node(edge.toString(), keys, children, top(node.terms, children, topK));
+        }
+
+        /**
+         * 合并本节点和子节点的候选词，编号越小权重越高，去重后取前 K 个
+         */
+        private static int[] top(int[] terms, Node[] children, int topK) {
+            int total = terms.length;
+            for (Node child : children) {
+                total += child.top.length;
+            }
+            int[] candidates = Arrays.copyOf(terms, total);
+            int n = terms.length;
+            for (Node child : children) {
+                System.arraycopy(child.top, 0, candidates, n, child.top.length);
+                n += child.top.length;
+            }
+            Arrays.sort(candidates);
+            int[] top = new int[Math.min(topK, total)];
+            int size = 0;
+            for (int i = 0; i < total && size < top.length; i++) {
+                if (i == 0 || candidates[i] != candidates[i - 1]) {
+                    top[size++] = candidates[i];
+                }
+            }
+            return size == top.length ? top : Arrays.copyOf(top, size);
+        }
+    }
+}
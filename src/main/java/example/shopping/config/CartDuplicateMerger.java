@@ -0,0 +1,78 @@
+package example.shopping.config;
+
+import com.alibaba.fastjson.JSONException;
+import example.shopping.cache.ProductSpecIndex;
+import example.shopping.entity.Cart;
+import example.shopping.mapper.CartMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 启动时合并重复的购物车项
+ * <p>
+ * 早期按 spec_info 等值查找无法匹配无规格（NULL）的购物车项，留下了重复数据，
+ * 会导致 (user_id, product_id, spec_hash) 唯一键无法创建。合并后重启即可由建表逻辑补上唯一键。
+ * <p>
+ * 早期的 spec_info 按规格名的提交顺序编码，与现在按规格名排序的规格键不一致，相同规格再次加入时会新增一项。
+ * 合并后把旧编码改写为规格键，已存在相同规格键的购物车项时把数量合并过去；改写过的数据不再变化，重复启动只做查询。
+ */
+@Slf4j
+@Component
+public class CartDuplicateMerger implements ApplicationRunner {
+
+    private static final int BATCH_SIZE = 500;
+
+    @Autowired
+    private CartMapper cartMapper;
+
+    @Override
+    @Transactional
+    public void run(ApplicationArguments args) {
+        if (cartMapper.mergeDuplicateQuantities() > 0) {
+            log.info("已合并重复的购物车项 {} 条", cartMapper.deleteDuplicates());
+        }
+        int reencoded = reencodeSpecInfo();
+        if (reencoded > 0) {
+            log.info("已将 {} 条购物车项的规格信息改写为规格键", reencoded);
+        }
+    }
+
+    private int reencodeSpecInfo() {
+        int reencoded = 0;
+        long afterId = 0;
+        List<Cart> batch;
+        do {
+            batch = cartMapper.findWithSpecInfoAfter(afterId, BATCH_SIZE);
+            for (Cart cart : batch) {
+                afterId = cart.getId();
+                String specKey;
+                try {
+                    specKey = ProductSpecIndex.reencode(cart.getSpecInfo());
+                } catch (JSONException e) {
+                    log.warn("购物车项 {} 的规格信息无法解析，保持不变: {}", cart.getId(), cart.getSpecInfo());
+                    continue;
+                }
+                if (Objects.equals(specKey, cart.getSpecInfo())) {
+                    continue;
+                }
+                Cart existing = cartMapper.findByUserIdAndProductIdAndSpecInfo(
+                        cart.getUserId(), cart.getProductId(), specKey);
+                if (existing == null) {
+                    cartMapper.updateSpecInfo(cart.getId(), specKey);
+                } else {
+                    cartMapper.updateQuantity(existing.getId(), existing.getQuantity() + cart.getQuantity());
+                    cartMapper.deleteById(cart.getId());
+                }
+                reencoded++;
+            }
+        } while (batch.size() >= BATCH_SIZE);
+        return reencoded;
+    }
+}
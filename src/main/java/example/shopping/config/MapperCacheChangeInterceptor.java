@@ -0,0 +1,39 @@
+package example.shopping.config;
+
+import example.shopping.cache.InvalidationBus;
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+/**
+ * 带查询缓存的 Mapper 执行写操作后，通过 {@link InvalidationBus} 通知其他节点清空同一命名空间的缓存
+ */
+@Component
+@Intercepts(@Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class}))
+public class MapperCacheChangeInterceptor implements Interceptor {
+
+    /**
+     * 总线依赖的 Mapper 由 SqlSessionFactory 创建，而拦截器在 SqlSessionFactory 之前创建，延迟注入
+     */
+    @Lazy
+    @Autowired
+    private InvalidationBus invalidationBus;
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        Object result = invocation.proceed();
+        MappedStatement statement = (MappedStatement) invocation.getArgs()[0];
+        Cache cache = statement.getCache();
+        if (cache != null && statement.isFlushCacheRequired()) {
+            invalidationBus.publish(cache.getId(), null);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,260 @@
+package example.shopping.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 匿名GET请求的响应微缓存
+ * <p>
+ * 商品、分类和公告等允许匿名访问的GET接口对所有匿名用户返回相同内容，
+ * 按路径和查询参数缓存序列化后的响应体（同时保存gzip压缩版本）和强ETag，有效期很短。
+ * 同一键的并发未命中只执行一次控制器，其余请求等待其结果；客户端带 If-None-Match 时直接返回304。
+ * 携带身份令牌的请求不经过缓存，这些路径上的写请求成功后清空缓存。
+ * <p>
+ * 注册在 Spring Security 过滤器链之后，只会处理已通过鉴权的请求。
+ */
+@Slf4j
+@Component
+public class MicroCacheFilter extends OncePerRequestFilter {
+
+    /**
+     * 等待其他请求加载同一响应的最长时间，超时后自行执行
+     */
+    private static final long LOAD_WAIT_MILLIS = 5000;
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    private final boolean enabled;
+
+    private final long ttlMillis;
+
+    private final int maxEntries;
+
+    private final int maxBodyBytes;
+
+    private final String[] paths;
+
+    private final String tokenHeader;
+
+    private final ConcurrentMap<String, CompletableFuture<Entry>> loading = new ConcurrentHashMap<>();
+
+    private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > maxEntries;
+        }
+    };
+
+    public MicroCacheFilter(@Value("${cache.http.enabled:true}") boolean enabled,
+                            @Value("${cache.http.ttl-ms:2000}") long ttlMillis,
+                            @Value("${cache.http.max-entries:1000}") int maxEntries,
+                            @Value("${cache.http.max-body-bytes:1048576}") int maxBodyBytes,
+                            @Value("${cache.http.paths:/api/products/**,/api/categories/**,/api/announcements,/api/announcements/*}") String[] paths,
+                            @Value("${jwt.header:Authorization}") String tokenHeader) {
+        this.enabled = enabled;
+        this.ttlMillis = ttlMillis;
+        this.maxEntries = maxEntries;
+        this.maxBodyBytes = maxBodyBytes;
+        this.paths = paths;
+        this.tokenHeader = tokenHeader;
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!enabled) {
+            return true;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        for (String pattern : paths) {
+            if (pathMatcher.match(pattern, path)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String method = request.getMethod();
+        if (!"GET".equals(method)) {
+            chain.doFilter(request, response);
+            if (!"HEAD".equals(method) && !"OPTIONS".equals(method) && response.getStatus() < 400) {
+                clear();
+            }
+            return;
+        }
+        if (request.getHeader(tokenHeader) != null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        String key = request.getQueryString() == null ? request.getRequestURI()
+                : request.getRequestURI() + "?" + request.getQueryString();
+        Entry entry = get(key);
+        if (entry == null) {
+            CompletableFuture<Entry> future = new CompletableFuture<>();
+            CompletableFuture<Entry> existing = loading.putIfAbsent(key, future);
+            if (existing != null) {
+                entry = await(existing);
+                if (entry == null) {
+                    chain.doFilter(request, response);
+                    return;
+                }
+            } else {
+                try {
+                    entry = load(key, request, response, chain);
+                } finally {
+                    future.complete(entry);
+                    loading.remove(key, future);
+                }
+                if (entry == null) {
+                    return;
+                }
+            }
+        }
+        write(entry, request, response);
+    }
+
+    private Entry get(String key) {
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expireAt < System.currentTimeMillis()) {
+                entries.remove(key);
+                return null;
+            }
+            return entry;
+        }
+    }
+
+    private static Entry await(CompletableFuture<Entry> future) {
+        try {
+            return future.get(LOAD_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException | TimeoutException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 执行控制器并缓存响应，不可缓存时原样输出响应并返回null
+     */
+    private Entry load(String key, HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        chain.doFilter(request, wrapper);
+
+        byte[] body = wrapper.getContentAsByteArray();
+        if (wrapper.getStatus() != HttpServletResponse.SC_OK || request.isAsyncStarted()
+                || body.length == 0 || body.length > maxBodyBytes) {
+            wrapper.copyBodyToResponse();
+            return null;
+        }
+        Entry entry = new Entry(wrapper.getContentType(), body, gzip(body),
+                "\"" + DigestUtils.md5DigestAsHex(body) + "\"", System.currentTimeMillis() + ttlMillis);
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+        return entry;
+    }
+
+    private void write(Entry entry, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setHeader(HttpHeaders.ETAG, entry.etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING + ", " + tokenHeader);
+        if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), entry.etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        byte[] body = entry.body;
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            body = entry.gzipped;
+        }
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(entry.contentType);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    /**
+     * If-None-Match 的弱比较，忽略 W/ 前缀，支持多个ETag和 *
+     */
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bos)) {
+            gzip.write(body);
+        }
+        return bos.toByteArray();
+    }
+
+    /**
+     * 缓存的响应
+     */
+    private static final class Entry {
+
+        private final String contentType;
+
+        private final byte[] body;
+
+        private final byte[] gzipped;
+
+        private final String etag;
+
+        private final long expireAt;
+
+        private Entry(String contentType, byte[] body, byte[] gzipped, String etag, long expireAt) {
+            this.contentType = contentType;
+            this.body = body;
+            this.gzipped = gzipped;
+            this.etag = etag;
+            this.expireAt = expireAt;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package example.shopping.config;
+
+import example.shopping.mapper.OrderMapper;
+import example.shopping.mapper.StoreDailyStatMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * 启动时初始化店铺每日统计
+ * <p>
+ * 早期已退款的订单没有退款时间，先按最后更新时间补记，之后统计按退款时间计数。
+ * 统计表为空（首次部署）时从订单表汇总全部店铺，之后由订单状态流转增量维护；
+ * 已退款后又被改为其他状态的早期订单无法识别，不计入退款。
+ */
+@Slf4j
+@Component
+public class StoreDailyStatSeeder implements ApplicationRunner {
+
+    @Autowired
+    private OrderMapper orderMapper;
+
+    @Autowired
+    private StoreDailyStatMapper storeDailyStatMapper;
+
+    @Override
+    @Transactional
+    public void run(ApplicationArguments args) {
+        int backfilled = orderMapper.backfillRefundTime();
+        if (backfilled > 0) {
+            log.info("已为 {} 条已退款订单补记退款时间", backfilled);
+        }
+        if (storeDailyStatMapper.exists() == 0) {
+            log.info("已从订单表初始化店铺每日统计 {} 条", storeDailyStatMapper.rebuildAll());
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package example.shopping.controller;
 
+import example.shopping.cache.ExistenceFilters;
+import example.shopping.cache.MapperCache;
 import example.shopping.entity.Store;
 import example.shopping.entity.User;
 import example.shopping.service.CustomerServiceInterface;
@@ -31,6 +33,9 @@ public class AdminController {
     @Autowired
     private CustomerServiceInterface customerService;
 
+    @Autowired
+    private ExistenceFilters existenceFilters;
+
     /**
      * 获取所有用户列表
      *
@@ -151,4 +156,24 @@ public class AdminController {
     public Result<List<Map<String, Object>>> getServiceComplaints() {
         return Result.success(customerService.getComplaints());
     }
+
+    /**
+     * 获取 Mapper 查询缓存的统计信息
+     *
+     * @return 每个缓存的条目数、命中率和占用字节数
+     */
+    @GetMapping("/caches")
+    public Result<List<Map<String, Object>>> getCacheStats() {
+        return Result.success(MapperCache.stats());
+    }
+
+    /**
+     * 查看商品、店铺ID过滤器的统计信息
+     *
+     * @return 每个过滤器拦截的请求数和误判率
+     */
+    @GetMapping("/existence-filters")
+    public Result<List<Map<String, Object>>> getExistenceFilterStats() {
+        return Result.success(existenceFilters.stats());
+    }
 }
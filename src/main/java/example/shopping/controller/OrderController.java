@@ -1,11 +1,16 @@
 package example.shopping.controller;
 
+import example.shopping.dto.CheckoutDTO;
+import example.shopping.dto.OrderBatchDTO;
 import example.shopping.dto.OrderDTO;
+import example.shopping.dto.OrderQueryDTO;
 import example.shopping.entity.Order;
 import example.shopping.entity.Store;
 import example.shopping.entity.User;
+import example.shopping.service.IdempotencyService;
 import example.shopping.service.OrderService;
 import example.shopping.service.StoreService;
+import example.shopping.service.StoreStatsService;
 import example.shopping.service.UserService;
 import example.shopping.utils.Result;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,7 +21,6 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -37,17 +41,44 @@ public class OrderController {
     @Autowired
     private StoreService storeService;
 
+    @Autowired
+    private StoreStatsService storeStatsService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
     /**
      * 创建订单
      *
-     * @param orderDTO 订单信息
+     * @param idempotencyKey 幂等键，超时重试时携带相同的值可避免重复下单
+     * @param orderDTO       订单信息
      * @return 创建的订单
      */
     @PostMapping
-    public Result<Order> createOrder(@Valid @RequestBody OrderDTO orderDTO) {
-        Long userId = getCurrentUserId();
-        Order order = orderService.create(userId, orderDTO);
-        return Result.success(order, "创建订单成功");
+    public Result<Order> createOrder(@RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+                                     @Valid @RequestBody OrderDTO orderDTO) {
+        return idempotencyService.execute(idempotencyKey, "createOrder", orderDTO, Order.class, () -> {
+            Long userId = getCurrentUserId();
+            Order order = orderService.create(userId, orderDTO);
+            return Result.success(order, "创建订单成功");
+        });
+    }
+
+    /**
+     * 结算购物车中已选择的商品，按店铺拆分为多个订单
+     *
+     * @param idempotencyKey 幂等键，超时重试时携带相同的值可避免重复下单
+     * @param checkoutDTO    结算信息
+     * @return 结算编号、拆分出的订单及总金额
+     */
+    @PostMapping("/checkout")
+    public Result<Map<String, Object>> checkout(
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @Valid @RequestBody CheckoutDTO checkoutDTO) {
+        return idempotencyService.execute(idempotencyKey, "checkout", checkoutDTO, Map.class, () -> {
+            Long userId = getCurrentUserId();
+            return Result.success(orderService.checkout(userId, checkoutDTO), "结算成功");
+        });
     }
 
     /**
@@ -204,51 +235,139 @@ public class OrderController {
         return Result.success(orderService.findByStoreId(storeId));
     }
 
+    /**
+     * 按条件游标分页查询店铺订单
+     *
+     * @param storeId 店铺ID
+     * @param query   筛选条件（状态、下单时间范围、订单编号、买家、游标、每页大小）
+     * @return 订单列表、是否有下一页及下一页游标
+     */
+    @GetMapping("/store/{storeId}/page")
+    @PreAuthorize("hasRole('MERCHANT')")
+    public Result<Map<String, Object>> getStoreOrdersByPage(@PathVariable Long storeId, OrderQueryDTO query) {
+        String error = checkStoreOwner(storeId);
+        if (error != null) {
+            return Result.error(error);
+        }
+
+        return Result.success(orderService.findStoreOrders(storeId, query));
+    }
+
     /**
      * 获取店铺订单统计信息
      *
      * @param storeId 店铺ID
+     * @param days    每日趋势的天数
      * @return 订单统计信息
      */
     @GetMapping("/store/{storeId}/stats")
     @PreAuthorize("hasRole('MERCHANT')")
-    public Result<Map<String, Object>> getStoreOrderStats(@PathVariable Long storeId) {
-        // 获取当前商家用户
+    public Result<Map<String, Object>> getStoreOrderStats(@PathVariable Long storeId,
+                                                          @RequestParam(defaultValue = "30") int days) {
+        String error = checkStoreOwner(storeId);
+        if (error != null) {
+            return Result.error(error);
+        }
+
+        return Result.success(storeStatsService.getOrderStats(storeId, days));
+    }
+
+    /**
+     * 从订单数据重建店铺每日统计
+     *
+     * @param storeId 店铺ID
+     * @return 重建的天数
+     */
+    @PostMapping("/store/{storeId}/stats/rebuild")
+    @PreAuthorize("hasRole('MERCHANT')")
+    public Result<Integer> rebuildStoreOrderStats(@PathVariable Long storeId) {
+        String error = checkStoreOwner(storeId);
+        if (error != null) {
+            return Result.error(error);
+        }
+
+        return Result.success(storeStatsService.rebuild(storeId), "统计重建成功");
+    }
+
+    /**
+     * 批量发货
+     *
+     * @param storeId  店铺ID
+     * @param batchDTO 订单ID列表
+     * @return 每个订单的处理结果
+     */
+    @PostMapping("/store/{storeId}/batch/ship")
+    @PreAuthorize("hasRole('MERCHANT')")
+    public Result<Map<String, Object>> batchShip(@PathVariable Long storeId,
+                                                 @Valid @RequestBody OrderBatchDTO batchDTO) {
+        String error = checkStoreOwner(storeId);
+        if (error != null) {
+            return Result.error(error);
+        }
+
+        return Result.success(orderService.batchShip(storeId, batchDTO.getIds()), "批量发货完成");
+    }
+
+    /**
+     * 批量处理退款
+     *
+     * @param storeId  店铺ID
+     * @param batchDTO 订单ID列表及是否同意
+     * @return 每个订单的处理结果
+     */
+    @PostMapping("/store/{storeId}/batch/refund")
+    @PreAuthorize("hasRole('MERCHANT')")
+    public Result<Map<String, Object>> batchHandleRefund(@PathVariable Long storeId,
+                                                         @Valid @RequestBody OrderBatchDTO batchDTO) {
+        String error = checkStoreOwner(storeId);
+        if (error != null) {
+            return Result.error(error);
+        }
+        if (batchDTO.getAgree() == null) {
+            return Result.error("请选择是否同意退款");
+        }
+
+        return Result.success(orderService.batchHandleRefund(storeId, batchDTO.getIds(), batchDTO.getAgree()),
+                "批量处理退款完成");
+    }
+
+    /**
+     * 批量修改订单状态
+     *
+     * @param batchDTO 订单ID列表及目标状态
+     * @return 每个订单的处理结果
+     */
+    @PutMapping("/batch/status")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<Map<String, Object>> batchUpdateStatus(@Valid @RequestBody OrderBatchDTO batchDTO) {
+        return Result.success(orderService.batchUpdateStatus(batchDTO.getIds(), batchDTO.getStatus()),
+                "批量修改状态完成");
+    }
+
+    /**
+     * 验证当前商家是否为店铺所有者
+     *
+     * @param storeId 店铺ID
+     * @return 校验失败的提示信息，通过时返回null
+     */
+    private String checkStoreOwner(Long storeId) {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         UserDetails userDetails = (UserDetails) authentication.getPrincipal();
         String username = userDetails.getUsername();
 
         User user = userService.findByUsername(username);
         if (user == null) {
-            return Result.error("用户不存在");
+            return "用户不存在";
         }
 
-        // 验证店铺所有权
         Store store = storeService.findById(storeId);
         if (store == null) {
-            return Result.error("店铺不存在");
+            return "店铺不存在";
         }
         if (!store.getUserId().equals(user.getId())) {
-            return Result.error("无权查看此店铺的订单统计");
+            return "无权操作此店铺的订单";
         }
-
-        // 获取店铺订单列表
-        List<Order> orders = orderService.findByStoreId(storeId);
-
-        // 统计各状态订单数量
-        Map<String, Object> stats = new HashMap<>();
-        stats.put("total", orders.size());
-        stats.put("pendingPayment", orders.stream().filter(o -> o.getStatus() == 0).count());
-        stats.put("pendingShipment", orders.stream().filter(o -> o.getStatus() == 1).count());
-        stats.put("shipped", orders.stream().filter(o -> o.getStatus() == 2).count());
-        // 已完成订单包括状态为3（已完成）和状态为8（已评价）的订单
-        stats.put("completed", orders.stream().filter(o -> o.getStatus() == 3 || o.getStatus() == 8).count());
-        stats.put("cancelled", orders.stream().filter(o -> o.getStatus() == 4).count());
-        stats.put("refunded", orders.stream().filter(o -> o.getStatus() == 5).count());
-        // 添加退款申请中的订单统计
-        stats.put("refundPending", orders.stream().filter(o -> o.getStatus() == 6).count());
-
-        return Result.success(stats);
+        return null;
     }
 
     /**
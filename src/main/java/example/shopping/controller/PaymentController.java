@@ -1,11 +1,13 @@
 package example.shopping.controller;
 
+import example.shopping.service.IdempotencyService;
 import example.shopping.service.PaymentService;
 import example.shopping.utils.Result;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.HashMap;
 import java.util.Map;
 
 /**
@@ -19,19 +21,29 @@ public class PaymentController {
     @Autowired
     private PaymentService paymentService;
 
+    @Autowired
+    private IdempotencyService idempotencyService;
+
     /**
      * 支付订单
      *
-     * @param orderId     订单ID
-     * @param paymentType 支付方式
+     * @param idempotencyKey 幂等键，超时重试时携带相同的值可避免重复支付
+     * @param orderId        订单ID
+     * @param paymentType    支付方式
      * @return 支付结果
      */
     @PostMapping("/pay")
     public Result<Map<String, Object>> pay(
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             @RequestParam Long orderId,
             @RequestParam String paymentType) {
-        Map<String, Object> result = paymentService.pay(orderId, paymentType);
-        return Result.success(result, "支付成功");
+        Map<String, Object> request = new HashMap<>();
+        request.put("orderId", orderId);
+        request.put("paymentType", paymentType);
+        return idempotencyService.execute(idempotencyKey, "pay", request, Map.class, () -> {
+            Map<String, Object> result = paymentService.pay(orderId, paymentType);
+            return Result.success(result, "支付成功");
+        });
     }
 
     /**
@@ -1,10 +1,16 @@
 package example.shopping.controller;
 
+import example.shopping.dto.ProductQueryDTO;
+import example.shopping.dto.ProductSummaryDTO;
 import example.shopping.entity.Product;
+import example.shopping.service.ProductDetailService;
 import example.shopping.service.ProductService;
 import example.shopping.utils.Result;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
@@ -21,13 +27,16 @@ public class ProductController {
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private ProductDetailService productDetailService;
+
     /**
      * 获取所有商品
      *
      * @return 商品列表
      */
     @GetMapping
-    public Result<List<Product>> getAllProducts() {
+    public Result<List<ProductSummaryDTO>> getAllProducts() {
         return Result.success(productService.findAll());
     }
 
@@ -45,6 +54,17 @@ public class ProductController {
         return Result.success(productService.findByPage(pageNum, pageSize));
     }
 
+    /**
+     * 按条件筛选、排序并分页获取商品
+     *
+     * @param query 查询条件（分类、店铺、价格区间、状态、排序字段和方向、页码、每页大小）
+     * @return 包含分页信息和命中总数的商品列表
+     */
+    @GetMapping("/list")
+    public Result<Map<String, Object>> queryProducts(ProductQueryDTO query) {
+        return Result.success(productService.query(query));
+    }
+
     /**
      * 根据ID获取商品
      *
@@ -56,6 +76,33 @@ public class ProductController {
         return Result.success(productService.findById(id));
     }
 
+    /**
+     * 获取商品详情页数据，一次返回商品、店铺、评论、评论统计、收藏数和当前用户是否已收藏
+     *
+     * @param id 商品ID
+     * @return 商品详情，超时未返回的部分为null并列在 missing 中
+     */
+    @GetMapping("/{id}/detail")
+    public Result<Map<String, Object>> getProductDetail(@PathVariable Long id) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String username = null;
+        if (authentication != null && authentication.getPrincipal() instanceof UserDetails) {
+            username = ((UserDetails) authentication.getPrincipal()).getUsername();
+        }
+        return Result.success(productDetailService.getDetail(id, username));
+    }
+
+    /**
+     * 获取商品规格选项
+     *
+     * @param id 商品ID
+     * @return 规格名到可选值的映射
+     */
+    @GetMapping("/{id}/specifications")
+    public Result<Map<String, List<String>>> getProductSpecifications(@PathVariable Long id) {
+        return Result.success(productService.getSpecifications(id));
+    }
+
     /**
      * 根据店铺ID获取商品
      *
@@ -63,7 +110,7 @@ public class ProductController {
      * @return 商品列表
      */
     @GetMapping("/store/{storeId}")
-    public Result<List<Product>> getProductsByStoreId(@PathVariable Long storeId) {
+    public Result<List<ProductSummaryDTO>> getProductsByStoreId(@PathVariable Long storeId) {
         return Result.success(productService.findByStoreId(storeId));
     }
 
@@ -74,7 +121,7 @@ public class ProductController {
      * @return 商品列表
      */
     @GetMapping("/category/{categoryId}")
-    public Result<List<Product>> getProductsByCategoryId(@PathVariable Long categoryId) {
+    public Result<List<ProductSummaryDTO>> getProductsByCategoryId(@PathVariable Long categoryId) {
         return Result.success(productService.findByCategoryId(categoryId));
     }
 
@@ -82,35 +129,67 @@ public class ProductController {
      * 搜索商品
      *
      * @param keyword 关键字
-     * @return 商品列表
+     * @return 商品列表、命中总数和分面统计
      */
     @GetMapping("/search")
-    public Result<List<Product>> searchProducts(@RequestParam String keyword) {
+    public Result<Map<String, Object>> searchProducts(@RequestParam String keyword) {
         return Result.success(productService.search(keyword));
     }
 
+    /**
+     * 获取搜索联想词
+     *
+     * @param prefix 输入前缀，支持拼音首字母
+     * @param limit  数量限制
+     * @return 联想词列表
+     */
+    @GetMapping("/suggest")
+    public Result<List<String>> suggest(
+            @RequestParam(required = false) String prefix,
+            @RequestParam(defaultValue = "10") int limit) {
+        return Result.success(productService.suggest(prefix, limit));
+    }
+
     /**
      * 获取热门商品
      *
-     * @param limit 数量限制
+     * @param categoryId 分类ID，不传时为全站
+     * @param limit      数量限制
      * @return 热门商品列表
      */
     @GetMapping("/hot")
-    public Result<List<Product>> getHotProducts(
+    public Result<List<ProductSummaryDTO>> getHotProducts(
+            @RequestParam(required = false) Long categoryId,
             @RequestParam(defaultValue = "10") int limit) {
-        return Result.success(productService.findHotProducts(limit));
+        return Result.success(productService.findHotProducts(categoryId, limit));
     }
 
     /**
      * 获取新品
      *
-     * @param limit 数量限制
+     * @param categoryId 分类ID，不传时为全站
+     * @param limit      数量限制
      * @return 新品列表
      */
     @GetMapping("/new")
-    public Result<List<Product>> getNewProducts(
+    public Result<List<ProductSummaryDTO>> getNewProducts(
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(defaultValue = "10") int limit) {
+        return Result.success(productService.findNewProducts(categoryId, limit));
+    }
+
+    /**
+     * 获取近期热销商品
+     *
+     * @param categoryId 分类ID，不传时为全站
+     * @param limit      数量限制
+     * @return 近期热销商品列表
+     */
+    @GetMapping("/trending")
+    public Result<List<ProductSummaryDTO>> getTrendingProducts(
+            @RequestParam(required = false) Long categoryId,
             @RequestParam(defaultValue = "10") int limit) {
-        return Result.success(productService.findNewProducts(limit));
+        return Result.success(productService.findTrendingProducts(categoryId, limit));
     }
 
     /**
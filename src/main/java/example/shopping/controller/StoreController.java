@@ -68,12 +68,17 @@ public class StoreController {
     /**
      * 搜索店铺
      *
-     * @param keyword 关键字
-     * @return 店铺列表
+     * @param keyword  关键字
+     * @param pageNum  页码
+     * @param pageSize 每页大小
+     * @return 包含分页信息和命中总数的店铺列表
      */
     @GetMapping("/search")
-    public Result<List<Store>> searchStores(@RequestParam String keyword) {
-        return Result.success(storeService.search(keyword));
+    public Result<Map<String, Object>> searchStores(
+            @RequestParam String keyword,
+            @RequestParam(defaultValue = "1") int pageNum,
+            @RequestParam(defaultValue = "10") int pageSize) {
+        return Result.success(storeService.search(keyword, pageNum, pageSize));
     }
 
     /**
@@ -0,0 +1,30 @@
+package example.shopping.dto;
+
+import lombok.Data;
+
+import javax.validation.constraints.NotNull;
+import java.util.Map;
+
+/**
+ * 购物车结算数据传输对象
+ */
+@Data
+public class CheckoutDTO {
+
+    /**
+     * 收货地址ID
+     */
+    @NotNull(message = "收货地址不能为空")
+    private Long addressId;
+
+    /**
+     * 支付方式
+     */
+    @NotNull(message = "支付方式不能为空")
+    private String paymentType;
+
+    /**
+     * 各店铺的订单备注，键为店铺ID
+     */
+    private Map<Long, String> remarks;
+}
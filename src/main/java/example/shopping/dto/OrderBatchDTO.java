@@ -0,0 +1,29 @@
+package example.shopping.dto;
+
+import lombok.Data;
+
+import javax.validation.constraints.NotEmpty;
+import java.util.List;
+
+/**
+ * 订单批量操作参数
+ */
+@Data
+public class OrderBatchDTO {
+
+    /**
+     * 订单ID列表
+     */
+    @NotEmpty(message = "订单ID不能为空")
+    private List<Long> ids;
+
+    /**
+     * 是否同意退款，批量处理退款时使用
+     */
+    private Boolean agree;
+
+    /**
+     * 目标状态，批量修改状态时使用
+     */
+    private Integer status;
+}
@@ -0,0 +1,55 @@
+package example.shopping.dto;
+
+import lombok.Data;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.util.Date;
+
+/**
+ * 商家订单查询条件
+ */
+@Data
+public class OrderQueryDTO {
+
+    /**
+     * 订单状态
+     */
+    private Integer status;
+
+    /**
+     * 下单开始时间（含）
+     */
+    @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private Date startTime;
+
+    /**
+     * 下单结束时间（不含）
+     */
+    @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private Date endTime;
+
+    /**
+     * 订单编号
+     */
+    private String orderNo;
+
+    /**
+     * 买家用户ID
+     */
+    private Long buyerId;
+
+    /**
+     * 翻页游标，取上一页返回的 nextCursor，首页为空
+     */
+    private String cursor;
+
+    /**
+     * 每页大小
+     */
+    private Integer pageSize;
+
+    /**
+     * 是否返回完整订单（含订单项、收货地址和备注），默认只返回摘要
+     */
+    private Boolean detail;
+}
@@ -0,0 +1,33 @@
+package example.shopping.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+/**
+ * 订单摘要，列表场景使用，不含订单项、收货地址和备注等大字段
+ */
+@Data
+public class OrderSummaryDTO {
+
+    private Long id;
+
+    private String orderNo;
+
+    private Long userId;
+
+    private Long storeId;
+
+    private BigDecimal totalAmount;
+
+    private String paymentType;
+
+    private Date paymentTime;
+
+    private Date shippingTime;
+
+    private Integer status;
+
+    private Date createTime;
+}
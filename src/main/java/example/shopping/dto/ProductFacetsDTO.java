@@ -0,0 +1,33 @@
+package example.shopping.dto;
+
+import lombok.Data;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 商品搜索结果的分面统计，只包含命中数大于0的项
+ */
+@Data
+public class ProductFacetsDTO {
+
+    /**
+     * 分类ID到命中数
+     */
+    private Map<Long, Integer> categories = new LinkedHashMap<>();
+
+    /**
+     * 店铺ID到命中数
+     */
+    private Map<Long, Integer> stores = new LinkedHashMap<>();
+
+    /**
+     * 价格区间（如"50-100"，含下限不含上限）到命中数
+     */
+    private Map<String, Integer> prices = new LinkedHashMap<>();
+
+    /**
+     * 评分区间（如"4-4.5"，含下限不含上限）到命中数
+     */
+    private Map<String, Integer> ratings = new LinkedHashMap<>();
+}
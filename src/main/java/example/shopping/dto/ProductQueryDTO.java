@@ -0,0 +1,57 @@
+package example.shopping.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * 商品列表查询条件
+ */
+@Data
+public class ProductQueryDTO {
+
+    /**
+     * 分类ID
+     */
+    private Long categoryId;
+
+    /**
+     * 店铺ID
+     */
+    private Long storeId;
+
+    /**
+     * 最低价格（含）
+     */
+    private BigDecimal minPrice;
+
+    /**
+     * 最高价格（含）
+     */
+    private BigDecimal maxPrice;
+
+    /**
+     * 商品状态(0-下架, 1-上架)，默认只查询上架商品
+     */
+    private Integer status;
+
+    /**
+     * 排序字段：price、sales、rating、new，默认按商品ID
+     */
+    private String sort;
+
+    /**
+     * 是否升序，价格默认升序，其余默认降序
+     */
+    private Boolean asc;
+
+    /**
+     * 页码
+     */
+    private Integer pageNum;
+
+    /**
+     * 每页大小
+     */
+    private Integer pageSize;
+}
@@ -0,0 +1,32 @@
+package example.shopping.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * 商品摘要，列表和搜索场景使用，不含详情、规格和完整图片列表等大字段
+ */
+@Data
+public class ProductSummaryDTO {
+
+    private Long id;
+
+    private String name;
+
+    private BigDecimal price;
+
+    /**
+     * 首张图片URL
+     */
+    private String image;
+
+    private Integer sales;
+
+    private Double rating;
+
+    /**
+     * 是否有库存
+     */
+    private Boolean inStock;
+}
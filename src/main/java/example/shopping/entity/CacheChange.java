@@ -0,0 +1,39 @@
+package example.shopping.entity;
+
+import lombok.Data;
+
+import javax.persistence.*;
+import java.util.Date;
+
+/**
+ * 缓存变更记录实体类
+ * <p>
+ * 多实例部署时各节点写入实体变更，其他节点按自增ID轮询并失效本地缓存，ID即变更版本号
+ */
+@Data
+@Entity
+@Table(name = "cache_changes", indexes = {
+        @Index(name = "idx_cache_changes_create_time", columnList = "createTime")
+})
+public class CacheChange {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 100)
+    private String entity;       // 实体类型，如 product、store 或 Mapper 命名空间
+
+    private Long entityId;       // 实体ID，为空表示该类型全部失效
+
+    @Column(nullable = false, length = 64)
+    private String nodeId;       // 写入变更的节点
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(nullable = false)
+    private Date createTime;
+
+    @PrePersist
+    protected void onCreate() {
+        createTime = new Date();
+    }
+}
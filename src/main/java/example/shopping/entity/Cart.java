@@ -10,7 +10,9 @@ import java.util.Date;
  */
 @Data
 @Entity
-@Table(name = "carts")
+@Table(name = "carts", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_carts_user_product_spec", columnNames = {"userId", "productId", "specHash"})
+})
 public class Cart {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -23,7 +25,11 @@ public class Cart {
     private Long productId;
 
     @Column(columnDefinition = "TEXT")
-    private String specInfo;   // JSON格式存储规格信息
+    private String specInfo;   // JSON格式存储规格信息，按规格名排序
+
+    @Column(insertable = false, updatable = false,
+            columnDefinition = "CHAR(32) AS (MD5(IFNULL(spec_info, ''))) STORED")
+    private String specHash;   // 规格信息的哈希，由数据库根据 spec_info 生成
 
     @Column(nullable = false)
     private Integer quantity;
@@ -0,0 +1,50 @@
+package example.shopping.entity;
+
+import lombok.Data;
+
+import javax.persistence.*;
+import java.util.Date;
+
+/**
+ * 幂等请求记录实体类
+ * <p>
+ * 多实例部署时用于跨节点识别重复请求，记录首次请求的处理结果
+ */
+@Data
+@Entity
+@Table(name = "idempotency_keys", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_idempotency_keys_request_key", columnNames = {"requestKey"})
+}, indexes = {
+        @Index(name = "idx_idempotency_keys_expire_time", columnList = "expireTime")
+})
+public class IdempotencyRecord {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 200)
+    private String requestKey;       // 操作:用户名:Idempotency-Key
+
+    @Column(length = 32)
+    private String requestHash;      // 请求内容的MD5，同一请求键只接受相同内容的请求
+
+    @Column(nullable = false)
+    private Integer status;          // 0-处理中，1-已完成
+
+    @Column(columnDefinition = "MEDIUMTEXT")
+    private String responseData;     // JSON格式存储响应数据
+
+    private String responseMessage;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date createTime;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(nullable = false)
+    private Date expireTime;
+
+    @PrePersist
+    protected void onCreate() {
+        createTime = new Date();
+    }
+}
@@ -11,7 +11,12 @@ import java.util.Date;
  */
 @Data
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_user_status", columnList = "userId, status"),
+        @Index(name = "idx_orders_store_status_time", columnList = "storeId, status, createTime"),
+        @Index(name = "idx_orders_store_time", columnList = "storeId, createTime"),
+        @Index(name = "idx_orders_checkout_no", columnList = "checkoutNo")
+})
 public class Order {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -20,6 +25,8 @@ public class Order {
     @Column(nullable = false, unique = true)
     private String orderNo;
 
+    private String checkoutNo;       // 合并结算编号，同一次购物车结算拆分出的订单相同
+
     @Column(nullable = false)
     private Long userId;
 
@@ -48,9 +55,15 @@ public class Order {
 
     private String refundReason;
 
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date refundTime;         // 退款时间，同意退款时记录，之后订单状态变化也保留
+
     @Column(columnDefinition = "TEXT")
     private String remark;           // 订单备注
 
+    @Column(nullable = false, columnDefinition = "INT DEFAULT 0")
+    private Integer version;         // 乐观锁版本号，每次状态流转加1
+
     @Temporal(TemporalType.TIMESTAMP)
     @Column(updatable = false)
     private Date createTime;
@@ -62,6 +75,7 @@ public class Order {
     protected void onCreate() {
         createTime = new Date();
         updateTime = new Date();
+        if (version == null) version = 0;
     }
 
     @PreUpdate
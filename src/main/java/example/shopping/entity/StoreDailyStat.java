@@ -0,0 +1,63 @@
+package example.shopping.entity;
+
+import lombok.Data;
+
+import javax.persistence.*;
+import java.math.BigDecimal;
+import java.util.Date;
+
+/**
+ * 店铺每日订单统计实体类
+ * <p>
+ * 按订单创建日期汇总，订单状态流转时增量更新
+ */
+@Data
+@Entity
+@Table(name = "store_daily_stats", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_store_daily_stats_store_date", columnNames = {"storeId", "statDate"})
+})
+public class StoreDailyStat {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long storeId;
+
+    @Temporal(TemporalType.DATE)
+    @Column(nullable = false)
+    private Date statDate;           // 统计日期（订单创建日期）
+
+    @Column(nullable = false)
+    private Integer orderCount;      // 下单数
+
+    @Column(nullable = false)
+    private Integer paidCount;       // 支付订单数
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal paidAmount;   // 支付金额（GMV）
+
+    @Column(nullable = false)
+    private Integer refundCount;     // 退款订单数
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal refundAmount; // 退款金额
+
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date updateTime;
+
+    @PrePersist
+    protected void onCreate() {
+        updateTime = new Date();
+        if (orderCount == null) orderCount = 0;
+        if (paidCount == null) paidCount = 0;
+        if (paidAmount == null) paidAmount = BigDecimal.ZERO;
+        if (refundCount == null) refundCount = 0;
+        if (refundAmount == null) refundAmount = BigDecimal.ZERO;
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updateTime = new Date();
+    }
+}
@@ -24,6 +24,16 @@ import java.util.stream.Collectors;
 @Slf4j
 public class GlobalExceptionHandler {
 
+    /**
+     * 处理幂等键被不同请求内容复用的异常，返回422状态码
+     */
+    @ExceptionHandler(IdempotencyKeyReusedException.class)
+    @ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
+    public Result<Void> handleIdempotencyKeyReusedException(IdempotencyKeyReusedException e) {
+        log.error("幂等键复用: {}", e.getMessage());
+        return Result.error(422, e.getMessage());
+    }
+
     /**
      * 处理自定义业务异常
      */
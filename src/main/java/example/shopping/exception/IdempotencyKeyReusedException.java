@@ -0,0 +1,13 @@
+package example.shopping.exception;
+
+/**
+ * 幂等键被不同的请求内容重复使用
+ */
+public class IdempotencyKeyReusedException extends BusinessException {
+
+    private static final long serialVersionUID = 1L;
+
+    public IdempotencyKeyReusedException() {
+        super("Idempotency-Key 已用于内容不同的请求");
+    }
+}
@@ -1,5 +1,6 @@
 package example.shopping.mapper;
 
+import example.shopping.cache.MapperCache;
 import example.shopping.entity.Address;
 import org.apache.ibatis.annotations.*;
 
@@ -9,6 +10,10 @@ import java.util.List;
  * 地址数据访问接口
  */
 @Mapper
+@CacheNamespace(implementation = MapperCache.class, properties = {
+        @Property(name = "size", value = "${mapper-cache.address.size}"),
+        @Property(name = "ttlSeconds", value = "${mapper-cache.address.ttl-seconds}")
+})
 public interface AddressMapper {
 
     /**
@@ -0,0 +1,66 @@
+package example.shopping.mapper;
+
+import example.shopping.entity.CacheChange;
+import org.apache.ibatis.annotations.*;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 缓存变更记录Mapper接口
+ */
+@Mapper
+public interface CacheChangeMapper {
+
+    /**
+     * 插入变更记录
+     *
+     * @param change 变更记录
+     * @return 影响行数
+     */
+    @Insert("INSERT INTO cache_changes(entity, entity_id, node_id, create_time) " +
+            "VALUES(#{entity}, #{entityId}, #{nodeId}, #{createTime})")
+    @Options(useGeneratedKeys = true, keyProperty = "id")
+    int insert(CacheChange change);
+
+    /**
+     * 查询指定ID之后的变更记录
+     *
+     * @param afterId 已处理的最大ID
+     * @param limit   数量限制
+     * @return 按ID升序排列的变更记录
+     */
+    @Select("SELECT * FROM cache_changes WHERE id > #{afterId} ORDER BY id LIMIT #{limit}")
+    List<CacheChange> findAfter(@Param("afterId") long afterId, @Param("limit") int limit);
+
+    /**
+     * 根据ID批量查询变更记录
+     *
+     * @param ids 变更记录ID列表
+     * @return 变更记录列表
+     */
+    @Select("<script>" +
+            "SELECT * FROM cache_changes WHERE id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    List<CacheChange> findByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * 查询当前最大的变更记录ID
+     *
+     * @return 最大ID，没有记录时为0
+     */
+    @Select("SELECT COALESCE(MAX(id), 0) FROM cache_changes")
+    long findMaxId();
+
+    /**
+     * 分批删除早于指定时间的变更记录
+     *
+     * @param before 时间
+     * @param limit  单次删除数量上限
+     * @return 影响行数
+     */
+    @Delete("DELETE FROM cache_changes WHERE create_time < #{before} LIMIT #{limit}")
+    int deleteBefore(@Param("before") Date before, @Param("limit") int limit);
+}
@@ -3,7 +3,9 @@ package example.shopping.mapper;
 import example.shopping.entity.Cart;
 import org.apache.ibatis.annotations.*;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 购物车Mapper接口
@@ -11,6 +13,12 @@ import java.util.List;
 @Mapper
 public interface CartMapper {
 
+    /**
+     * 唯一键冲突时累加数量并重新勾选，同时让生成的主键返回已存在的购物车项ID
+     */
+    String UPSERT_QUANTITY = "ON DUPLICATE KEY UPDATE id = LAST_INSERT_ID(id), " +
+            "quantity = quantity + VALUES(quantity), selected = 1";
+
     /**
      * 根据用户ID查询购物车项
      *
@@ -20,6 +28,15 @@ public interface CartMapper {
     @Select("SELECT * FROM carts WHERE user_id = #{userId}")
     List<Cart> findByUserId(Long userId);
 
+    /**
+     * 统计用户购物车商品总数量
+     *
+     * @param userId 用户ID
+     * @return 商品总数量
+     */
+    @Select("SELECT IFNULL(SUM(quantity), 0) FROM carts WHERE user_id = #{userId}")
+    int sumQuantityByUserId(Long userId);
+
     /**
      * 根据ID查询购物车项
      *
@@ -50,6 +67,69 @@ public interface CartMapper {
     @Options(useGeneratedKeys = true, keyProperty = "id")
     int insert(Cart cart);
 
+    /**
+     * 添加购物车项，相同商品和规格已存在时累加数量，并回填购物车项ID。
+     * 合并后的数量超过库存时不插入也不更新，影响行数为0
+     *
+     * @param cart  购物车项
+     * @param stock 商品库存
+     * @return 影响行数
+     */
+    @Insert("INSERT INTO carts(user_id, product_id, spec_info, quantity, selected, create_time) " +
+            "SELECT #{cart.userId}, #{cart.productId}, #{cart.specInfo}, #{cart.quantity}, #{cart.selected}, " +
+            "#{cart.createTime} FROM DUAL WHERE #{cart.quantity} + IFNULL((SELECT c.quantity FROM carts c " +
+            "WHERE c.user_id = #{cart.userId} AND c.product_id = #{cart.productId} " +
+            "AND c.spec_hash = MD5(IFNULL(#{cart.specInfo}, ''))), 0) <= #{stock} " +
+            UPSERT_QUANTITY)
+    @Options(useGeneratedKeys = true, keyProperty = "cart.id")
+    int upsertWithinStock(@Param("cart") Cart cart, @Param("stock") int stock);
+
+    /**
+     * 批量添加购物车项，规则同 {@link #upsert(Cart)}
+     *
+     * @param carts 购物车项列表
+     * @return 影响行数
+     */
+    @Insert("<script>" +
+            "INSERT INTO carts(user_id, product_id, spec_info, quantity, selected, create_time) VALUES " +
+            "<foreach collection='carts' item='c' separator=','>" +
+            "(#{c.userId}, #{c.productId}, #{c.specInfo}, #{c.quantity}, #{c.selected}, #{c.createTime})" +
+            "</foreach> " +
+            UPSERT_QUANTITY +
+            "</script>")
+    int upsertBatch(@Param("carts") List<Cart> carts);
+
+    /**
+     * 按ID顺序分批查询带规格信息的购物车项
+     *
+     * @param afterId 上一批的最大ID
+     * @param limit   每批数量
+     * @return 购物车项列表
+     */
+    @Select("SELECT * FROM carts WHERE id > #{afterId} AND spec_info IS NOT NULL ORDER BY id LIMIT #{limit}")
+    List<Cart> findWithSpecInfoAfter(@Param("afterId") Long afterId, @Param("limit") int limit);
+
+    /**
+     * 将同一用户、商品、规格的重复购物车项数量合并到ID最小的一项
+     *
+     * @return 影响行数
+     */
+    @Update("UPDATE carts c JOIN (SELECT MIN(id) AS keep_id, SUM(quantity) AS total FROM carts " +
+            "GROUP BY user_id, product_id, spec_hash HAVING COUNT(*) > 1) d ON c.id = d.keep_id " +
+            "SET c.quantity = d.total")
+    int mergeDuplicateQuantities();
+
+    /**
+     * 删除已合并的重复购物车项
+     *
+     * @return 影响行数
+     */
+    @Delete("DELETE c FROM carts c JOIN (SELECT MIN(id) AS keep_id, user_id, product_id, spec_hash FROM carts " +
+            "GROUP BY user_id, product_id, spec_hash HAVING COUNT(*) > 1) d " +
+            "ON c.user_id = d.user_id AND c.product_id = d.product_id AND c.spec_hash = d.spec_hash " +
+            "AND c.id <> d.keep_id")
+    int deleteDuplicates();
+
     /**
      * 更新购物车项
      *
@@ -77,6 +157,16 @@ public interface CartMapper {
     @Update("UPDATE carts SET quantity = #{quantity} WHERE id = #{id}")
     int updateQuantity(@Param("id") Long id, @Param("quantity") Integer quantity);
 
+    /**
+     * 更新购物车项规格信息
+     *
+     * @param id       购物车项ID
+     * @param specInfo 规格信息，可为null
+     * @return 影响行数
+     */
+    @Update("UPDATE carts SET spec_info = #{specInfo} WHERE id = #{id}")
+    int updateSpecInfo(@Param("id") Long id, @Param("specInfo") String specInfo);
+
     /**
      * 更新购物车项选择状态
      *
@@ -87,6 +177,31 @@ public interface CartMapper {
     @Update("UPDATE carts SET selected = #{selected} WHERE id = #{id}")
     int updateSelected(@Param("id") Long id, @Param("selected") Boolean selected);
 
+    /**
+     * 批量更新购物车项的数量和选择状态，未给出的字段保持不变
+     *
+     * @param quantities 购物车项ID到数量的映射
+     * @param selections 购物车项ID到选择状态的映射
+     * @param ids        涉及的购物车项ID
+     * @return 影响行数
+     */
+    @Update("<script>" +
+            "UPDATE carts " +
+            "<set>" +
+            "<if test='!quantities.isEmpty()'>quantity = CASE id" +
+            "<foreach collection='quantities' index='id' item='quantity'> WHEN #{id} THEN #{quantity}</foreach>" +
+            " ELSE quantity END,</if>" +
+            "<if test='!selections.isEmpty()'>selected = CASE id" +
+            "<foreach collection='selections' index='id' item='selected'> WHEN #{id} THEN #{selected}</foreach>" +
+            " ELSE selected END,</if>" +
+            "</set>" +
+            "WHERE id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    int updateBatch(@Param("quantities") Map<Long, Integer> quantities,
+                    @Param("selections") Map<Long, Boolean> selections,
+                    @Param("ids") Collection<Long> ids);
+
     /**
      * 更新用户所有购物车项选择状态
      *
@@ -134,6 +249,28 @@ public interface CartMapper {
     @Delete("DELETE FROM carts WHERE user_id = #{userId} AND selected = 1")
     int deleteSelectedByUserId(Long userId);
 
+    /**
+     * 查询用户已选择的购物车项
+     *
+     * @param userId 用户ID
+     * @return 购物车项列表
+     */
+    @Select("SELECT * FROM carts WHERE user_id = #{userId} AND selected = 1 ORDER BY id")
+    List<Cart> findSelectedByUserId(Long userId);
+
+    /**
+     * 批量删除用户的购物车项
+     *
+     * @param userId 用户ID
+     * @param ids    购物车项ID列表
+     * @return 影响行数
+     */
+    @Delete("<script>" +
+            "DELETE FROM carts WHERE user_id = #{userId} AND id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    int deleteByUserIdAndIds(@Param("userId") Long userId, @Param("ids") List<Long> ids);
+
     /**
      * 根据用户ID、商品ID和规格信息查询购物车项
      *
@@ -142,7 +279,8 @@ public interface CartMapper {
      * @param specInfo  规格信息
      * @return 购物车项
      */
-    @Select("SELECT * FROM carts WHERE user_id = #{userId} AND product_id = #{productId} AND spec_info = #{specInfo}")
+    @Select("SELECT * FROM carts WHERE user_id = #{userId} AND product_id = #{productId} " +
+            "AND spec_hash = MD5(IFNULL(#{specInfo}, ''))")
     Cart findByUserIdAndProductIdAndSpecInfo(
             @Param("userId") Long userId,
             @Param("productId") Long productId,
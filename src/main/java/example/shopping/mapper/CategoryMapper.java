@@ -1,5 +1,6 @@
 package example.shopping.mapper;
 
+import example.shopping.cache.MapperCache;
 import example.shopping.entity.Category;
 import org.apache.ibatis.annotations.*;
 
@@ -9,6 +10,10 @@ import java.util.List;
  * 商品分类Mapper接口
  */
 @Mapper
+@CacheNamespace(implementation = MapperCache.class, properties = {
+        @Property(name = "size", value = "${mapper-cache.category.size}"),
+        @Property(name = "ttlSeconds", value = "${mapper-cache.category.ttl-seconds}")
+})
 public interface CategoryMapper {
 
     /**
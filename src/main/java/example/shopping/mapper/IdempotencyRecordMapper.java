@@ -0,0 +1,77 @@
+package example.shopping.mapper;
+
+import example.shopping.entity.IdempotencyRecord;
+import org.apache.ibatis.annotations.*;
+
+import java.util.Date;
+
+/**
+ * 幂等请求记录Mapper接口
+ */
+@Mapper
+public interface IdempotencyRecordMapper {
+
+    /**
+     * 根据请求键查询记录
+     *
+     * @param requestKey 请求键
+     * @return 记录信息
+     */
+    @Select("SELECT * FROM idempotency_keys WHERE request_key = #{requestKey}")
+    IdempotencyRecord findByRequestKey(String requestKey);
+
+    /**
+     * 占用请求键，已存在时不插入
+     *
+     * @param record 记录信息
+     * @return 影响行数，为0表示请求键已被占用
+     */
+    @Insert("INSERT IGNORE INTO idempotency_keys(request_key, request_hash, status, create_time, expire_time) " +
+            "VALUES(#{requestKey}, #{requestHash}, #{status}, #{createTime}, #{expireTime})")
+    int insertIgnore(IdempotencyRecord record);
+
+    /**
+     * 记录处理结果
+     *
+     * @param requestKey      请求键
+     * @param responseData    响应数据
+     * @param responseMessage 响应提示信息
+     * @param expireTime      过期时间
+     * @return 影响行数
+     */
+    @Update("UPDATE idempotency_keys SET status = 1, response_data = #{responseData}, " +
+            "response_message = #{responseMessage}, expire_time = #{expireTime} WHERE request_key = #{requestKey}")
+    int complete(@Param("requestKey") String requestKey,
+                 @Param("responseData") String responseData,
+                 @Param("responseMessage") String responseMessage,
+                 @Param("expireTime") Date expireTime);
+
+    /**
+     * 删除记录
+     *
+     * @param requestKey 请求键
+     * @return 影响行数
+     */
+    @Delete("DELETE FROM idempotency_keys WHERE request_key = #{requestKey}")
+    int deleteByRequestKey(String requestKey);
+
+    /**
+     * 删除已过期的指定记录
+     *
+     * @param requestKey 请求键
+     * @param now        当前时间
+     * @return 影响行数
+     */
+    @Delete("DELETE FROM idempotency_keys WHERE request_key = #{requestKey} AND expire_time < #{now}")
+    int deleteExpiredByRequestKey(@Param("requestKey") String requestKey, @Param("now") Date now);
+
+    /**
+     * 分批删除过期记录
+     *
+     * @param now   当前时间
+     * @param limit 单次删除数量上限
+     * @return 影响行数
+     */
+    @Delete("DELETE FROM idempotency_keys WHERE expire_time < #{now} LIMIT #{limit}")
+    int deleteExpired(@Param("now") Date now, @Param("limit") int limit);
+}
@@ -1,9 +1,13 @@
 package example.shopping.mapper;
 
+import example.shopping.dto.OrderQueryDTO;
+import example.shopping.dto.OrderSummaryDTO;
 import example.shopping.entity.Order;
 import org.apache.ibatis.annotations.*;
 
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 订单Mapper接口
@@ -11,6 +15,32 @@ import java.util.List;
 @Mapper
 public interface OrderMapper {
 
+    /**
+     * 商家订单列表的筛选与游标条件
+     */
+    String STORE_ORDER_CONDITIONS = "WHERE store_id = #{storeId}" +
+            "<if test='query.status != null'> AND status = #{query.status}</if>" +
+            "<if test='query.startTime != null'> AND create_time &gt;= #{query.startTime}</if>" +
+            "<if test='query.endTime != null'> AND create_time &lt; #{query.endTime}</if>" +
+            "<if test='query.orderNo != null and query.orderNo != \"\"'> AND order_no = #{query.orderNo}</if>" +
+            "<if test='query.buyerId != null'> AND user_id = #{query.buyerId}</if>" +
+            "<if test='cursorTime != null'> AND (create_time &lt; #{cursorTime} " +
+            "OR (create_time = #{cursorTime} AND id &lt; #{cursorId}))</if>" +
+            " ORDER BY create_time DESC, id DESC LIMIT #{limit}";
+
+    /**
+     * 批量插入订单的列
+     */
+    String BATCH_INSERT_COLUMNS = "order_no, checkout_no, user_id, store_id, items, total_amount, address_info, " +
+            "payment_type, status, remark, version, create_time, update_time";
+
+    /**
+     * 批量插入订单时每行的值，对应 {@link #BATCH_INSERT_COLUMNS}
+     */
+    String BATCH_INSERT_ROW = "#{o.orderNo}, #{o.checkoutNo}, #{o.userId}, #{o.storeId}, #{o.items}, " +
+            "#{o.totalAmount}, #{o.addressInfo}, #{o.paymentType}, #{o.status}, #{o.remark}, 0, " +
+            "#{o.createTime}, #{o.updateTime}";
+
     /**
      * 查询所有订单
      *
@@ -55,6 +85,47 @@ public interface OrderMapper {
     @Select("SELECT * FROM orders WHERE store_id = #{storeId} ORDER BY create_time DESC")
     List<Order> findByStoreId(Long storeId);
 
+    /**
+     * 按条件游标分页查询店铺订单摘要
+     *
+     * @param storeId    店铺ID
+     * @param query      筛选条件
+     * @param cursorTime 上一页最后一条的下单时间
+     * @param cursorId   上一页最后一条的订单ID
+     * @param limit      数量限制
+     * @return 订单摘要列表
+     */
+    @Select("<script>" +
+            "SELECT id, order_no, user_id, store_id, total_amount, payment_type, payment_time, " +
+            "shipping_time, status, create_time FROM orders " +
+            STORE_ORDER_CONDITIONS +
+            "</script>")
+    List<OrderSummaryDTO> findStoreOrderSummaries(@Param("storeId") Long storeId,
+                                                  @Param("query") OrderQueryDTO query,
+                                                  @Param("cursorTime") Date cursorTime,
+                                                  @Param("cursorId") Long cursorId,
+                                                  @Param("limit") int limit);
+
+    /**
+     * 按条件游标分页查询店铺完整订单
+     *
+     * @param storeId    店铺ID
+     * @param query      筛选条件
+     * @param cursorTime 上一页最后一条的下单时间
+     * @param cursorId   上一页最后一条的订单ID
+     * @param limit      数量限制
+     * @return 订单列表
+     */
+    @Select("<script>" +
+            "SELECT * FROM orders " +
+            STORE_ORDER_CONDITIONS +
+            "</script>")
+    List<Order> findStoreOrders(@Param("storeId") Long storeId,
+                                @Param("query") OrderQueryDTO query,
+                                @Param("cursorTime") Date cursorTime,
+                                @Param("cursorId") Long cursorId,
+                                @Param("limit") int limit);
+
     /**
      * 根据订单状态查询订单
      *
@@ -90,31 +161,59 @@ public interface OrderMapper {
      * @param order 订单信息
      * @return 影响行数
      */
-    @Insert("INSERT INTO orders(order_no, user_id, store_id, items, total_amount, address_info, " +
-            "payment_type, status, remark, create_time, update_time) " +
-            "VALUES(#{orderNo}, #{userId}, #{storeId}, #{items}, #{totalAmount}, #{addressInfo}, " +
-            "#{paymentType}, #{status}, #{remark}, #{createTime}, #{updateTime})")
+    @Insert("<script>" +
+            "INSERT INTO orders(<if test='id != null'>id, </if>order_no, user_id, store_id, items, total_amount, " +
+            "address_info, payment_type, status, remark, version, create_time, update_time) " +
+            "VALUES(<if test='id != null'>#{id}, </if>#{orderNo}, #{userId}, #{storeId}, #{items}, #{totalAmount}, " +
+            "#{addressInfo}, #{paymentType}, #{status}, #{remark}, 0, #{createTime}, #{updateTime})" +
+            "</script>")
     @Options(useGeneratedKeys = true, keyProperty = "id")
     int insert(Order order);
 
     /**
-     * 更新订单
+     * 批量插入订单，主键由数据库生成并回填
      *
-     * @param order 订单信息
+     * @param orders 订单列表
+     * @return 影响行数
+     */
+    @Insert("<script>" +
+            "INSERT INTO orders(" + BATCH_INSERT_COLUMNS + ") VALUES " +
+            "<foreach collection='orders' item='o' separator=','>(" + BATCH_INSERT_ROW + ")</foreach>" +
+            "</script>")
+    @Options(useGeneratedKeys = true, keyProperty = "orders.id")
+    int insertBatch(@Param("orders") List<Order> orders);
+
+    /**
+     * 批量插入已预先分配主键的订单
+     * <p>
+     * 多行插入时驱动按自增值推算回填的主键，与预分配的主键不符，因此不回填。
+     *
+     * @param orders 订单列表
      * @return 影响行数
      */
+    @Insert("<script>" +
+            "INSERT INTO orders(id, " + BATCH_INSERT_COLUMNS + ") VALUES " +
+            "<foreach collection='orders' item='o' separator=','>(#{o.id}, " + BATCH_INSERT_ROW + ")</foreach>" +
+            "</script>")
+    int insertBatchWithIds(@Param("orders") List<Order> orders);
+
+    /**
+     * 按版本号条件更新订单的非状态字段并递增版本号，状态只能通过 {@link #compareAndSetStatus} 修改
+     *
+     * @param order 订单信息，version 为调用方读取时的版本号
+     * @return 影响行数，为0表示订单已被其他请求修改
+     */
     @Update("<script>" +
             "UPDATE orders " +
             "<set>" +
             "<if test='paymentType != null'>payment_type = #{paymentType},</if>" +
             "<if test='paymentTime != null'>payment_time = #{paymentTime},</if>" +
             "<if test='shippingTime != null'>shipping_time = #{shippingTime},</if>" +
-            "<if test='status != null'>status = #{status},</if>" +
             "<if test='refundReason != null'>refund_reason = #{refundReason},</if>" +
             "<if test='remark != null'>remark = #{remark},</if>" +
-            "update_time = #{updateTime}" +
+            "version = version + 1, update_time = #{updateTime}" +
             "</set>" +
-            "WHERE id = #{id}" +
+            "WHERE id = #{id} AND version = #{version}" +
             "</script>")
     int update(Order order);
 
@@ -137,6 +236,78 @@ public interface OrderMapper {
     @Update("UPDATE orders SET status = #{status}, update_time = NOW() WHERE id = #{id}")
     int updateStatus(@Param("id") Long id, @Param("status") Integer status);
 
+    /**
+     * 按原状态和版本号条件更新订单状态（CAS），同时写入随流转变更的字段
+     *
+     * @param order           已设置新状态的订单
+     * @param expectedStatus  原状态
+     * @param expectedVersion 原版本号
+     * @return 影响行数，为0表示订单状态已被其他请求修改
+     */
+    @Update("<script>" +
+            "UPDATE orders " +
+            "<set>" +
+            "status = #{order.status}, version = version + 1, update_time = #{order.updateTime}," +
+            "<if test='order.paymentType != null'>payment_type = #{order.paymentType},</if>" +
+            "<if test='order.paymentTime != null'>payment_time = #{order.paymentTime},</if>" +
+            "<if test='order.shippingTime != null'>shipping_time = #{order.shippingTime},</if>" +
+            "<if test='order.refundReason != null'>refund_reason = #{order.refundReason},</if>" +
+            "<if test='order.refundTime != null'>refund_time = #{order.refundTime},</if>" +
+            "</set>" +
+            "WHERE id = #{order.id} AND status = #{expectedStatus} AND version = #{expectedVersion}" +
+            "</script>")
+    int compareAndSetStatus(@Param("order") Order order,
+                            @Param("expectedStatus") Integer expectedStatus,
+                            @Param("expectedVersion") int expectedVersion);
+
+    /**
+     * 为早期已退款但未记录退款时间的订单补记退款时间（取最后更新时间）
+     *
+     * @return 影响行数
+     */
+    @Update("UPDATE orders SET refund_time = update_time WHERE status = 5 AND refund_time IS NULL")
+    int backfillRefundTime();
+
+    /**
+     * 批量查询订单
+     *
+     * @param storeId 店铺ID，为null时不限店铺
+     * @param ids     订单ID列表
+     * @return 订单列表
+     */
+    @Select("<script>" +
+            "SELECT * FROM orders WHERE id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "<if test='storeId != null'> AND store_id = #{storeId}</if>" +
+            " ORDER BY id" +
+            "</script>")
+    List<Order> findByIds(@Param("storeId") Long storeId, @Param("ids") List<Long> ids);
+
+    /**
+     * 按每个订单读取时的状态和版本号批量更新订单状态（CAS），同时写入随流转变更的字段
+     *
+     * @param order  携带新状态及随流转变更字段的订单
+     * @param orders 读取时的订单，按其状态和版本号匹配
+     * @return 影响行数，小于订单数表示部分订单已被其他请求修改
+     */
+    @Update("<script>" +
+            "UPDATE orders " +
+            "<set>" +
+            "status = #{order.status}, version = version + 1, update_time = #{order.updateTime}," +
+            "<if test='order.shippingTime != null'>shipping_time = #{order.shippingTime},</if>" +
+            "<if test='order.refundReason != null'>refund_reason = #{order.refundReason},</if>" +
+            "<if test='order.paymentTime != null'>payment_time = IFNULL(payment_time, #{order.paymentTime}),</if>" +
+            "<if test='order.refundTime != null'>refund_time = IFNULL(refund_time, #{order.refundTime}),</if>" +
+            "</set>" +
+            "WHERE id IN " +
+            "<foreach collection='orders' item='o' open='(' separator=',' close=')'>#{o.id}</foreach>" +
+            " AND (" +
+            "<foreach collection='orders' item='o' separator=' OR '>" +
+            "(id = #{o.id} AND status = #{o.status} AND version = #{o.version})" +
+            "</foreach>)" +
+            "</script>")
+    int batchUpdateStatus(@Param("order") Order order, @Param("orders") List<Order> orders);
+
     /**
      * 统计用户订单数量
      *
@@ -146,6 +317,15 @@ public interface OrderMapper {
     @Select("SELECT COUNT(*) FROM orders WHERE user_id = #{userId}")
     int countByUserId(Long userId);
 
+    /**
+     * 按状态分组统计用户订单数量
+     *
+     * @param userId 用户ID
+     * @return 各状态订单数量（status, count）
+     */
+    @Select("SELECT status, COUNT(*) AS count FROM orders WHERE user_id = #{userId} GROUP BY status")
+    List<Map<String, Object>> countByUserIdGroupByStatus(Long userId);
+
     /**
      * 统计店铺订单数量
      *
@@ -155,6 +335,15 @@ public interface OrderMapper {
     @Select("SELECT COUNT(*) FROM orders WHERE store_id = #{storeId}")
     int countByStoreId(Long storeId);
 
+    /**
+     * 按状态分组统计店铺订单数量
+     *
+     * @param storeId 店铺ID
+     * @return 各状态订单数量（status, count）
+     */
+    @Select("SELECT status, COUNT(*) AS count FROM orders WHERE store_id = #{storeId} GROUP BY status")
+    List<Map<String, Object>> countByStoreIdGroupByStatus(Long storeId);
+
     /**
      * 查询待付款订单
      *
@@ -190,4 +379,13 @@ public interface OrderMapper {
      */
     @Select("SELECT * FROM orders WHERE user_id = #{userId} AND status IN (3, 5, 6, 7) ORDER BY create_time DESC")
     List<Order> findPendingReview(Long userId);
+
+    /**
+     * 查询指定时间之后下单且未取消、未退款的订单商品，用于重建商品热度
+     *
+     * @param since 起始时间
+     * @return 只包含ID、订单项和下单时间的订单列表
+     */
+    @Select("SELECT id, items, create_time FROM orders WHERE create_time >= #{since} AND status NOT IN (4, 5)")
+    List<Order> findItemsCreatedAfter(Date since);
 }
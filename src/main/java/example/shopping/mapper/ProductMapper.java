@@ -1,9 +1,12 @@
 package example.shopping.mapper;
 
+import example.shopping.dto.ProductSummaryDTO;
 import example.shopping.entity.Product;
 import org.apache.ibatis.annotations.*;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 商品Mapper接口
@@ -11,6 +14,20 @@ import java.util.List;
 @Mapper
 public interface ProductMapper {
 
+    /**
+     * 按商品ID取扣减数量的 CASE 表达式
+     */
+    String QUANTITY_CASE = "CASE id" +
+            "<foreach collection='quantities' index='id' item='quantity'> WHEN #{id} THEN #{quantity}</foreach>" +
+            " END";
+
+    /**
+     * 商品摘要字段，图片只取JSON数组中的第一张（不是合法JSON时原样返回）
+     */
+    String SUMMARY_COLUMNS = "SELECT id, name, price, " +
+            "CASE WHEN JSON_VALID(images) THEN JSON_UNQUOTE(JSON_EXTRACT(images, '$[0]')) ELSE images END AS image, " +
+            "sales, rating, stock > 0 AS in_stock FROM products ";
+
     /**
      * 查询所有商品
      *
@@ -28,6 +45,18 @@ public interface ProductMapper {
     @Select("SELECT * FROM products WHERE id = #{id}")
     Product findById(Long id);
 
+    /**
+     * 根据ID批量查询商品
+     *
+     * @param ids 商品ID列表
+     * @return 商品列表
+     */
+    @Select("<script>" +
+            "SELECT * FROM products WHERE id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    List<Product> findByIds(@Param("ids") Collection<Long> ids);
+
     /**
      * 根据店铺ID查询商品
      *
@@ -65,6 +94,84 @@ public interface ProductMapper {
     @Select("SELECT * FROM products LIMIT #{offset}, #{limit}")
     List<Product> findByPage(@Param("offset") int offset, @Param("limit") int limit);
 
+    /**
+     * 查询所有商品摘要
+     *
+     * @return 商品摘要列表
+     */
+    @Select(SUMMARY_COLUMNS)
+    List<ProductSummaryDTO> findAllSummaries();
+
+    /**
+     * 根据ID批量查询在售商品摘要
+     *
+     * @param ids 商品ID列表
+     * @return 商品摘要列表
+     */
+    @Select("<script>" +
+            SUMMARY_COLUMNS + "WHERE status = 1 AND id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    List<ProductSummaryDTO> findOnSaleSummariesByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * 根据ID批量查询商品摘要
+     *
+     * @param ids 商品ID列表
+     * @return 商品摘要列表
+     */
+    @Select("<script>" +
+            SUMMARY_COLUMNS + "WHERE id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    List<ProductSummaryDTO> findSummariesByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * 根据店铺ID查询商品摘要
+     *
+     * @param storeId 店铺ID
+     * @return 商品摘要列表
+     */
+    @Select(SUMMARY_COLUMNS + "WHERE store_id = #{storeId}")
+    List<ProductSummaryDTO> findSummariesByStoreId(Long storeId);
+
+    /**
+     * 根据分类ID查询商品摘要
+     *
+     * @param categoryId 分类ID
+     * @return 商品摘要列表
+     */
+    @Select(SUMMARY_COLUMNS + "WHERE category_id = #{categoryId}")
+    List<ProductSummaryDTO> findSummariesByCategoryId(Long categoryId);
+
+    /**
+     * 分页查询商品摘要
+     *
+     * @param offset 偏移量
+     * @param limit  数量限制
+     * @return 商品摘要列表
+     */
+    @Select(SUMMARY_COLUMNS + "LIMIT #{offset}, #{limit}")
+    List<ProductSummaryDTO> findSummariesByPage(@Param("offset") int offset, @Param("limit") int limit);
+
+    /**
+     * 根据关键字搜索商品摘要
+     *
+     * @param keyword 关键字
+     * @return 商品摘要列表
+     */
+    @Select(SUMMARY_COLUMNS + "WHERE name LIKE CONCAT('%', #{keyword}, '%') OR description LIKE CONCAT('%', #{keyword}, '%')")
+    List<ProductSummaryDTO> searchSummaries(String keyword);
+
+    /**
+     * 根据关键字搜索商品ID
+     *
+     * @param keyword 关键字
+     * @return 商品ID列表
+     */
+    @Select("SELECT id FROM products WHERE name LIKE CONCAT('%', #{keyword}, '%') OR description LIKE CONCAT('%', #{keyword}, '%')")
+    List<Long> searchIds(String keyword);
+
     /**
      * 插入商品
      *
@@ -134,6 +241,30 @@ public interface ProductMapper {
     @Update("UPDATE products SET stock = stock - #{decrement} WHERE id = #{id} AND stock >= #{decrement}")
     int decreaseStock(@Param("id") Long id, @Param("decrement") int decrement);
 
+    /**
+     * 恢复商品库存并扣回销量（取消订单、退款时使用）
+     *
+     * @param id       商品ID
+     * @param quantity 数量
+     * @return 影响行数
+     */
+    @Update("UPDATE products SET stock = stock + #{quantity}, sales = sales - #{quantity} WHERE id = #{id}")
+    int restoreStock(@Param("id") Long id, @Param("quantity") int quantity);
+
+    /**
+     * 批量扣减库存并增加销量，库存不足的商品不会被更新
+     *
+     * @param quantities 商品ID到扣减数量的映射
+     * @return 影响行数，小于商品数表示有商品库存不足
+     */
+    @Update("<script>" +
+            "UPDATE products SET stock = stock - " + QUANTITY_CASE + ", sales = sales + " + QUANTITY_CASE +
+            " WHERE id IN " +
+            "<foreach collection='quantities' index='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            " AND stock &gt;= " + QUANTITY_CASE +
+            "</script>")
+    int decreaseStockBatch(@Param("quantities") Map<Long, Integer> quantities);
+
     /**
      * 根据关键字搜索商品
      *
@@ -160,4 +291,36 @@ public interface ProductMapper {
      */
     @Select("SELECT * FROM products WHERE status = 1 ORDER BY create_time DESC LIMIT #{limit}")
     List<Product> findNewProducts(int limit);
+
+    /**
+     * 查询在售商品的排行字段（ID、分类、状态、销量、上架时间），用于重建排行榜
+     *
+     * @return 只包含排行字段的商品列表
+     */
+    @Select("SELECT id, category_id, status, sales, create_time FROM products WHERE status = 1")
+    List<Product> findRankFields();
+
+    /**
+     * 查询所有商品的列表筛选和排序字段，用于构建商品列表索引
+     *
+     * @return 只包含ID、分类、店铺、价格、销量、评分、状态和上架时间的商品列表
+     */
+    @Select("SELECT id, category_id, store_id, price, sales, rating, status, create_time FROM products")
+    List<Product> findListingFields();
+
+    /**
+     * 查询在售商品的联想字段，用于构建搜索联想索引
+     *
+     * @return 只包含ID、名称、店铺和销量的商品列表
+     */
+    @Select("SELECT id, name, store_id, sales FROM products WHERE status = 1")
+    List<Product> findSuggestFields();
+
+    /**
+     * 查询所有商品ID，用于构建商品ID过滤器
+     *
+     * @return 商品ID列表
+     */
+    @Select("SELECT id FROM products")
+    List<Long> findAllIds();
 }
@@ -0,0 +1,125 @@
+package example.shopping.mapper;
+
+import example.shopping.entity.StoreDailyStat;
+import org.apache.ibatis.annotations.*;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 店铺每日订单统计Mapper接口
+ */
+@Mapper
+public interface StoreDailyStatMapper {
+
+    /**
+     * 按订单汇总每日统计的查询，支付和退款按是否记录了支付时间、退款时间计数，与订单当前状态无关
+     */
+    String AGGREGATE_ORDERS = "SELECT store_id, DATE(create_time), COUNT(*), " +
+            "SUM(CASE WHEN payment_time IS NOT NULL THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN payment_time IS NOT NULL THEN total_amount ELSE 0 END), " +
+            "SUM(CASE WHEN refund_time IS NOT NULL THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN refund_time IS NOT NULL THEN total_amount ELSE 0 END), NOW() FROM orders ";
+
+    String INSERT_STATS = "INSERT INTO store_daily_stats(store_id, stat_date, order_count, paid_count, paid_amount, " +
+            "refund_count, refund_amount, update_time) ";
+
+    /**
+     * 查询店铺指定日期范围内的每日统计
+     *
+     * @param storeId   店铺ID
+     * @param startDate 开始日期（含）
+     * @param endDate   结束日期（含）
+     * @return 每日统计列表
+     */
+    @Select("SELECT * FROM store_daily_stats WHERE store_id = #{storeId} " +
+            "AND stat_date BETWEEN DATE(#{startDate}) AND DATE(#{endDate}) ORDER BY stat_date")
+    List<StoreDailyStat> findByStoreIdAndDateRange(@Param("storeId") Long storeId,
+                                                   @Param("startDate") Date startDate,
+                                                   @Param("endDate") Date endDate);
+
+    /**
+     * 汇总店铺全部统计
+     *
+     * @param storeId 店铺ID
+     * @return 汇总结果（orderCount, paidCount, paidAmount, refundCount, refundAmount）
+     */
+    @Select("SELECT COALESCE(SUM(order_count), 0) AS orderCount, COALESCE(SUM(paid_count), 0) AS paidCount, " +
+            "COALESCE(SUM(paid_amount), 0) AS paidAmount, COALESCE(SUM(refund_count), 0) AS refundCount, " +
+            "COALESCE(SUM(refund_amount), 0) AS refundAmount " +
+            "FROM store_daily_stats WHERE store_id = #{storeId}")
+    Map<String, Object> sumByStoreId(Long storeId);
+
+    /**
+     * 累加每日统计，当天记录不存在时插入
+     *
+     * @param delta 增量，statDate 取订单创建时间
+     * @return 影响行数
+     */
+    @Insert("INSERT INTO store_daily_stats(store_id, stat_date, order_count, paid_count, paid_amount, " +
+            "refund_count, refund_amount, update_time) " +
+            "VALUES(#{storeId}, DATE(#{statDate}), #{orderCount}, #{paidCount}, #{paidAmount}, " +
+            "#{refundCount}, #{refundAmount}, NOW()) " +
+            "ON DUPLICATE KEY UPDATE order_count = order_count + VALUES(order_count), " +
+            "paid_count = paid_count + VALUES(paid_count), paid_amount = paid_amount + VALUES(paid_amount), " +
+            "refund_count = refund_count + VALUES(refund_count), refund_amount = refund_amount + VALUES(refund_amount), " +
+            "update_time = NOW()")
+    int increment(StoreDailyStat delta);
+
+    /**
+     * 删除店铺全部统计
+     *
+     * @param storeId 店铺ID
+     * @return 影响行数
+     */
+    @Delete("DELETE FROM store_daily_stats WHERE store_id = #{storeId}")
+    int deleteByStoreId(Long storeId);
+
+    /**
+     * 从订单表重建店铺每日统计
+     *
+     * @param storeId 店铺ID
+     * @return 影响行数
+     */
+    @Insert(INSERT_STATS + AGGREGATE_ORDERS + "WHERE store_id = #{storeId} GROUP BY store_id, DATE(create_time)")
+    int rebuildByStoreId(Long storeId);
+
+    /**
+     * 删除店铺某一天的统计
+     *
+     * @param storeId  店铺ID
+     * @param statDate 统计日期
+     * @return 影响行数
+     */
+    @Delete("DELETE FROM store_daily_stats WHERE store_id = #{storeId} AND stat_date = DATE(#{statDate})")
+    int deleteByStoreIdAndDate(@Param("storeId") Long storeId, @Param("statDate") Date statDate);
+
+    /**
+     * 从订单表重建店铺某一天的统计，走 (store_id, create_time) 索引
+     *
+     * @param storeId  店铺ID
+     * @param statDate 统计日期
+     * @return 影响行数
+     */
+    @Insert(INSERT_STATS + AGGREGATE_ORDERS + "WHERE store_id = #{storeId} " +
+            "AND create_time >= DATE(#{statDate}) AND create_time < DATE(#{statDate}) + INTERVAL 1 DAY " +
+            "GROUP BY store_id, DATE(create_time)")
+    int rebuildByStoreIdAndDate(@Param("storeId") Long storeId, @Param("statDate") Date statDate);
+
+    /**
+     * 统计表是否有数据
+     *
+     * @return 有数据时返回1，否则返回0
+     */
+    @Select("SELECT EXISTS(SELECT 1 FROM store_daily_stats)")
+    int exists();
+
+    /**
+     * 从订单表重建所有店铺的每日统计，统计表为空时使用
+     *
+     * @return 影响行数
+     */
+    @Insert(INSERT_STATS + AGGREGATE_ORDERS + "GROUP BY store_id, DATE(create_time)")
+    int rebuildAll();
+}
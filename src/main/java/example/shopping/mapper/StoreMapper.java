@@ -1,14 +1,20 @@
 package example.shopping.mapper;
 
+import example.shopping.cache.MapperCache;
 import example.shopping.entity.Store;
 import org.apache.ibatis.annotations.*;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
  * 店铺Mapper接口
  */
 @Mapper
+@CacheNamespace(implementation = MapperCache.class, properties = {
+        @Property(name = "size", value = "${mapper-cache.store.size}"),
+        @Property(name = "ttlSeconds", value = "${mapper-cache.store.ttl-seconds}")
+})
 public interface StoreMapper {
 
     /**
@@ -28,6 +34,18 @@ public interface StoreMapper {
     @Select("SELECT * FROM stores WHERE id = #{id}")
     Store findById(Long id);
 
+    /**
+     * 根据ID批量查询店铺
+     *
+     * @param ids 店铺ID列表
+     * @return 店铺列表
+     */
+    @Select("<script>" +
+            "SELECT * FROM stores WHERE id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    List<Store> findByIds(@Param("ids") Collection<Long> ids);
+
     /**
      * 根据店主ID查询所有店铺
      *
@@ -153,4 +171,13 @@ public interface StoreMapper {
      */
     @Select("SELECT COUNT(*) FROM stores WHERE user_id = #{userId} AND status = #{status}")
     int countStoresByUserIdAndStatus(@Param("userId") Long userId, @Param("status") Integer status);
+
+    /**
+     * 查询所有店铺ID，用于构建店铺ID过滤器，结果不进入查询缓存
+     *
+     * @return 店铺ID列表
+     */
+    @Select("SELECT id FROM stores")
+    @Options(useCache = false)
+    List<Long> findAllIds();
 }
@@ -1,14 +1,20 @@
 package example.shopping.mapper;
 
+import example.shopping.cache.MapperCache;
 import example.shopping.entity.User;
 import org.apache.ibatis.annotations.*;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
  * 用户Mapper接口
  */
 @Mapper
+@CacheNamespace(implementation = MapperCache.class, properties = {
+        @Property(name = "size", value = "${mapper-cache.user.size}"),
+        @Property(name = "ttlSeconds", value = "${mapper-cache.user.ttl-seconds}")
+})
 public interface UserMapper {
 
     /**
@@ -29,6 +35,18 @@ public interface UserMapper {
     @Select("SELECT * FROM users WHERE id = #{id}")
     User findById(Long id);
 
+    /**
+     * 通过ID批量查找用户
+     *
+     * @param ids 用户ID列表
+     * @return 用户列表
+     */
+    @Select("<script>" +
+            "SELECT * FROM users WHERE id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    List<User> findByIds(@Param("ids") Collection<Long> ids);
+
     /**
      * 通过手机号查找用户
      *
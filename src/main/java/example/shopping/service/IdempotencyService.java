@@ -0,0 +1,26 @@
+package example.shopping.service;
+
+import example.shopping.utils.Result;
+
+import java.util.function.Supplier;
+
+/**
+ * 幂等请求服务接口
+ */
+public interface IdempotencyService {
+
+    /**
+     * 按 Idempotency-Key 执行请求，同一用户同一操作的重复请求直接返回首次请求的结果，
+     * 请求内容与首次请求不同时抛出 {@link example.shopping.exception.IdempotencyKeyReusedException}
+     *
+     * @param idempotencyKey 客户端提供的幂等键，为空时直接执行
+     * @param operation      操作名称
+     * @param request        请求内容，按JSON序列化后计算指纹
+     * @param dataType       响应数据类型，用于从数据库记录还原结果
+     * @param action         实际执行的请求
+     * @param <T>            响应数据类型
+     * @return 处理结果
+     */
+    <T> Result<T> execute(String idempotencyKey, String operation, Object request, Class<?> dataType,
+                          Supplier<Result<T>> action);
+}
@@ -1,6 +1,8 @@
 package example.shopping.service;
 
+import example.shopping.dto.CheckoutDTO;
 import example.shopping.dto.OrderDTO;
+import example.shopping.dto.OrderQueryDTO;
 import example.shopping.entity.Order;
 
 import java.util.List;
@@ -20,6 +22,15 @@ public interface OrderService {
      */
     Order create(Long userId, OrderDTO orderDTO);
 
+    /**
+     * 结算购物车中已选择的商品，按店铺拆分为多个订单
+     *
+     * @param userId      用户ID
+     * @param checkoutDTO 结算信息
+     * @return 结算编号、拆分出的订单及总金额
+     */
+    Map<String, Object> checkout(Long userId, CheckoutDTO checkoutDTO);
+
     /**
      * 根据订单ID查询订单
      *
@@ -52,6 +63,15 @@ public interface OrderService {
      */
     List<Order> findByStoreId(Long storeId);
 
+    /**
+     * 按条件游标分页查询店铺订单
+     *
+     * @param storeId 店铺ID
+     * @param query   筛选条件
+     * @return 包含订单列表、是否有下一页及下一页游标的结果
+     */
+    Map<String, Object> findStoreOrders(Long storeId, OrderQueryDTO query);
+
     /**
      * 根据用户ID和订单状态查询订单
      *
@@ -134,6 +154,34 @@ public interface OrderService {
      */
     boolean handleRefund(Long id, boolean isAgree);
 
+    /**
+     * 批量发货
+     *
+     * @param storeId 店铺ID
+     * @param ids     订单ID列表
+     * @return 成功数量、失败数量及每个订单的处理结果
+     */
+    Map<String, Object> batchShip(Long storeId, List<Long> ids);
+
+    /**
+     * 批量处理退款
+     *
+     * @param storeId 店铺ID
+     * @param ids     订单ID列表
+     * @param isAgree 是否同意
+     * @return 成功数量、失败数量及每个订单的处理结果
+     */
+    Map<String, Object> batchHandleRefund(Long storeId, List<Long> ids, boolean isAgree);
+
+    /**
+     * 批量修改订单状态
+     *
+     * @param ids    订单ID列表
+     * @param status 订单状态
+     * @return 成功数量、失败数量及每个订单的处理结果
+     */
+    Map<String, Object> batchUpdateStatus(List<Long> ids, Integer status);
+
     /**
      * 查询用户各状态订单数量
      *
@@ -0,0 +1,20 @@
+package example.shopping.service;
+
+import java.util.Map;
+
+/**
+ * 商品详情页聚合服务接口
+ */
+public interface ProductDetailService {
+
+    /**
+     * 并行获取商品详情页所需的全部数据
+     * <p>
+     * 商品信息必须返回，其余部分超时或出错时置为null，并在 missing 中列出
+     *
+     * @param productId 商品ID
+     * @param username  当前登录用户名，未登录时为null
+     * @return 商品、店铺、评论列表、评论统计、收藏数、是否已收藏和缺失的部分
+     */
+    Map<String, Object> getDetail(Long productId, String username);
+}
@@ -1,5 +1,7 @@
 package example.shopping.service;
 
+import example.shopping.dto.ProductQueryDTO;
+import example.shopping.dto.ProductSummaryDTO;
 import example.shopping.entity.Product;
 
 import java.util.List;
@@ -13,9 +15,9 @@ public interface ProductService {
     /**
      * 查询所有商品
      *
-     * @return 商品列表
+     * @return 商品摘要列表
      */
-    List<Product> findAll();
+    List<ProductSummaryDTO> findAll();
 
     /**
      * 根据ID查询商品
@@ -25,31 +27,47 @@ public interface ProductService {
      */
     Product findById(Long id);
 
+    /**
+     * 获取商品的规格选项
+     *
+     * @param id 商品ID
+     * @return 规格名到可选值的映射
+     */
+    Map<String, List<String>> getSpecifications(Long id);
+
     /**
      * 根据店铺ID查询商品
      *
      * @param storeId 店铺ID
-     * @return 商品列表
+     * @return 商品摘要列表
      */
-    List<Product> findByStoreId(Long storeId);
+    List<ProductSummaryDTO> findByStoreId(Long storeId);
 
     /**
      * 根据分类ID查询商品
      *
      * @param categoryId 分类ID
-     * @return 商品列表
+     * @return 商品摘要列表
      */
-    List<Product> findByCategoryId(Long categoryId);
+    List<ProductSummaryDTO> findByCategoryId(Long categoryId);
 
     /**
      * 分页查询商品
      *
      * @param pageNum  页码
      * @param pageSize 每页大小
-     * @return 包含分页信息的商品列表
+     * @return 包含分页信息的商品摘要列表
      */
     Map<String, Object> findByPage(int pageNum, int pageSize);
 
+    /**
+     * 按条件筛选、排序并分页查询商品
+     *
+     * @param query 查询条件
+     * @return 包含分页信息和命中总数的商品摘要列表
+     */
+    Map<String, Object> query(ProductQueryDTO query);
+
     /**
      * 添加商品
      *
@@ -96,23 +114,43 @@ public interface ProductService {
      * 根据关键字搜索商品
      *
      * @param keyword 关键字
-     * @return 商品列表
+     * @return 商品摘要列表、命中总数和分类、店铺、价格区间、评分区间的分面统计
      */
-    List<Product> search(String keyword);
+    Map<String, Object> search(String keyword);
 
     /**
-     * 获取热门商品
+     * 获取搜索联想词
      *
-     * @param limit 数量限制
+     * @param prefix 输入前缀，支持拼音首字母
+     * @param limit  数量限制
+     * @return 联想词列表
+     */
+    List<String> suggest(String prefix, int limit);
+
+    /**
+     * 获取热门商品（按销量）
+     *
+     * @param categoryId 分类ID，为null时不限分类
+     * @param limit      数量限制
      * @return 热门商品列表
      */
-    List<Product> findHotProducts(int limit);
+    List<ProductSummaryDTO> findHotProducts(Long categoryId, int limit);
 
     /**
      * 获取新品
      *
-     * @param limit 数量限制
+     * @param categoryId 分类ID，为null时不限分类
+     * @param limit      数量限制
      * @return 新品列表
      */
-    List<Product> findNewProducts(int limit);
+    List<ProductSummaryDTO> findNewProducts(Long categoryId, int limit);
+
+    /**
+     * 获取近期热销商品（按随时间衰减的销量）
+     *
+     * @param categoryId 分类ID，为null时不限分类
+     * @param limit      数量限制
+     * @return 热销商品列表
+     */
+    List<ProductSummaryDTO> findTrendingProducts(Long categoryId, int limit);
 }
@@ -103,12 +103,14 @@ public interface StoreService {
     List<Store> findByStatus(Integer status);
 
     /**
-     * 搜索店铺
+     * 分页搜索营业中的店铺，按相关度排序
      *
-     * @param keyword 关键字
-     * @return 店铺列表
+     * @param keyword  关键字
+     * @param pageNum  页码
+     * @param pageSize 每页大小
+     * @return 包含分页信息和命中总数的店铺列表
      */
-    List<Store> search(String keyword);
+    Map<String, Object> search(String keyword, int pageNum, int pageSize);
 
     /**
      * 更新店铺状态
@@ -0,0 +1,26 @@
+package example.shopping.service;
+
+import java.util.Map;
+
+/**
+ * 店铺统计服务接口
+ */
+public interface StoreStatsService {
+
+    /**
+     * 获取店铺订单统计信息
+     *
+     * @param storeId 店铺ID
+     * @param days    每日趋势的天数
+     * @return 状态数量、GMV、退款汇总及每日趋势
+     */
+    Map<String, Object> getOrderStats(Long storeId, int days);
+
+    /**
+     * 从订单表重建店铺每日统计
+     *
+     * @param storeId 店铺ID
+     * @return 重建的天数
+     */
+    int rebuild(Long storeId);
+}
@@ -1,5 +1,14 @@
 package example.shopping.service.impl;
 
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONException;
+import com.alibaba.fastjson.TypeReference;
+import example.shopping.cache.BatchLoader;
+import example.shopping.cache.BatchLoaders;
+import example.shopping.cache.CartCountCache;
+import example.shopping.cache.CartWriteBackStore;
+import example.shopping.cache.ProductSpecIndex;
+import example.shopping.cache.ProductSpecIndexCache;
 import example.shopping.dto.CartDTO;
 import example.shopping.entity.Cart;
 import example.shopping.entity.Product;
@@ -11,10 +20,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Date;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 import java.util.stream.Collectors;
 
 /**
@@ -29,15 +35,32 @@ public class CartServiceImpl implements CartService {
     @Autowired
     private ProductMapper productMapper;
 
+    @Autowired
+    private ProductSpecIndexCache productSpecIndexCache;
+
+    @Autowired
+    private CartWriteBackStore cartWriteBackStore;
+
+    @Autowired
+    private CartCountCache cartCountCache;
+
+    @Autowired
+    private BatchLoaders batchLoaders;
+
     @Override
     public List<Map<String, Object>> getCartList(Long userId) {
-        List<Cart> cartList = cartMapper.findByUserId(userId);
-        return cartList.stream().map(this::convertCartToMap).collect(Collectors.toList());
+        List<Cart> cartList = findCarts(userId);
+        BatchLoader<Product> products = batchLoaders.products();
+        cartList.forEach(cart -> products.load(cart.getProductId()));
+        return cartList.stream().map(cart -> convertCartToMap(cart, products)).collect(Collectors.toList());
     }
 
     @Override
     @Transactional
     public Cart add(Long userId, CartDTO cartDTO) {
+        // 先写回内存中的修改，数量在数据库中合并
+        cartWriteBackStore.flush(userId);
+
         // 检查商品是否存在
         Product product = productMapper.findById(cartDTO.getProductId());
         if (product == null) {
@@ -54,114 +77,78 @@ public class CartServiceImpl implements CartService {
             throw new BusinessException("商品库存不足");
         }
 
-        // 验证规格信息
-        if (cartDTO.getSpecInfo() != null) {
-            try {
-                // 解析商品规格信息
-                com.fasterxml.jackson.databind.ObjectMapper mapper = new com.fasterxml.jackson.databind.ObjectMapper();
-                java.util.Map<String, Object> productSpecifications =
-                        mapper.readValue(product.getSpecifications(), new com.fasterxml.jackson.core.type.TypeReference<java.util.Map<String, Object>>() {
-                        });
-
-                // 验证规格是否合法
-                for (Map.Entry<String, String> entry : cartDTO.getSpecInfo().entrySet()) {
-                    String specName = entry.getKey();
-                    String specValue = entry.getValue();
-
-                    // 检查规格名称是否存在
-                    if (!productSpecifications.containsKey(specName)) {
-                        throw new BusinessException("无效的规格名称：" + specName);
-                    }
-
-                    // 检查规格值是否有效
-                    Object specValues = productSpecifications.get(specName);
-                    if (specValues instanceof java.util.List) {
-                        // 处理列表形式的规格值
-                        @SuppressWarnings("unchecked")
-                        java.util.List<String> valueList = (java.util.List<String>) specValues;
-                        if (!valueList.contains(specValue)) {
-                            throw new BusinessException("无效的规格值：" + specValue);
-                        }
-                    } else if (specValues instanceof String) {
-                        // 处理字符串形式的规格值
-                        if (!specValues.equals(specValue)) {
-                            throw new BusinessException("无效的规格值：" + specValue);
-                        }
-                    } else {
-                        throw new BusinessException("规格信息格式不支持");
-                    }
-                }
-            } catch (com.fasterxml.jackson.core.JsonProcessingException e) {
-                throw new BusinessException("规格信息格式错误");
-            }
-        }
-
-        // 将规格信息转换为JSON字符串
-        String specInfoJson = null;
-        if (cartDTO.getSpecInfo() != null) {
-            try {
-                com.fasterxml.jackson.databind.ObjectMapper mapper = new com.fasterxml.jackson.databind.ObjectMapper();
-                specInfoJson = mapper.writeValueAsString(cartDTO.getSpecInfo());
-            } catch (com.fasterxml.jackson.core.JsonProcessingException e) {
-                throw new BusinessException("规格信息转换失败");
-            }
-        }
+        // 验证规格信息并编码为规格键
+        String specInfoJson = productSpecIndexCache.get(product).canonicalize(cartDTO.getSpecInfo());
 
-        // 检查是否已经添加过该商品（相同规格）
-        Cart existingCart = cartMapper.findByUserIdAndProductIdAndSpecInfo(userId, cartDTO.getProductId(), specInfoJson);
-        if (existingCart != null) {
-            // 如果已经添加过，则更新数量
-            int newQuantity = existingCart.getQuantity() + cartDTO.getQuantity();
-
-            // 再次检查库存是否足够
-            if (product.getStock() < newQuantity) {
-                throw new BusinessException("商品库存不足");
-            }
-
-            existingCart.setQuantity(newQuantity);
-            cartMapper.update(existingCart);
-            return existingCart;
-        } else {
-            // 如果没有添加过，则新增
-            Cart cart = new Cart();
-            cart.setUserId(userId);
-            cart.setProductId(cartDTO.getProductId());
-            cart.setSpecInfo(specInfoJson);
-            cart.setQuantity(cartDTO.getQuantity());
-            cart.setSelected(true);
-            cart.setCreateTime(new Date());
-
-            cartMapper.insert(cart);
-            return cart;
+        // 新增购物车项，已添加过相同规格时由唯一键合并数量，合并后超过库存时不写入
+        Cart cart = newCart(userId, cartDTO, specInfoJson);
+        if (cartMapper.upsertWithinStock(cart, product.getStock()) == 0) {
+            throw new BusinessException("商品库存不足");
         }
+        cartWriteBackStore.invalidate(userId);
+        cartCountCache.evict(userId);
+        return cartMapper.findById(cart.getId());
     }
 
     @Override
     @Transactional
     public int batchAdd(Long userId, List<CartDTO> cartDTOList) {
-        int successCount = 0;
+        if (cartDTOList == null || cartDTOList.isEmpty()) {
+            return 0;
+        }
+        cartWriteBackStore.flush(userId);
 
+        Set<Long> productIds = new HashSet<>();
         for (CartDTO cartDTO : cartDTOList) {
+            productIds.add(cartDTO.getProductId());
+        }
+        Map<Long, Product> products = new HashMap<>();
+        for (Product product : productMapper.findByIds(productIds)) {
+            products.put(product.getId(), product);
+        }
+
+        // 已在购物车中的数量，与新增数量合并后检查库存
+        Map<String, Integer> quantities = new HashMap<>();
+        for (Cart cart : cartMapper.findByUserId(userId)) {
+            quantities.merge(cart.getProductId() + "|" + cart.getSpecInfo(), cart.getQuantity(), Integer::sum);
+        }
+
+        // 跳过不存在、已下架、合并后库存不足或规格无效的商品，其余一次写入
+        List<Cart> carts = new ArrayList<>(cartDTOList.size());
+        for (CartDTO cartDTO : cartDTOList) {
+            Product product = products.get(cartDTO.getProductId());
+            if (product == null || product.getStatus() != 1) {
+                continue;
+            }
+            String specInfoJson;
             try {
-                add(userId, cartDTO);
-                successCount++;
+                specInfoJson = productSpecIndexCache.get(product).canonicalize(cartDTO.getSpecInfo());
             } catch (BusinessException e) {
-                // 记录异常，继续处理下一个
-                // 这里可以选择记录日志
+                // 规格无效，继续处理下一个
+                continue;
+            }
+            String key = product.getId() + "|" + specInfoJson;
+            int merged = quantities.getOrDefault(key, 0) + cartDTO.getQuantity();
+            if (product.getStock() < merged) {
+                continue;
             }
+            quantities.put(key, merged);
+            carts.add(newCart(userId, cartDTO, specInfoJson));
         }
 
-        return successCount;
+        if (!carts.isEmpty()) {
+            cartMapper.upsertBatch(carts);
+            cartWriteBackStore.invalidate(userId);
+            cartCountCache.evict(userId);
+        }
+        return carts.size();
     }
 
     @Override
     @Transactional
     public Cart updateQuantity(Long userId, Long id, Integer quantity) {
         // 检查购物车项是否存在
-        Cart cart = cartMapper.findById(id);
-        if (cart == null || !cart.getUserId().equals(userId)) {
-            throw new BusinessException("购物车商品不存在");
-        }
+        Cart cart = findOwnedCart(userId, id);
 
         // 检查商品是否存在
         Product product = productMapper.findById(cart.getProductId());
@@ -179,7 +166,11 @@ public class CartServiceImpl implements CartService {
             throw new BusinessException("商品库存不足");
         }
 
+        if (cartWriteBackStore.isEnabled()) {
+            return requireCart(cartWriteBackStore.updateQuantity(userId, id, quantity));
+        }
         cartMapper.updateQuantity(id, quantity);
+        cartCountCache.evict(userId);
         cart.setQuantity(quantity);
         return cart;
     }
@@ -187,12 +178,13 @@ public class CartServiceImpl implements CartService {
     @Override
     @Transactional
     public Cart updateSelected(Long userId, Long id, Boolean selected) {
-        // 检查购物车项是否存在
-        Cart cart = cartMapper.findById(id);
-        if (cart == null || !cart.getUserId().equals(userId)) {
-            throw new BusinessException("购物车商品不存在");
+        if (cartWriteBackStore.isEnabled()) {
+            return requireCart(cartWriteBackStore.updateSelected(userId, id, selected));
         }
 
+        // 检查购物车项是否存在
+        Cart cart = findOwnedCart(userId, id);
+
         cartMapper.updateSelected(id, selected);
         cart.setSelected(selected);
         return cart;
@@ -201,6 +193,9 @@ public class CartServiceImpl implements CartService {
     @Override
     @Transactional
     public boolean updateAllSelected(Long userId, Boolean selected) {
+        if (cartWriteBackStore.isEnabled()) {
+            return cartWriteBackStore.updateAllSelected(userId, selected) > 0;
+        }
         return cartMapper.updateAllSelected(userId, selected) > 0;
     }
 
@@ -208,39 +203,51 @@ public class CartServiceImpl implements CartService {
     @Transactional
     public boolean delete(Long userId, Long id) {
         // 检查购物车项是否存在
-        Cart cart = cartMapper.findById(id);
-        if (cart == null || !cart.getUserId().equals(userId)) {
-            throw new BusinessException("购物车商品不存在");
-        }
+        findOwnedCart(userId, id);
 
-        return cartMapper.deleteById(id) > 0;
+        boolean deleted = cartMapper.deleteById(id) > 0;
+        if (deleted) {
+            cartCountCache.evict(userId);
+        }
+        cartWriteBackStore.invalidate(userId);
+        return deleted;
     }
 
     @Override
     @Transactional
     public boolean deleteAll(Long userId) {
-        return cartMapper.deleteByUserId(userId) > 0;
+        boolean deleted = cartMapper.deleteByUserId(userId) > 0;
+        cartWriteBackStore.invalidate(userId);
+        cartCountCache.evict(userId);
+        return deleted;
     }
 
     @Override
     @Transactional
     public boolean deleteSelected(Long userId) {
-        return cartMapper.deleteSelectedByUserId(userId) > 0;
+        // 按内存中最新的选择状态删除
+        cartWriteBackStore.flush(userId);
+
+        boolean deleted = cartMapper.deleteSelectedByUserId(userId) > 0;
+        cartWriteBackStore.invalidate(userId);
+        cartCountCache.evict(userId);
+        return deleted;
     }
 
     @Override
     public int getCartProductCount(Long userId) {
-        List<Cart> cartList = cartMapper.findByUserId(userId);
-        return cartList.stream().mapToInt(Cart::getQuantity).sum();
+        if (cartWriteBackStore.isEnabled()) {
+            return cartWriteBackStore.getProductCount(userId);
+        }
+        return cartCountCache.get(userId, () -> cartMapper.sumQuantityByUserId(userId));
     }
 
     @Override
     public List<Map<String, Object>> getSelectedCartList(Long userId) {
-        List<Cart> cartList = cartMapper.findByUserId(userId);
-        return cartList.stream()
-                .filter(Cart::getSelected)
-                .map(this::convertCartToMap)
-                .collect(Collectors.toList());
+        List<Cart> cartList = findCarts(userId).stream().filter(Cart::getSelected).collect(Collectors.toList());
+        BatchLoader<Product> products = batchLoaders.products();
+        cartList.forEach(cart -> products.load(cart.getProductId()));
+        return cartList.stream().map(cart -> convertCartToMap(cart, products)).collect(Collectors.toList());
     }
 
     @Override
@@ -259,16 +266,94 @@ public class CartServiceImpl implements CartService {
 
     @Override
     public Cart checkProductInCart(Long userId, Long productId, String specInfo) {
-        return cartMapper.findByUserIdAndProductIdAndSpecInfo(userId, productId, specInfo);
+        String specKey = canonicalSpecInfo(specInfo);
+        if (cartWriteBackStore.isEnabled()) {
+            // 与数据库的 spec_hash 一致，空规格和null视为相同
+            String expected = specKey != null ? specKey : "";
+            for (Cart cart : cartWriteBackStore.getCarts(userId)) {
+                String actual = cart.getSpecInfo() != null ? cart.getSpecInfo() : "";
+                if (cart.getProductId().equals(productId) && actual.equals(expected)) {
+                    return cart;
+                }
+            }
+            return null;
+        }
+        return cartMapper.findByUserIdAndProductIdAndSpecInfo(userId, productId, specKey);
+    }
+
+    /**
+     * 查询用户的购物车项，开启写回缓存时从内存读取
+     *
+     * @param userId 用户ID
+     * @return 购物车项列表
+     */
+    private List<Cart> findCarts(Long userId) {
+        return cartWriteBackStore.isEnabled() ? cartWriteBackStore.getCarts(userId) : cartMapper.findByUserId(userId);
+    }
+
+    /**
+     * 查询属于用户的购物车项
+     *
+     * @param userId 用户ID
+     * @param id     购物车项ID
+     * @return 购物车项
+     */
+    private Cart findOwnedCart(Long userId, Long id) {
+        if (cartWriteBackStore.isEnabled()) {
+            return requireCart(cartWriteBackStore.getCart(userId, id));
+        }
+        Cart cart = cartMapper.findById(id);
+        if (cart == null || !cart.getUserId().equals(userId)) {
+            throw new BusinessException("购物车商品不存在");
+        }
+        return cart;
+    }
+
+    private Cart requireCart(Cart cart) {
+        if (cart == null) {
+            throw new BusinessException("购物车商品不存在");
+        }
+        return cart;
+    }
+
+    private Cart newCart(Long userId, CartDTO cartDTO, String specInfoJson) {
+        Cart cart = new Cart();
+        cart.setUserId(userId);
+        cart.setProductId(cartDTO.getProductId());
+        cart.setSpecInfo(specInfoJson);
+        cart.setQuantity(cartDTO.getQuantity());
+        cart.setSelected(true);
+        cart.setCreateTime(new Date());
+        return cart;
+    }
+
+    /**
+     * 将客户端传入的规格JSON转换为规格键，无法解析时原样返回
+     *
+     * @param specInfo 规格信息JSON
+     * @return 规格键
+     */
+    private String canonicalSpecInfo(String specInfo) {
+        if (specInfo == null || specInfo.isEmpty()) {
+            return specInfo;
+        }
+        try {
+            Map<String, String> specMap = JSON.parseObject(specInfo, new TypeReference<Map<String, String>>() {
+            });
+            return specMap != null ? ProductSpecIndex.encode(specMap) : specInfo;
+        } catch (JSONException e) {
+            return specInfo;
+        }
     }
 
     /**
      * 将购物车项转换为Map，包含商品详情
      *
-     * @param cart 购物车项
+     * @param cart     购物车项
+     * @param products 已登记本页商品的加载器
      * @return 包含商品详情的Map
      */
-    private Map<String, Object> convertCartToMap(Cart cart) {
+    private Map<String, Object> convertCartToMap(Cart cart, BatchLoader<Product> products) {
         Map<String, Object> map = new HashMap<>();
         map.put("id", cart.getId());
         map.put("userId", cart.getUserId());
@@ -279,7 +364,7 @@ public class CartServiceImpl implements CartService {
         map.put("createTime", cart.getCreateTime());
 
         // 获取商品信息
-        Product product = productMapper.findById(cart.getProductId());
+        Product product = products.get(cart.getProductId());
         if (product != null) {
             map.put("product", product);
             // 计算总价
@@ -1,5 +1,7 @@
 package example.shopping.service.impl;
 
+import example.shopping.cache.BatchLoader;
+import example.shopping.cache.BatchLoaders;
 import example.shopping.dto.CustomerServiceDTO;
 import example.shopping.entity.CustomerServiceMessage;
 import example.shopping.entity.CustomerServiceSession;
@@ -38,6 +40,9 @@ public class CustomerServiceImpl implements CustomerServiceInterface {
     @Autowired
     private StoreMapper storeMapper;
 
+    @Autowired
+    private BatchLoaders batchLoaders;
+
     @Override
     @Transactional
     public CustomerServiceSession createSession(Long userId, CustomerServiceDTO.SessionDTO sessionDTO) {
@@ -197,13 +202,13 @@ public class CustomerServiceImpl implements CustomerServiceInterface {
         }
         
         List<CustomerServiceSession> sessions = sessionMapper.findByUserId(userId);
-        return sessions.stream().map(this::convertSessionToMap).collect(Collectors.toList());
+        return convertSessionsToMaps(sessions);
     }
 
     @Override
     public List<Map<String, Object>> findSessionsByStoreId(Long storeId) {
         List<CustomerServiceSession> sessions = sessionMapper.findByStoreId(storeId);
-        return sessions.stream().map(this::convertSessionToMap).collect(Collectors.toList());
+        return convertSessionsToMaps(sessions);
     }
 
     @Override
@@ -211,7 +216,7 @@ public class CustomerServiceImpl implements CustomerServiceInterface {
         // 计算偏移量
         int offset = (page - 1) * size;
         List<CustomerServiceSession> sessions = sessionMapper.findByStoreIdWithPage(storeId, offset, size);
-        return sessions.stream().map(this::convertSessionToMap).collect(Collectors.toList());
+        return convertSessionsToMaps(sessions);
     }
 
     @Override
@@ -282,6 +287,8 @@ public class CustomerServiceImpl implements CustomerServiceInterface {
     public List<Map<String, Object>> getComplaints() {
         List<CustomerServiceSession> complainedSessions = sessionMapper.findComplainedSessions();
         List<Map<String, Object>> result = new ArrayList<>();
+        BatchLoader<Store> stores = batchLoaders.stores();
+        complainedSessions.forEach(session -> stores.load(session.getStoreId()));
 
         for (CustomerServiceSession session : complainedSessions) {
             Map<String, Object> complaint = new HashMap<>();
@@ -290,7 +297,7 @@ public class CustomerServiceImpl implements CustomerServiceInterface {
             complaint.put("storeId", session.getStoreId());
 
             // 获取店铺信息
-            Store store = storeMapper.findById(session.getStoreId());
+            Store store = stores.get(session.getStoreId());
             if (store != null) {
                 complaint.put("storeName", store.getName());
             }
@@ -326,13 +333,15 @@ public class CustomerServiceImpl implements CustomerServiceInterface {
         // 计算偏移量
         int offset = (page - 1) * size;
         List<CustomerServiceSession> sessions = sessionMapper.findByUserIdWithPage(userId, offset, size);
+        BatchLoader<Store> stores = batchLoaders.stores();
+        sessions.forEach(session -> stores.load(session.getStoreId()));
         return sessions.stream().map(session -> {
             Map<String, Object> map = new HashMap<>();
             map.put("id", session.getId());
             map.put("storeId", session.getStoreId());
 
             // 获取店铺名称
-            Store store = storeMapper.findById(session.getStoreId());
+            Store store = stores.get(session.getStoreId());
             map.put("storeName", store != null ? store.getName() : null);
 
             map.put("status", session.getStatus());
@@ -369,25 +378,44 @@ public class CustomerServiceImpl implements CustomerServiceInterface {
         }
     }
 
+    /**
+     * 批量转换会话对象为Map，店铺和用户各批量查询一次
+     *
+     * @param sessions 会话列表
+     * @return Map列表
+     */
+    private List<Map<String, Object>> convertSessionsToMaps(List<CustomerServiceSession> sessions) {
+        BatchLoader<Store> stores = batchLoaders.stores();
+        BatchLoader<User> users = batchLoaders.users();
+        sessions.forEach(session -> {
+            stores.load(session.getStoreId());
+            users.load(session.getUserId());
+        });
+        return sessions.stream().map(session -> convertSessionToMap(session, stores, users)).collect(Collectors.toList());
+    }
+
     /**
      * 转换会话对象为Map
      *
      * @param session 会话对象
+     * @param stores  已登记本页店铺的加载器
+     * @param users   已登记本页用户的加载器
      * @return Map
      */
-    private Map<String, Object> convertSessionToMap(CustomerServiceSession session) {
+    private Map<String, Object> convertSessionToMap(CustomerServiceSession session, BatchLoader<Store> stores,
+                                                    BatchLoader<User> users) {
         Map<String, Object> map = new HashMap<>();
         map.put("id", session.getId());
         map.put("storeId", session.getStoreId());
 
         // 获取店铺名称
-        Store store = storeMapper.findById(session.getStoreId());
+        Store store = stores.get(session.getStoreId());
         map.put("storeName", store != null ? store.getName() : null);
 
         map.put("userId", session.getUserId());
 
         // 获取用户名
-        User user = userMapper.findById(session.getUserId());
+        User user = users.get(session.getUserId());
         map.put("username", user != null ? user.getUsername() : null);
 
         // 获取最后一条消息
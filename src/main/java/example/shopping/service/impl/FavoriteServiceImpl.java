@@ -1,5 +1,7 @@
 package example.shopping.service.impl;
 
+import example.shopping.cache.BatchLoader;
+import example.shopping.cache.BatchLoaders;
 import example.shopping.entity.Favorite;
 import example.shopping.entity.Product;
 import example.shopping.exception.BusinessException;
@@ -28,6 +30,9 @@ public class FavoriteServiceImpl implements FavoriteService {
     @Autowired
     private ProductMapper productMapper;
 
+    @Autowired
+    private BatchLoaders batchLoaders;
+
     @Override
     @Transactional
     public Favorite add(Long userId, Long productId) {
@@ -69,16 +74,20 @@ public class FavoriteServiceImpl implements FavoriteService {
     @Override
     public List<Map<String, Object>> findByUserId(Long userId) {
         List<Favorite> favorites = favoriteMapper.findByUserId(userId);
-        return favorites.stream().map(this::convertFavoriteToMap).collect(Collectors.toList());
+        BatchLoader<Product> products = batchLoaders.products();
+        favorites.forEach(favorite -> products.load(favorite.getProductId()));
+        return favorites.stream().map(favorite -> convertFavoriteToMap(favorite, products)).collect(Collectors.toList());
     }
 
     @Override
     public Map<String, Object> findByUserIdWithPage(Long userId, int pageNum, int pageSize) {
         int offset = (pageNum - 1) * pageSize;
         List<Favorite> favorites = favoriteMapper.findByUserIdWithPage(userId, offset, pageSize);
+        BatchLoader<Product> products = batchLoaders.products();
+        favorites.forEach(favorite -> products.load(favorite.getProductId()));
 
         List<Map<String, Object>> list = favorites.stream()
-                .map(this::convertFavoriteToMap)
+                .map(favorite -> convertFavoriteToMap(favorite, products))
                 .collect(Collectors.toList());
 
         Map<String, Object> result = new HashMap<>();
@@ -109,9 +118,10 @@ public class FavoriteServiceImpl implements FavoriteService {
      * 转换收藏对象为Map
      *
      * @param favorite 收藏对象
+     * @param products 已登记本页商品的加载器
      * @return Map
      */
-    private Map<String, Object> convertFavoriteToMap(Favorite favorite) {
+    private Map<String, Object> convertFavoriteToMap(Favorite favorite, BatchLoader<Product> products) {
         Map<String, Object> map = new HashMap<>();
         map.put("id", favorite.getId());
         map.put("userId", favorite.getUserId());
@@ -119,7 +129,7 @@ public class FavoriteServiceImpl implements FavoriteService {
         map.put("createTime", favorite.getCreateTime());
 
         // 获取商品信息
-        Product product = productMapper.findById(favorite.getProductId());
+        Product product = products.get(favorite.getProductId());
         if (product != null) {
             map.put("product", product);
         }
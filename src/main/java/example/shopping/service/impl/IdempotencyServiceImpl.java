@@ -0,0 +1,209 @@
+package example.shopping.service.impl;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.serializer.SerializerFeature;
+import example.shopping.cache.IdempotencyCache;
+import example.shopping.entity.IdempotencyRecord;
+import example.shopping.exception.BusinessException;
+import example.shopping.exception.IdempotencyKeyReusedException;
+import example.shopping.mapper.IdempotencyRecordMapper;
+import example.shopping.service.IdempotencyService;
+import example.shopping.utils.Result;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 幂等请求服务实现类
+ * <p>
+ * 本机的重复请求由 {@link IdempotencyCache} 直接返回缓存结果或等待首个请求完成，不访问数据库；
+ * 本机没有记录时才在数据库的 idempotency_keys 表中占用请求键，用于识别其他节点上的重复请求。处理失败或返回错误时
+ * 释放请求键，客户端可以用同一个键重试。同一个键的请求内容（MD5指纹）与首次请求不同时拒绝，
+ * 避免误把旧结果返回给新的请求。
+ */
+@Slf4j
+@Service
+public class IdempotencyServiceImpl implements IdempotencyService {
+
+    private static final int MAX_KEY_LENGTH = 64;
+
+    private static final int STATUS_PROCESSING = 0;
+
+    private static final int STATUS_COMPLETED = 1;
+
+    /**
+     * 处理中记录的有效期，节点宕机未释放的请求键超时后可重新占用
+     */
+    private static final long PROCESSING_TIMEOUT_MINUTES = 5;
+
+    /**
+     * 每占用多少次请求键清理一次数据库中的过期记录
+     */
+    private static final int PURGE_INTERVAL = 1000;
+
+    private static final int PURGE_BATCH_SIZE = 1000;
+
+    @Autowired
+    private IdempotencyCache idempotencyCache;
+
+    @Autowired
+    private IdempotencyRecordMapper idempotencyRecordMapper;
+
+    @Value("${idempotency.ttl-minutes:1440}")
+    private long ttlMinutes;
+
+    @Value("${idempotency.wait-seconds:10}")
+    private long waitSeconds;
+
+    private final AtomicLong claimCount = new AtomicLong();
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> Result<T> execute(String idempotencyKey, String operation, Object request, Class<?> dataType,
+                                 Supplier<Result<T>> action) {
+        if (!StringUtils.hasText(idempotencyKey)) {
+            return action.get();
+        }
+        if (idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new BusinessException("Idempotency-Key 长度不能超过" + MAX_KEY_LENGTH);
+        }
+
+        String requestKey = operation + ":" + currentUsername() + ":" + idempotencyKey;
+        String requestHash = fingerprint(request);
+        IdempotencyCache.Entry entry = idempotencyCache.find(requestKey);
+        if (entry == null) {
+            entry = idempotencyCache.claim(requestKey, requestHash);
+        }
+        if (!entry.isOwner()) {
+            if (!entry.matches(requestHash)) {
+                throw new IdempotencyKeyReusedException();
+            }
+            return (Result<T>) await(entry);
+        }
+
+        Result<T> result;
+        try {
+            if (!claimInDatabase(requestKey, requestHash)) {
+                IdempotencyRecord record = idempotencyRecordMapper.findByRequestKey(requestKey);
+                if (record != null && !requestHash.equals(record.getRequestHash())) {
+                    throw new IdempotencyKeyReusedException();
+                }
+                if (record == null || record.getStatus() != STATUS_COMPLETED) {
+                    throw new BusinessException("请求正在处理中，请勿重复提交");
+                }
+                result = Result.success((T) JSON.parseObject(record.getResponseData(), dataType),
+                        record.getResponseMessage());
+                idempotencyCache.complete(entry, result);
+                return result;
+            }
+        } catch (RuntimeException e) {
+            idempotencyCache.release(requestKey, entry, null, e);
+            throw e;
+        }
+
+        try {
+            result = action.get();
+        } catch (RuntimeException e) {
+            deleteRecord(requestKey);
+            idempotencyCache.release(requestKey, entry, null, e);
+            throw e;
+        }
+
+        if (Boolean.TRUE.equals(result.getSuccess())) {
+            try {
+                idempotencyRecordMapper.complete(requestKey, JSON.toJSONString(result.getData()),
+                        result.getMessage(), expireTime(ttlMinutes));
+            } catch (RuntimeException e) {
+                log.warn("保存幂等请求结果失败: {}", requestKey, e);
+            }
+            idempotencyCache.complete(entry, result);
+        } else {
+            deleteRecord(requestKey);
+            idempotencyCache.release(requestKey, entry, result, null);
+        }
+        return result;
+    }
+
+    /**
+     * 删除数据库记录，失败时由处理中超时兜底
+     */
+    private void deleteRecord(String requestKey) {
+        try {
+            idempotencyRecordMapper.deleteByRequestKey(requestKey);
+        } catch (RuntimeException e) {
+            log.warn("释放幂等请求键失败: {}", requestKey, e);
+        }
+    }
+
+    /**
+     * 等待首个请求的处理结果
+     */
+    private Result<?> await(IdempotencyCache.Entry entry) {
+        try {
+            return entry.getFuture().get(waitSeconds, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            throw new BusinessException("请求正在处理中，请勿重复提交");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new BusinessException("请求处理失败，请重试", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException("请求处理失败，请重试", e);
+        }
+    }
+
+    /**
+     * 在数据库中占用请求键，已过期的旧记录会被替换
+     */
+    private boolean claimInDatabase(String requestKey, String requestHash) {
+        Date now = new Date();
+        if (claimCount.incrementAndGet() % PURGE_INTERVAL == 0) {
+            int purged = idempotencyRecordMapper.deleteExpired(now, PURGE_BATCH_SIZE);
+            log.debug("清理过期幂等记录 {} 条", purged);
+        }
+
+        IdempotencyRecord record = new IdempotencyRecord();
+        record.setRequestKey(requestKey);
+        record.setRequestHash(requestHash);
+        record.setStatus(STATUS_PROCESSING);
+        record.setCreateTime(now);
+        record.setExpireTime(expireTime(PROCESSING_TIMEOUT_MINUTES));
+        if (idempotencyRecordMapper.insertIgnore(record) > 0) {
+            return true;
+        }
+        return idempotencyRecordMapper.deleteExpiredByRequestKey(requestKey, now) > 0
+                && idempotencyRecordMapper.insertIgnore(record) > 0;
+    }
+
+    /**
+     * 请求内容的指纹，Map 按键排序后序列化，字段顺序不同的相同内容得到相同指纹
+     */
+    private static String fingerprint(Object request) {
+        String json = JSON.toJSONString(request, SerializerFeature.MapSortField, SerializerFeature.SortField);
+        return DigestUtils.md5DigestAsHex(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Date expireTime(long minutes) {
+        return new Date(System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(minutes));
+    }
+
+    private String currentUsername() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null ? authentication.getName() : "anonymous";
+    }
+}
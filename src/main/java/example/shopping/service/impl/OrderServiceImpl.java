@@ -1,21 +1,39 @@
 package example.shopping.service.impl;
 
 import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONException;
+import com.alibaba.fastjson.TypeReference;
+import example.shopping.cache.CartCountCache;
+import example.shopping.cache.CartWriteBackStore;
+import example.shopping.cache.OrderCountCache;
+import example.shopping.cache.ProductSpecIndexCache;
+import example.shopping.dto.CheckoutDTO;
 import example.shopping.dto.OrderDTO;
+import example.shopping.dto.OrderQueryDTO;
+import example.shopping.dto.OrderSummaryDTO;
 import example.shopping.entity.Address;
+import example.shopping.entity.Cart;
 import example.shopping.entity.Order;
 import example.shopping.entity.Product;
 import example.shopping.entity.User;
 import example.shopping.exception.BusinessException;
 import example.shopping.mapper.AddressMapper;
+import example.shopping.mapper.CartMapper;
 import example.shopping.mapper.OrderMapper;
 import example.shopping.mapper.ProductMapper;
 import example.shopping.mapper.UserMapper;
 import example.shopping.service.CartService;
 import example.shopping.service.OrderService;
 import example.shopping.service.UserService;
+import example.shopping.statemachine.OrderStateMachine;
+import example.shopping.statemachine.OrderStatus;
+import example.shopping.statemachine.OrderTransition;
+import example.shopping.statemachine.OrderTransitionEvent;
+import example.shopping.utils.SnowflakeIdGenerator;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -29,42 +47,14 @@ import java.util.*;
 @Slf4j
 public class OrderServiceImpl implements OrderService {
 
-    public enum OrderStatus {
-        UNPAID(0, "待支付"),
-        PAID(1, "已支付"),
-        SHIPPED(2, "已发货"),
-        COMPLETED(3, "已完成"),
-        CANCELLED(4, "已取消"),
-        REFUNDED(5, "已退款"),
-        REFUND_PENDING(6, "退款申请中"),
-        REFUND_REJECTED(7, "退款被拒绝"),
-        REVIEWED(8, "已评价");
+    private static final int DEFAULT_PAGE_SIZE = 20;
 
-        private final int value;
-        private final String description;
+    private static final int MAX_PAGE_SIZE = 100;
 
-        OrderStatus(int value, String description) {
-            this.value = value;
-            this.description = description;
-        }
-
-        public int getValue() {
-            return value;
-        }
-
-        public String getDescription() {
-            return description;
-        }
-
-        public static OrderStatus fromValue(int value) {
-            for (OrderStatus status : OrderStatus.values()) {
-                if (status.getValue() == value) {
-                    return status;
-                }
-            }
-            throw new IllegalArgumentException("Unknown OrderStatus value: " + value);
-        }
-    }
+    /**
+     * 批量操作单次最多处理的订单数
+     */
+    private static final int MAX_BATCH_SIZE = 200;
 
     @Autowired
     private OrderMapper orderMapper;
@@ -84,9 +74,39 @@ public class OrderServiceImpl implements OrderService {
     @Autowired
     private AddressMapper addressMapper;
 
+    @Autowired
+    private CartMapper cartMapper;
+
+    @Autowired
+    private ProductSpecIndexCache productSpecIndexCache;
+
+    @Autowired
+    private CartWriteBackStore cartWriteBackStore;
+
+    @Autowired
+    private CartCountCache cartCountCache;
+
+    @Autowired
+    private OrderCountCache orderCountCache;
+
+    @Autowired
+    private OrderStateMachine orderStateMachine;
+
+    @Autowired
+    private SnowflakeIdGenerator idGenerator;
+
+    /**
+     * 是否使用生成的ID作为订单主键
+     */
+    @Value("${id-generator.assign-order-id:false}")
+    private boolean assignOrderId;
+
     @Override
     @Transactional
     public Order create(Long userId, OrderDTO orderDTO) {
+        // 先写回内存购物车的修改，需在本事务第一次查询之前完成
+        cartWriteBackStore.flush(userId);
+
         // 检查用户是否存在
         User user = userMapper.findById(userId);
         if (user == null) {
@@ -98,8 +118,9 @@ public class OrderServiceImpl implements OrderService {
             throw new BusinessException("订单项不能为空");
         }
 
-        // 生成订单编号
-        String orderNo = generateOrderNo();
+        // 生成订单编号，订单编号即补齐为19位的雪花ID
+        long orderId = idGenerator.nextId();
+        String orderNo = SnowflakeIdGenerator.toNo(orderId);
 
         // 计算总金额并构建订单项JSON
         BigDecimal totalAmount = BigDecimal.ZERO;
@@ -122,6 +143,9 @@ public class OrderServiceImpl implements OrderService {
                 throw new BusinessException("商品库存不足: " + product.getName());
             }
 
+            // 验证规格信息
+            String specInfo = canonicalSpecInfo(product, item.getSpecInfo());
+
             // 减少商品库存
             int result = productMapper.decreaseStock(item.getProductId(), item.getQuantity());
             if (result <= 0) {
@@ -138,7 +162,7 @@ public class OrderServiceImpl implements OrderService {
             orderItem.put("productName", product.getName());
             orderItem.put("price", product.getPrice());
             orderItem.put("quantity", item.getQuantity());
-            orderItem.put("specInfo", item.getSpecInfo());
+            orderItem.put("specInfo", specInfo);
             orderItem.put("totalPrice", itemTotalPrice);
             orderItems.add(orderItem);
 
@@ -151,6 +175,9 @@ public class OrderServiceImpl implements OrderService {
 
         // 创建订单
         Order order = new Order();
+        if (assignOrderId) {
+            order.setId(orderId);
+        }
         order.setOrderNo(orderNo);
         order.setUserId(userId);
         order.setStoreId(orderDTO.getStoreId());
@@ -160,11 +187,13 @@ public class OrderServiceImpl implements OrderService {
         order.setPaymentType(orderDTO.getPaymentType());
         order.setStatus(OrderStatus.UNPAID.getValue());
         order.setRemark(orderDTO.getRemark());
+        order.setVersion(0);
         Date now = new Date();
         order.setCreateTime(now);
         order.setUpdateTime(now);
 
         orderMapper.insert(order);
+        orderStateMachine.created(order);
 
         // 清空购物车中已购买的商品
         cartService.deleteSelected(userId);
@@ -172,6 +201,128 @@ public class OrderServiceImpl implements OrderService {
         return order;
     }
 
+    @Override
+    @Transactional
+    public Map<String, Object> checkout(Long userId, CheckoutDTO checkoutDTO) {
+        // 先写回内存购物车的修改，需在本事务第一次查询之前完成
+        cartWriteBackStore.flush(userId);
+
+        User user = userMapper.findById(userId);
+        if (user == null) {
+            throw new BusinessException("用户不存在");
+        }
+
+        List<Cart> carts = cartMapper.findSelectedByUserId(userId);
+        if (carts.isEmpty()) {
+            throw new BusinessException("请先选择要结算的商品");
+        }
+
+        // 一次查询所有商品，按商品汇总购买数量
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        for (Cart cart : carts) {
+            quantities.merge(cart.getProductId(), cart.getQuantity(), Integer::sum);
+        }
+        Map<Long, Product> products = new HashMap<>();
+        for (Product product : productMapper.findByIds(quantities.keySet())) {
+            products.put(product.getId(), product);
+        }
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            Product product = products.get(entry.getKey());
+            if (product == null) {
+                throw new BusinessException("商品不存在: " + entry.getKey());
+            }
+            if (product.getStatus() != 1) {
+                throw new BusinessException("商品已下架: " + product.getName());
+            }
+            if (product.getStock() < entry.getValue()) {
+                throw new BusinessException("商品库存不足: " + product.getName());
+            }
+        }
+
+        // 商品规格可能在加入购物车后被修改，按当前规格重新验证
+        Map<Long, String> specInfos = new HashMap<>();
+        for (Cart cart : carts) {
+            specInfos.put(cart.getId(), canonicalSpecInfo(products.get(cart.getProductId()), cart.getSpecInfo()));
+        }
+
+        // 一条语句扣减所有商品库存，任一商品库存不足时整体回滚
+        if (productMapper.decreaseStockBatch(quantities) != quantities.size()) {
+            throw new BusinessException("商品库存不足，请刷新购物车后重试");
+        }
+
+        // 按店铺分组构建订单项
+        Map<Long, List<Map<String, Object>>> itemsByStore = new LinkedHashMap<>();
+        Map<Long, BigDecimal> amountByStore = new HashMap<>();
+        List<Long> cartIds = new ArrayList<>(carts.size());
+        for (Cart cart : carts) {
+            Product product = products.get(cart.getProductId());
+            BigDecimal itemTotalPrice = product.getPrice().multiply(new BigDecimal(cart.getQuantity()));
+
+            Map<String, Object> orderItem = new HashMap<>();
+            orderItem.put("productId", product.getId());
+            orderItem.put("productName", product.getName());
+            orderItem.put("price", product.getPrice());
+            orderItem.put("quantity", cart.getQuantity());
+            orderItem.put("specInfo", specInfos.get(cart.getId()));
+            orderItem.put("totalPrice", itemTotalPrice);
+            itemsByStore.computeIfAbsent(product.getStoreId(), k -> new ArrayList<>()).add(orderItem);
+            amountByStore.merge(product.getStoreId(), itemTotalPrice, BigDecimal::add);
+            cartIds.add(cart.getId());
+        }
+
+        String addressInfo = getAddressInfo(user, checkoutDTO.getAddressId());
+        Map<Long, String> remarks = checkoutDTO.getRemarks() != null ? checkoutDTO.getRemarks() : Collections.emptyMap();
+        String checkoutNo = SnowflakeIdGenerator.toNo(idGenerator.nextId());
+        Date now = new Date();
+
+        List<Order> orders = new ArrayList<>(itemsByStore.size());
+        BigDecimal totalAmount = BigDecimal.ZERO;
+        for (Map.Entry<Long, List<Map<String, Object>>> entry : itemsByStore.entrySet()) {
+            Long storeId = entry.getKey();
+            long orderId = idGenerator.nextId();
+
+            Order order = new Order();
+            if (assignOrderId) {
+                order.setId(orderId);
+            }
+            order.setOrderNo(SnowflakeIdGenerator.toNo(orderId));
+            order.setCheckoutNo(checkoutNo);
+            order.setUserId(userId);
+            order.setStoreId(storeId);
+            order.setItems(JSON.toJSONString(entry.getValue()));
+            order.setTotalAmount(amountByStore.get(storeId));
+            order.setAddressInfo(addressInfo);
+            order.setPaymentType(checkoutDTO.getPaymentType());
+            order.setStatus(OrderStatus.UNPAID.getValue());
+            order.setRemark(remarks.get(storeId));
+            order.setVersion(0);
+            order.setCreateTime(now);
+            order.setUpdateTime(now);
+            orders.add(order);
+            totalAmount = totalAmount.add(order.getTotalAmount());
+        }
+
+        if (assignOrderId) {
+            orderMapper.insertBatchWithIds(orders);
+        } else {
+            orderMapper.insertBatch(orders);
+        }
+        for (Order order : orders) {
+            orderStateMachine.created(order);
+        }
+
+        // 只删除本次结算的购物车项，结算期间新勾选的商品保留
+        cartMapper.deleteByUserIdAndIds(userId, cartIds);
+        cartWriteBackStore.invalidate(userId);
+        cartCountCache.evict(userId);
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("checkoutNo", checkoutNo);
+        result.put("orders", orders);
+        result.put("totalAmount", totalAmount);
+        return result;
+    }
+
     @Override
     public Order findById(Long id) {
         return orderMapper.findById(id);
@@ -192,6 +343,57 @@ public class OrderServiceImpl implements OrderService {
         return orderMapper.findByStoreId(storeId);
     }
 
+    @Override
+    public Map<String, Object> findStoreOrders(Long storeId, OrderQueryDTO query) {
+        int pageSize = query.getPageSize() == null ? DEFAULT_PAGE_SIZE
+                : Math.max(1, Math.min(query.getPageSize(), MAX_PAGE_SIZE));
+
+        // 解析游标：上一页最后一条的 下单时间毫秒_订单ID
+        Date cursorTime = null;
+        Long cursorId = null;
+        if (query.getCursor() != null && !query.getCursor().isEmpty()) {
+            String[] parts = query.getCursor().split("_");
+            try {
+                if (parts.length != 2) {
+                    throw new NumberFormatException(query.getCursor());
+                }
+                cursorTime = new Date(Long.parseLong(parts[0]));
+                cursorId = Long.valueOf(parts[1]);
+            } catch (NumberFormatException e) {
+                throw new BusinessException("无效的翻页游标");
+            }
+        }
+
+        // 多查一条用于判断是否还有下一页
+        List<?> rows;
+        Date lastTime = null;
+        Long lastId = null;
+        if (Boolean.TRUE.equals(query.getDetail())) {
+            List<Order> orders = orderMapper.findStoreOrders(storeId, query, cursorTime, cursorId, pageSize + 1);
+            if (orders.size() > pageSize) {
+                orders = orders.subList(0, pageSize);
+                lastTime = orders.get(pageSize - 1).getCreateTime();
+                lastId = orders.get(pageSize - 1).getId();
+            }
+            rows = orders;
+        } else {
+            List<OrderSummaryDTO> orders = orderMapper.findStoreOrderSummaries(storeId, query, cursorTime, cursorId, pageSize + 1);
+            if (orders.size() > pageSize) {
+                orders = orders.subList(0, pageSize);
+                lastTime = orders.get(pageSize - 1).getCreateTime();
+                lastId = orders.get(pageSize - 1).getId();
+            }
+            rows = orders;
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("list", rows);
+        result.put("pageSize", pageSize);
+        result.put("hasMore", lastId != null);
+        result.put("nextCursor", lastId != null ? lastTime.getTime() + "_" + lastId : null);
+        return result;
+    }
+
     @Override
     public List<Order> findByUserIdAndStatus(Long userId, Integer status) {
         return orderMapper.findByUserIdAndStatus(userId, status);
@@ -219,77 +421,28 @@ public class OrderServiceImpl implements OrderService {
             throw new BusinessException("订单不存在");
         }
 
-        orderMapper.updateStatus(id, status);
-        order.setStatus(status);
-        order.setUpdateTime(new Date());
-
+        orderStateMachine.forceStatus(order, status);
         return order;
     }
 
     @Override
     @Transactional
     public boolean cancel(Long userId, Long id) {
-        Order order = orderMapper.findById(id);
-        if (order == null) {
-            throw new BusinessException("订单不存在");
-        }
-
-        // 检查订单是否属于该用户
-        if (!order.getUserId().equals(userId)) {
-            throw new BusinessException("无权操作此订单");
-        }
-
-        // 检查订单状态是否为待付款
-        if (order.getStatus() != OrderStatus.UNPAID.getValue()) {
-            throw new BusinessException("只能取消待付款订单");
-        }
-
-        // 恢复商品库存
-        List<Map> orderItemsList = JSON.parseArray(order.getItems(), Map.class);
-        for (Map item : orderItemsList) {
-            Long productId = Long.valueOf(item.get("productId").toString());
-            Integer quantity = Integer.valueOf(item.get("quantity").toString());
-
-            // 增加商品库存
-            Product product = productMapper.findById(productId);
-            if (product != null) {
-                product.setStock(product.getStock() + quantity);
-                product.setSales(product.getSales() - quantity);
-                productMapper.update(product);
-            }
-        }
-
-        // 更新订单状态为已取消
-        order.setStatus(OrderStatus.CANCELLED.getValue());
-        order.setUpdateTime(new Date());
-        return orderMapper.update(order) > 0;
+        Order order = findOwnedOrder(userId, id);
+        orderStateMachine.fire(order, OrderTransition.CANCEL);
+        return true;
     }
 
     @Override
     @Transactional
     public boolean pay(Long userId, Long id, String paymentType) {
-        Order order = orderMapper.findById(id);
-        if (order == null) {
-            throw new BusinessException("订单不存在");
-        }
-
-        // 检查订单是否属于该用户
-        if (!order.getUserId().equals(userId)) {
-            throw new BusinessException("无权操作此订单");
-        }
-
-        // 检查订单状态是否为待付款
-        if (order.getStatus() != OrderStatus.UNPAID.getValue()) {
-            throw new BusinessException("订单状态错误");
-        }
+        Order order = findOwnedOrder(userId, id);
 
         // 模拟支付成功
-        order.setStatus(OrderStatus.PAID.getValue());
         order.setPaymentType(paymentType);
         order.setPaymentTime(new Date());
-        order.setUpdateTime(new Date());
-
-        return orderMapper.update(order) > 0;
+        orderStateMachine.fire(order, OrderTransition.PAY);
+        return true;
     }
 
     @Override
@@ -300,113 +453,104 @@ public class OrderServiceImpl implements OrderService {
             throw new BusinessException("订单不存在");
         }
 
-        // 检查订单状态是否为待发货
-        if (order.getStatus() != OrderStatus.PAID.getValue()) {
-            throw new BusinessException("订单状态错误");
-        }
-
-        order.setStatus(OrderStatus.SHIPPED.getValue());
         order.setShippingTime(new Date());
-        order.setUpdateTime(new Date());
-
-        return orderMapper.update(order) > 0;
+        orderStateMachine.fire(order, OrderTransition.SHIP);
+        return true;
     }
 
     @Override
     @Transactional
     public boolean receive(Long userId, Long id) {
-        Order order = orderMapper.findById(id);
-        if (order == null) {
-            throw new BusinessException("订单不存在");
-        }
-
-        // 检查订单是否属于该用户
-        if (!order.getUserId().equals(userId)) {
-            throw new BusinessException("无权操作此订单");
-        }
-
-        // 检查订单状态是否为待收货
-        if (order.getStatus() != OrderStatus.SHIPPED.getValue()) {
-            throw new BusinessException("订单状态错误");
-        }
-
-        order.setStatus(OrderStatus.COMPLETED.getValue());
-        order.setUpdateTime(new Date());
-
-        return orderMapper.update(order) > 0;
+        Order order = findOwnedOrder(userId, id);
+        orderStateMachine.fire(order, OrderTransition.RECEIVE);
+        return true;
     }
 
     @Override
     @Transactional
     public boolean applyRefund(Long userId, Long id, String reason) {
+        Order order = findOwnedOrder(userId, id);
+        order.setRefundReason(reason);
+        orderStateMachine.fire(order, OrderTransition.APPLY_REFUND);
+        return true;
+    }
+
+    @Override
+    @Transactional
+    public boolean handleRefund(Long id, boolean isAgree) {
         Order order = orderMapper.findById(id);
         if (order == null) {
             throw new BusinessException("订单不存在");
         }
 
-        // 检查订单是否属于该用户
-        if (!order.getUserId().equals(userId)) {
-            throw new BusinessException("无权操作此订单");
-        }
+        orderStateMachine.fire(order, isAgree ? OrderTransition.AGREE_REFUND : OrderTransition.REJECT_REFUND);
+        return true;
+    }
 
-        // 检查订单状态是否为待发货或待收货
-        if (order.getStatus() != OrderStatus.PAID.getValue() &&
-                order.getStatus() != OrderStatus.SHIPPED.getValue()) {
-            throw new BusinessException("当前订单状态不支持申请退款");
-        }
+    @Override
+    @Transactional
+    public Map<String, Object> batchShip(Long storeId, List<Long> ids) {
+        List<Long> orderIds = normalizeBatchIds(ids);
+        List<Order> orders = orderMapper.findByIds(storeId, orderIds);
+
+        Order changes = new Order();
+        changes.setShippingTime(new Date());
+        Map<Long, String> failures = orderStateMachine.fireAll(orders, OrderTransition.SHIP, changes);
+        return buildBatchResult(orderIds, orders, failures);
+    }
 
-        order.setStatus(OrderStatus.REFUND_PENDING.getValue());
-        order.setRefundReason(reason);
-        order.setUpdateTime(new Date());
+    @Override
+    @Transactional
+    public Map<String, Object> batchHandleRefund(Long storeId, List<Long> ids, boolean isAgree) {
+        List<Long> orderIds = normalizeBatchIds(ids);
+        List<Order> orders = orderMapper.findByIds(storeId, orderIds);
 
-        return orderMapper.update(order) > 0;
+        Map<Long, String> failures = orderStateMachine.fireAll(orders,
+                isAgree ? OrderTransition.AGREE_REFUND : OrderTransition.REJECT_REFUND, null);
+        return buildBatchResult(orderIds, orders, failures);
     }
 
     @Override
     @Transactional
-    public boolean handleRefund(Long id, boolean isAgree) {
-        Order order = orderMapper.findById(id);
-        if (order == null) {
-            throw new BusinessException("订单不存在");
-        }
-
-        // 检查退款状态是否为申请退款
-        if (order.getStatus() != OrderStatus.REFUND_PENDING.getValue()) {
-            throw new BusinessException("退款状态错误");
-        }
+    public Map<String, Object> batchUpdateStatus(List<Long> ids, Integer status) {
+        List<Long> orderIds = normalizeBatchIds(ids);
+        List<Order> orders = orderMapper.findByIds(null, orderIds);
 
-        if (isAgree) {
-            order.setStatus(OrderStatus.REFUNDED.getValue());
-            // 恢复商品库存
-            List<Map> orderItemsList = JSON.parseArray(order.getItems(), Map.class);
-            for (Map item : orderItemsList) {
-                Long productId = Long.valueOf(item.get("productId").toString());
-                Integer quantity = Integer.valueOf(item.get("quantity").toString());
+        orderStateMachine.forceAll(orders, status);
+        return buildBatchResult(orderIds, orders, Collections.emptyMap());
+    }
 
-                // 增加商品库存
-                Product product = productMapper.findById(productId);
-                if (product != null) {
-                    product.setStock(product.getStock() + quantity);
-                    product.setSales(product.getSales() - quantity);
-                    productMapper.update(product);
-                }
-            }
-        } else {
-            order.setStatus(OrderStatus.REFUND_REJECTED.getValue());
+    /**
+     * 取消订单或同意退款后恢复商品库存
+     * <p>
+     * 状态机保证同一订单的流转只会成功一次，因此库存不会被重复恢复。
+     *
+     * @param event 订单状态流转事件
+     */
+    @EventListener(condition = "#event.transition == T(example.shopping.statemachine.OrderTransition).CANCEL"
+            + " or #event.transition == T(example.shopping.statemachine.OrderTransition).AGREE_REFUND")
+    public void restoreStock(OrderTransitionEvent event) {
+        List<Map> orderItemsList = JSON.parseArray(event.getOrder().getItems(), Map.class);
+        for (Map item : orderItemsList) {
+            Long productId = Long.valueOf(item.get("productId").toString());
+            int quantity = Integer.parseInt(item.get("quantity").toString());
+            productMapper.restoreStock(productId, quantity);
         }
-
-        order.setUpdateTime(new Date());
-        return orderMapper.update(order) > 0;
     }
 
     @Override
     public Map<String, Integer> countByStatus(Long userId) {
+        int[] counts = orderCountCache.get(userId, () -> loadStatusCounts(userId));
+
         Map<String, Integer> result = new HashMap<>();
-        result.put("pendingPayment", orderMapper.findByUserIdAndStatus(userId, OrderStatus.UNPAID.getValue()).size());
-        result.put("pendingShipment", orderMapper.findByUserIdAndStatus(userId, OrderStatus.PAID.getValue()).size());
-        result.put("pendingReceipt", orderMapper.findByUserIdAndStatus(userId, OrderStatus.SHIPPED.getValue()).size());
-        result.put("completed", orderMapper.findByUserIdAndStatus(userId, OrderStatus.COMPLETED.getValue()).size());
-        result.put("pendingReview", orderMapper.findPendingReview(userId).size());
+        result.put("pendingPayment", counts[OrderStatus.UNPAID.getValue()]);
+        result.put("pendingShipment", counts[OrderStatus.PAID.getValue()]);
+        result.put("pendingReceipt", counts[OrderStatus.SHIPPED.getValue()]);
+        result.put("completed", counts[OrderStatus.COMPLETED.getValue()]);
+        result.put("pendingReview", counts[OrderStatus.COMPLETED.getValue()]
+                + counts[OrderStatus.REFUNDED.getValue()]
+                + counts[OrderStatus.REFUND_PENDING.getValue()]
+                + counts[OrderStatus.REFUND_REJECTED.getValue()]);
 
         return result;
     }
@@ -440,12 +584,31 @@ public class OrderServiceImpl implements OrderService {
     }
 
     @Override
+    @Transactional
     public void updateOrder(Order order) {
-        if (order == null) {
+        if (order == null || order.getId() == null) {
             throw new BusinessException("订单不能为空");
         }
+        Order current = orderMapper.findById(order.getId());
+        if (current == null) {
+            throw new BusinessException("订单不存在");
+        }
+
+        // 按调用方读取时的版本号更新其他字段，期间订单被修改过则失败
+        int version = order.getVersion() == null ? 0 : order.getVersion();
+        order.setVersion(version);
         order.setUpdateTime(new Date());
-        orderMapper.update(order);
+        if (orderMapper.update(order) == 0) {
+            throw new BusinessException("订单状态已变更，请刷新后重试");
+        }
+        order.setVersion(version + 1);
+
+        // 状态变更经状态机按原状态和版本号写入，并发布流转事件更新计数和统计
+        Integer toStatus = order.getStatus();
+        order.setStatus(current.getStatus());
+        if (toStatus != null && !toStatus.equals(current.getStatus())) {
+            orderStateMachine.forceStatus(order, toStatus);
+        }
     }
 
     @Override
@@ -454,17 +617,122 @@ public class OrderServiceImpl implements OrderService {
     }
 
     /**
-     * 生成订单编号
+     * 去重并校验批量操作的订单ID
+     *
+     * @param ids 订单ID列表
+     * @return 去重后的订单ID列表
+     */
+    private List<Long> normalizeBatchIds(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            throw new BusinessException("订单ID不能为空");
+        }
+        Set<Long> unique = new LinkedHashSet<>();
+        for (Long id : ids) {
+            if (id != null) {
+                unique.add(id);
+            }
+        }
+        if (unique.isEmpty()) {
+            throw new BusinessException("订单ID不能为空");
+        }
+        if (unique.size() > MAX_BATCH_SIZE) {
+            throw new BusinessException("单次最多处理" + MAX_BATCH_SIZE + "个订单");
+        }
+        return new ArrayList<>(unique);
+    }
+
+    /**
+     * 按请求顺序汇总批量操作结果，未查到的订单（不存在或不属于该店铺）记为失败
+     *
+     * @param ids      订单ID列表
+     * @param orders   查到的订单
+     * @param failures 未能流转的订单ID及原因
+     * @return 成功数量、失败数量及每个订单的处理结果
+     */
+    private Map<String, Object> buildBatchResult(List<Long> ids, List<Order> orders, Map<Long, String> failures) {
+        Set<Long> found = new HashSet<>();
+        for (Order order : orders) {
+            found.add(order.getId());
+        }
+
+        List<Map<String, Object>> results = new ArrayList<>(ids.size());
+        int successCount = 0;
+        for (Long id : ids) {
+            String message = !found.contains(id) ? "订单不存在" : failures.get(id);
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("id", id);
+            item.put("success", message == null);
+            if (message != null) {
+                item.put("message", message);
+            } else {
+                successCount++;
+            }
+            results.add(item);
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("successCount", successCount);
+        result.put("failCount", ids.size() - successCount);
+        result.put("results", results);
+        return result;
+    }
+
+    /**
+     * 按商品规格校验订单项的规格信息并编码为规格键
+     *
+     * @param product  商品信息
+     * @param specInfo 规格信息JSON
+     * @return 规格键
+     */
+    private String canonicalSpecInfo(Product product, String specInfo) {
+        if (specInfo == null || specInfo.isEmpty()) {
+            return specInfo;
+        }
+        Map<String, String> specMap;
+        try {
+            specMap = JSON.parseObject(specInfo, new TypeReference<Map<String, String>>() {
+            });
+        } catch (JSONException e) {
+            throw new BusinessException("规格信息格式错误");
+        }
+        return productSpecIndexCache.get(product).canonicalize(specMap);
+    }
+
+    /**
+     * 查询属于指定用户的订单
+     *
+     * @param userId 用户ID
+     * @param id     订单ID
+     * @return 订单信息
+     */
+    private Order findOwnedOrder(Long userId, Long id) {
+        Order order = orderMapper.findById(id);
+        if (order == null) {
+            throw new BusinessException("订单不存在");
+        }
+
+        // 检查订单是否属于该用户
+        if (!order.getUserId().equals(userId)) {
+            throw new BusinessException("无权操作此订单");
+        }
+        return order;
+    }
+
+    /**
+     * 通过一次分组查询加载用户各状态订单数量
      *
-     * @return 订单编号
+     * @param userId 用户ID
+     * @return 按状态值下标存放的订单数量
      */
-    private String generateOrderNo() {
-        StringBuilder sb = new StringBuilder();
-        // 年月日时分秒
-        sb.append(new java.text.SimpleDateFormat("yyyyMMddHHmmss").format(new Date()));
-        // 6位随机数
-        sb.append(String.format("%06d", new Random().nextInt(1000000)));
-        return sb.toString();
+    private int[] loadStatusCounts(Long userId) {
+        int[] counts = new int[OrderCountCache.STATUS_SLOTS];
+        for (Map<String, Object> row : orderMapper.countByUserIdGroupByStatus(userId)) {
+            int status = ((Number) row.get("status")).intValue();
+            if (status >= 0 && status < counts.length) {
+                counts[status] = ((Number) row.get("count")).intValue();
+            }
+        }
+        return counts;
     }
 
     /**
@@ -3,9 +3,11 @@ package example.shopping.service.impl;
 import example.shopping.entity.Order;
 import example.shopping.service.OrderService;
 import example.shopping.service.PaymentService;
-import example.shopping.service.impl.OrderServiceImpl.OrderStatus;
+import example.shopping.statemachine.OrderStateMachine;
+import example.shopping.statemachine.OrderTransition;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Date;
 import java.util.HashMap;
@@ -17,20 +19,21 @@ public class PaymentServiceImpl implements PaymentService {
     @Autowired
     private OrderService orderService;
 
+    @Autowired
+    private OrderStateMachine orderStateMachine;
+
     @Override
+    @Transactional
     public Map<String, Object> pay(Long orderId, String paymentType) {
         Order order = orderService.getOrderById(orderId);
         if (order == null) {
             throw new RuntimeException("订单不存在");
         }
-        if (order.getStatus() != OrderStatus.UNPAID.getValue()) {
-            throw new RuntimeException("订单状态不正确");
-        }
 
         // 模拟支付过程
-        order.setStatus(OrderStatus.PAID.getValue());
+        order.setPaymentType(paymentType);
         order.setPaymentTime(new Date());
-        orderService.updateOrder(order);
+        orderStateMachine.fire(order, OrderTransition.PAY);
 
         Map<String, Object> result = new HashMap<>();
         result.put("success", true);
@@ -42,39 +45,27 @@ public class PaymentServiceImpl implements PaymentService {
     }
 
     @Override
+    @Transactional
     public boolean applyRefund(Long orderId, String reason) {
         Order order = orderService.getOrderById(orderId);
         if (order == null) {
             throw new RuntimeException("订单不存在");
         }
-        if (order.getStatus() != OrderStatus.PAID.getValue() &&
-                order.getStatus() != OrderStatus.SHIPPED.getValue() &&
-                order.getStatus() != OrderStatus.COMPLETED.getValue()) {
-            throw new RuntimeException("订单状态不允许申请退款");
-        }
 
-        order.setStatus(OrderStatus.REFUND_PENDING.getValue());
         order.setRefundReason(reason);
-        orderService.updateOrder(order);
+        orderStateMachine.fire(order, OrderTransition.APPLY_PAYMENT_REFUND);
         return true;
     }
 
     @Override
+    @Transactional
     public boolean handleRefund(Long orderId, Boolean isAgree) {
         Order order = orderService.getOrderById(orderId);
         if (order == null) {
             throw new RuntimeException("订单不存在");
         }
-        if (order.getStatus() != OrderStatus.REFUND_PENDING.getValue()) {
-            throw new RuntimeException("订单状态不正确");
-        }
 
-        if (isAgree) {
-            order.setStatus(OrderStatus.REFUNDED.getValue());
-        } else {
-            order.setStatus(OrderStatus.REFUND_REJECTED.getValue());
-        }
-        orderService.updateOrder(order);
+        orderStateMachine.fire(order, Boolean.TRUE.equals(isAgree) ? OrderTransition.AGREE_REFUND : OrderTransition.REJECT_REFUND);
         return true;
     }
 
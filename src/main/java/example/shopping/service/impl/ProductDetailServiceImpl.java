@@ -0,0 +1,134 @@
+package example.shopping.service.impl;
+
+import example.shopping.entity.Product;
+import example.shopping.entity.User;
+import example.shopping.exception.BusinessException;
+import example.shopping.service.*;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 商品详情页聚合服务实现类
+ * <p>
+ * 商品、评论、评论统计、收藏数和收藏状态在有界线程池中同时查询，店铺在商品返回后查询。
+ * 各部分从开始查询起最多等待 branch-timeout-ms，超时或出错的部分置为null，不影响其他部分返回；
+ * 线程池满时由请求线程直接执行。
+ */
+@Slf4j
+@Service
+public class ProductDetailServiceImpl implements ProductDetailService {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private StoreService storeService;
+
+    @Autowired
+    private ReviewService reviewService;
+
+    @Autowired
+    private FavoriteService favoriteService;
+
+    @Autowired
+    private UserService userService;
+
+    @Value("${product-detail.threads:8}")
+    private int threads;
+
+    @Value("${product-detail.queue-capacity:200}")
+    private int queueCapacity;
+
+    @Value("${product-detail.branch-timeout-ms:500}")
+    private long branchTimeoutMillis;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger count = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+            Thread thread = new Thread(r, "product-detail-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public Map<String, Object> getDetail(Long productId, String username) {
+        long deadline = System.currentTimeMillis() + branchTimeoutMillis;
+
+        CompletableFuture<Product> product = submit(() -> productService.findById(productId));
+        CompletableFuture<Object> store = product.thenApplyAsync(
+                p -> p == null ? null : storeService.findById(p.getStoreId()), executor);
+        CompletableFuture<Object> reviews = submit(() -> reviewService.findByProductIdAndStatus(productId, 1));
+        CompletableFuture<Object> reviewStats = submit(() -> {
+            Map<String, Object> stats = new HashMap<>();
+            stats.put("count", reviewService.countByProductId(productId));
+            stats.put("averageRating", reviewService.calculateAverageRating(productId));
+            return stats;
+        });
+        CompletableFuture<Object> favoriteCount = submit(() -> favoriteService.countByProductId(productId));
+        CompletableFuture<Object> favorite = username == null ? CompletableFuture.completedFuture(false)
+                : submit(() -> {
+            User user = userService.findByUsername(username);
+            return user != null && favoriteService.isFavorite(user.getId(), productId);
+        });
+
+        List<String> missing = new ArrayList<>();
+        Product found = await("product", product, deadline, missing);
+        if (found == null) {
+            if (!missing.isEmpty()) {
+                throw new BusinessException("商品信息加载失败，请稍后重试");
+            }
+            throw new BusinessException("商品不存在");
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("product", found);
+        result.put("store", await("store", store, deadline, missing));
+        result.put("reviews", await("reviews", reviews, deadline, missing));
+        result.put("reviewStats", await("reviewStats", reviewStats, deadline, missing));
+        result.put("favoriteCount", await("favoriteCount", favoriteCount, deadline, missing));
+        result.put("favorite", await("favorite", favorite, deadline, missing));
+        result.put("missing", missing);
+        return result;
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> supplier) {
+        return CompletableFuture.supplyAsync(supplier, executor);
+    }
+
+    /**
+     * 等待一个部分的结果，超过截止时间或出错时记入 missing 并返回null
+     */
+    private <T> T await(String name, CompletableFuture<T> future, long deadline, List<String> missing) {
+        try {
+            return future.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("商品详情的 {} 部分超过 {}ms 未返回", name, branchTimeoutMillis);
+        } catch (ExecutionException e) {
+            log.warn("商品详情的 {} 部分查询失败", name, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        missing.add(name);
+        return null;
+    }
+}
@@ -1,5 +1,15 @@
 package example.shopping.service.impl;
 
+import example.shopping.cache.ExistenceFilter;
+import example.shopping.cache.ExistenceFilters;
+import example.shopping.cache.InvalidationBus;
+import example.shopping.cache.ProductLeaderboard;
+import example.shopping.cache.ProductListingIndex;
+import example.shopping.cache.ProductSpecIndexCache;
+import example.shopping.cache.SearchResultCache;
+import example.shopping.cache.SuggestIndex;
+import example.shopping.dto.ProductQueryDTO;
+import example.shopping.dto.ProductSummaryDTO;
 import example.shopping.dto.SearchHistoryDTO;
 import example.shopping.entity.Product;
 import example.shopping.entity.Store;
@@ -17,10 +27,7 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Date;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 /**
  * 商品服务实现类
@@ -28,6 +35,14 @@ import java.util.Map;
 @Service
 public class ProductServiceImpl implements ProductService {
 
+    private static final int DEFAULT_PAGE_SIZE = 20;
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private static final Set<String> SORT_FIELDS = new HashSet<>(Arrays.asList(
+            ProductListingIndex.SORT_PRICE, ProductListingIndex.SORT_SALES,
+            ProductListingIndex.SORT_RATING, ProductListingIndex.SORT_NEW));
+
     @Autowired
     private ProductMapper productMapper;
 
@@ -40,30 +55,68 @@ public class ProductServiceImpl implements ProductService {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private ProductSpecIndexCache productSpecIndexCache;
+
+    @Autowired
+    private ProductLeaderboard productLeaderboard;
+
+    @Autowired
+    private ProductListingIndex productListingIndex;
+
+    @Autowired
+    private SearchResultCache searchResultCache;
+
+    @Autowired
+    private SuggestIndex suggestIndex;
+
+    @Autowired
+    private InvalidationBus invalidationBus;
+
+    @Autowired
+    private ExistenceFilters existenceFilters;
+
     @Override
-    public List<Product> findAll() {
-        return productMapper.findAll();
+    public List<ProductSummaryDTO> findAll() {
+        return productMapper.findAllSummaries();
     }
 
     @Override
     public Product findById(Long id) {
-        return productMapper.findById(id);
+        ExistenceFilter filter = existenceFilters.products();
+        if (!filter.mightExist(id)) {
+            return null;
+        }
+        Product product = productMapper.findById(id);
+        if (product == null) {
+            filter.recordMiss(id);
+        }
+        return product;
     }
 
     @Override
-    public List<Product> findByStoreId(Long storeId) {
-        return productMapper.findByStoreId(storeId);
+    public Map<String, List<String>> getSpecifications(Long id) {
+        Product product = productMapper.findById(id);
+        if (product == null) {
+            throw new BusinessException("商品不存在");
+        }
+        return productSpecIndexCache.get(product).getSpecs();
     }
 
     @Override
-    public List<Product> findByCategoryId(Long categoryId) {
-        return productMapper.findByCategoryId(categoryId);
+    public List<ProductSummaryDTO> findByStoreId(Long storeId) {
+        return productMapper.findSummariesByStoreId(storeId);
+    }
+
+    @Override
+    public List<ProductSummaryDTO> findByCategoryId(Long categoryId) {
+        return productMapper.findSummariesByCategoryId(categoryId);
     }
 
     @Override
     public Map<String, Object> findByPage(int pageNum, int pageSize) {
         int offset = (pageNum - 1) * pageSize;
-        List<Product> products = productMapper.findByPage(offset, pageSize);
+        List<ProductSummaryDTO> products = productMapper.findSummariesByPage(offset, pageSize);
 
         Map<String, Object> result = new HashMap<>();
         result.put("list", products);
@@ -74,6 +127,34 @@ public class ProductServiceImpl implements ProductService {
         return result;
     }
 
+    @Override
+    public Map<String, Object> query(ProductQueryDTO query) {
+        String sort = query.getSort();
+        if (sort != null && !SORT_FIELDS.contains(sort)) {
+            throw new BusinessException("不支持的排序字段: " + sort);
+        }
+        int pageNum = query.getPageNum() == null ? 1 : Math.max(1, query.getPageNum());
+        int pageSize = query.getPageSize() == null ? DEFAULT_PAGE_SIZE
+                : Math.max(1, Math.min(query.getPageSize(), MAX_PAGE_SIZE));
+        Integer status = query.getStatus() == null ? Integer.valueOf(1) : query.getStatus();
+        // 价格默认从低到高，其余默认从高到低
+        boolean asc = query.getAsc() != null ? query.getAsc()
+                : sort == null || ProductListingIndex.SORT_PRICE.equals(sort);
+
+        ProductListingIndex.Page page = productListingIndex.query(query.getCategoryId(), query.getStoreId(), status,
+                query.getMinPrice(), query.getMaxPrice(), sort, asc, (pageNum - 1) * pageSize, pageSize);
+
+        List<ProductSummaryDTO> products = page.getIds().isEmpty() ? new ArrayList<>()
+                : inOrder(page.getIds(), productMapper.findSummariesByIds(page.getIds()));
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("list", products);
+        result.put("total", page.getTotal());
+        result.put("pageNum", pageNum);
+        result.put("pageSize", pageSize);
+        return result;
+    }
+
     @Override
     @Transactional
     public Product add(Product product) {
@@ -105,6 +186,11 @@ public class ProductServiceImpl implements ProductService {
         product.setUpdateTime(now);
 
         productMapper.insert(product);
+        existenceFilters.products().put(product.getId());
+        productLeaderboard.put(product);
+        productListingIndex.put(product);
+        searchResultCache.invalidateAll();
+        invalidationBus.publish(InvalidationBus.PRODUCT, product.getId());
         return product;
     }
 
@@ -119,7 +205,12 @@ public class ProductServiceImpl implements ProductService {
         product.setUpdateTime(new Date());
         productMapper.update(product);
 
-        return productMapper.findById(product.getId());
+        Product updated = productMapper.findById(product.getId());
+        productLeaderboard.put(updated);
+        productListingIndex.put(updated);
+        searchResultCache.invalidateAll();
+        invalidationBus.publish(InvalidationBus.PRODUCT, updated.getId());
+        return updated;
     }
 
     @Override
@@ -130,7 +221,12 @@ public class ProductServiceImpl implements ProductService {
             throw new BusinessException("商品不存在");
         }
 
-        return productMapper.deleteById(id) > 0;
+        boolean deleted = productMapper.deleteById(id) > 0;
+        productLeaderboard.remove(id);
+        productListingIndex.remove(id);
+        searchResultCache.invalidateAll();
+        invalidationBus.publish(InvalidationBus.PRODUCT, id);
+        return deleted;
     }
 
     @Override
@@ -145,7 +241,11 @@ public class ProductServiceImpl implements ProductService {
             throw new BusinessException("商品不存在");
         }
 
-        return productMapper.updateSales(id, increment) > 0;
+        boolean updated = productMapper.updateSales(id, increment) > 0;
+        productLeaderboard.addSales(id, increment);
+        productListingIndex.addSales(id, increment);
+        invalidationBus.publish(InvalidationBus.PRODUCT, id);
+        return updated;
     }
 
     @Override
@@ -168,12 +268,15 @@ public class ProductServiceImpl implements ProductService {
     }
 
     @Override
-    public List<Product> search(String keyword) {
+    public Map<String, Object> search(String keyword) {
         if (keyword == null || keyword.trim().isEmpty()) {
             throw new BusinessException("搜索关键字不能为空");
         }
 
-        List<Product> products = productMapper.search(keyword);
+        String normalized = SearchResultCache.normalize(keyword);
+        List<Long> ids = searchResultCache.get(normalized, () -> productMapper.searchIds(normalized));
+        List<ProductSummaryDTO> products = ids.isEmpty() ? new ArrayList<>()
+                : inOrder(ids, productMapper.findSummariesByIds(ids));
 
         // 获取当前登录用户ID
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
@@ -191,24 +294,84 @@ public class ProductServiceImpl implements ProductService {
             }
         }
 
-        return products;
+        Map<String, Object> result = new HashMap<>();
+        result.put("list", products);
+        result.put("total", products.size());
+        result.put("facets", productListingIndex.facets(ids));
+        return result;
+    }
+
+    @Override
+    public List<String> suggest(String prefix, int limit) {
+        if (prefix == null || prefix.trim().isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (limit <= 0) {
+            limit = 10; // 默认返回10个
+        }
+
+        return suggestIndex.suggest(prefix, limit);
     }
 
     @Override
-    public List<Product> findHotProducts(int limit) {
+    public List<ProductSummaryDTO> findHotProducts(Long categoryId, int limit) {
         if (limit <= 0) {
             limit = 10; // 默认返回10个
         }
 
-        return productMapper.findHotProducts(limit);
+        return findRanked(productLeaderboard.topSelling(categoryId, limit));
     }
 
     @Override
-    public List<Product> findNewProducts(int limit) {
+    public List<ProductSummaryDTO> findNewProducts(Long categoryId, int limit) {
         if (limit <= 0) {
             limit = 10; // 默认返回10个
         }
 
-        return productMapper.findNewProducts(limit);
+        return findRanked(productLeaderboard.newest(categoryId, limit));
+    }
+
+    @Override
+    public List<ProductSummaryDTO> findTrendingProducts(Long categoryId, int limit) {
+        if (limit <= 0) {
+            limit = 10; // 默认返回10个
+        }
+
+        return findRanked(productLeaderboard.trending(categoryId, limit));
+    }
+
+    /**
+     * 按主键一次查询排行榜中的商品摘要，并保持排行顺序
+     *
+     * @param ids 排行榜中的商品ID
+     * @return 在售商品摘要列表
+     */
+    private List<ProductSummaryDTO> findRanked(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return inOrder(ids, productMapper.findOnSaleSummariesByIds(ids));
+    }
+
+    /**
+     * 将按主键查询到的商品摘要排成给定的ID顺序，已不存在的商品被跳过
+     *
+     * @param ids      商品ID顺序
+     * @param products 查询到的商品摘要
+     * @return 排序后的商品摘要列表
+     */
+    private List<ProductSummaryDTO> inOrder(List<Long> ids, List<ProductSummaryDTO> products) {
+        Map<Long, ProductSummaryDTO> byId = new HashMap<>();
+        for (ProductSummaryDTO product : products) {
+            byId.put(product.getId(), product);
+        }
+        List<ProductSummaryDTO> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            ProductSummaryDTO product = byId.get(id);
+            if (product != null) {
+                result.add(product);
+            }
+        }
+        return result;
     }
 }
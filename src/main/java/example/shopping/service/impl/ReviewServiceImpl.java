@@ -1,6 +1,8 @@
 package example.shopping.service.impl;
 
 import com.alibaba.fastjson.JSON;
+import example.shopping.cache.InvalidationBus;
+import example.shopping.cache.ProductListingIndex;
 import example.shopping.dto.ReviewDTO;
 import example.shopping.entity.Order;
 import example.shopping.entity.Product;
@@ -12,6 +14,8 @@ import example.shopping.mapper.ProductMapper;
 import example.shopping.mapper.ReviewMapper;
 import example.shopping.mapper.StoreMapper;
 import example.shopping.service.ReviewService;
+import example.shopping.statemachine.OrderStateMachine;
+import example.shopping.statemachine.OrderTransition;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -40,6 +44,15 @@ public class ReviewServiceImpl implements ReviewService {
     @Autowired
     private StoreMapper storeMapper;
 
+    @Autowired
+    private OrderStateMachine orderStateMachine;
+
+    @Autowired
+    private ProductListingIndex productListingIndex;
+
+    @Autowired
+    private InvalidationBus invalidationBus;
+
     @Override
     @Transactional
     public Review add(Long userId, ReviewDTO reviewDTO) {
@@ -66,9 +79,8 @@ public class ReviewServiceImpl implements ReviewService {
         }
 
         // 检查订单状态是否允许评价
-        int status = order.getStatus();
-        if (status != 3 && status != 5 && status != 6 && status != 7) {
-            throw new BusinessException("当前订单状态不可评价");
+        if (!OrderTransition.REVIEW.canFireFrom(order.getStatus())) {
+            throw new BusinessException(OrderTransition.REVIEW.getErrorMessage());
         }
 
         // 检查是否已经评价过
@@ -112,9 +124,7 @@ public class ReviewServiceImpl implements ReviewService {
         updateProductRating(reviewDTO.getProductId());
 
         // 更新订单状态为已评价
-        order.setStatus(8); // 8-已评价
-        order.setUpdateTime(new Date());
-        orderMapper.update(order);
+        orderStateMachine.fire(order, OrderTransition.REVIEW);
 
         return review;
     }
@@ -329,6 +339,12 @@ public class ReviewServiceImpl implements ReviewService {
         product.setRating(avgRating);
         product.setUpdateTime(new Date());
 
-        return productMapper.update(product) > 0;
+        if (productMapper.update(product) == 0) {
+            return false;
+        }
+        // 评分参与列表排序和分面统计
+        productListingIndex.put(product);
+        invalidationBus.publish(InvalidationBus.PRODUCT, productId);
+        return true;
     }
 }
@@ -1,5 +1,9 @@
 package example.shopping.service.impl;
 
+import example.shopping.cache.ExistenceFilter;
+import example.shopping.cache.ExistenceFilters;
+import example.shopping.cache.InvalidationBus;
+import example.shopping.cache.StoreSearchIndex;
 import example.shopping.entity.Store;
 import example.shopping.entity.User;
 import example.shopping.exception.BusinessException;
@@ -13,10 +17,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Date;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 /**
  * 店铺服务实现类
@@ -26,6 +27,8 @@ public class StoreServiceImpl implements StoreService {
 
     private static final Logger log = LoggerFactory.getLogger(StoreServiceImpl.class);
 
+    private static final int MAX_PAGE_SIZE = 100;
+
     @Autowired
     private StoreMapper storeMapper;
 
@@ -35,6 +38,15 @@ public class StoreServiceImpl implements StoreService {
     @Autowired
     private CustomerServiceSessionMapper sessionMapper;
 
+    @Autowired
+    private StoreSearchIndex storeSearchIndex;
+
+    @Autowired
+    private InvalidationBus invalidationBus;
+
+    @Autowired
+    private ExistenceFilters existenceFilters;
+
     @Override
     @Transactional
     public Store create(Long userId, Store store) {
@@ -55,6 +67,9 @@ public class StoreServiceImpl implements StoreService {
         store.setUpdateTime(now);
 
         storeMapper.insert(store);
+        existenceFilters.stores().put(store.getId());
+        storeSearchIndex.put(store);
+        invalidationBus.publish(InvalidationBus.STORE, store.getId());
 
         return store;
     }
@@ -75,12 +90,23 @@ public class StoreServiceImpl implements StoreService {
 
         storeMapper.update(store);
 
-        return storeMapper.findById(id);
+        Store updated = storeMapper.findById(id);
+        storeSearchIndex.put(updated);
+        invalidationBus.publish(InvalidationBus.STORE, id);
+        return updated;
     }
 
     @Override
     public Store findById(Long id) {
-        return storeMapper.findById(id);
+        ExistenceFilter filter = existenceFilters.stores();
+        if (!filter.mightExist(id)) {
+            return null;
+        }
+        Store store = storeMapper.findById(id);
+        if (store == null) {
+            filter.recordMiss(id);
+        }
+        return store;
     }
 
     @Override
@@ -108,12 +134,34 @@ public class StoreServiceImpl implements StoreService {
     }
 
     @Override
-    public List<Store> search(String keyword) {
+    public Map<String, Object> search(String keyword, int pageNum, int pageSize) {
         if (keyword == null || keyword.trim().isEmpty()) {
             throw new BusinessException("搜索关键字不能为空");
         }
+        pageNum = Math.max(1, pageNum);
+        pageSize = Math.max(1, Math.min(pageSize, MAX_PAGE_SIZE));
+
+        StoreSearchIndex.Page page = storeSearchIndex.search(keyword, (pageNum - 1) * pageSize, pageSize);
+        List<Store> stores = new ArrayList<>(page.getIds().size());
+        if (!page.getIds().isEmpty()) {
+            Map<Long, Store> byId = new HashMap<>();
+            for (Store store : storeMapper.findByIds(page.getIds())) {
+                byId.put(store.getId(), store);
+            }
+            for (Long id : page.getIds()) {
+                Store store = byId.get(id);
+                if (store != null) {
+                    stores.add(store);
+                }
+            }
+        }
 
-        return storeMapper.search(keyword.trim());
+        Map<String, Object> result = new HashMap<>();
+        result.put("list", stores);
+        result.put("total", page.getTotal());
+        result.put("pageNum", pageNum);
+        result.put("pageSize", pageSize);
+        return result;
     }
 
     @Override
@@ -163,6 +211,9 @@ public class StoreServiceImpl implements StoreService {
 
         boolean updateResult = storeMapper.updateStatus(id, status) > 0;
         log.info("店铺状态更新结果: {}", updateResult);
+        store.setStatus(status);
+        storeSearchIndex.put(store);
+        invalidationBus.publish(InvalidationBus.STORE, id);
         return updateResult;
     }
 
@@ -174,7 +225,10 @@ public class StoreServiceImpl implements StoreService {
             throw new BusinessException("店铺不存在");
         }
 
-        return storeMapper.deleteById(id) > 0;
+        boolean deleted = storeMapper.deleteById(id) > 0;
+        storeSearchIndex.remove(id);
+        invalidationBus.publish(InvalidationBus.STORE, id);
+        return deleted;
     }
 
     @Override
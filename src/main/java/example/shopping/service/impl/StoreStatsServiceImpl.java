@@ -0,0 +1,173 @@
+package example.shopping.service.impl;
+
+import example.shopping.entity.Order;
+import example.shopping.entity.StoreDailyStat;
+import example.shopping.mapper.OrderMapper;
+import example.shopping.mapper.StoreDailyStatMapper;
+import example.shopping.service.StoreStatsService;
+import example.shopping.statemachine.OrderStatus;
+import example.shopping.statemachine.OrderTransitionEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+
+/**
+ * 店铺统计服务实现类
+ * <p>
+ * 状态数量走 (store_id, status) 索引分组统计，金额和每日趋势读取按天汇总的统计表，
+ * 不再加载店铺的全部订单。
+ */
+@Service
+public class StoreStatsServiceImpl implements StoreStatsService {
+
+    private static final int MAX_DAYS = 366;
+
+    @Autowired
+    private OrderMapper orderMapper;
+
+    @Autowired
+    private StoreDailyStatMapper storeDailyStatMapper;
+
+    @Override
+    public Map<String, Object> getOrderStats(Long storeId, int days) {
+        int[] counts = new int[OrderStatus.values().length];
+        int total = 0;
+        for (Map<String, Object> row : orderMapper.countByStoreIdGroupByStatus(storeId)) {
+            int status = ((Number) row.get("status")).intValue();
+            int count = ((Number) row.get("count")).intValue();
+            if (status >= 0 && status < counts.length) {
+                counts[status] = count;
+            }
+            total += count;
+        }
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("total", total);
+        stats.put("pendingPayment", counts[OrderStatus.UNPAID.getValue()]);
+        stats.put("pendingShipment", counts[OrderStatus.PAID.getValue()]);
+        stats.put("shipped", counts[OrderStatus.SHIPPED.getValue()]);
+        // 已完成订单包括已完成和已评价的订单
+        stats.put("completed", counts[OrderStatus.COMPLETED.getValue()] + counts[OrderStatus.REVIEWED.getValue()]);
+        stats.put("cancelled", counts[OrderStatus.CANCELLED.getValue()]);
+        stats.put("refunded", counts[OrderStatus.REFUNDED.getValue()]);
+        stats.put("refundPending", counts[OrderStatus.REFUND_PENDING.getValue()]);
+
+        Map<String, Object> summary = storeDailyStatMapper.sumByStoreId(storeId);
+        stats.put("paidCount", toInt(summary.get("paidCount")));
+        stats.put("gmv", toBigDecimal(summary.get("paidAmount")));
+        stats.put("refundCount", toInt(summary.get("refundCount")));
+        stats.put("refundAmount", toBigDecimal(summary.get("refundAmount")));
+
+        stats.put("daily", getDailySeries(storeId, days));
+        return stats;
+    }
+
+    /**
+     * 订单新建、支付、退款时在同一事务内累加每日统计；
+     * 管理员直接修改状态时可能补记支付或退款时间，重新汇总订单创建当天的统计
+     *
+     * @param event 订单状态流转事件
+     */
+    @EventListener
+    public void onOrderTransition(OrderTransitionEvent event) {
+        Order order = event.getOrder();
+        if (event.getTransition() == null) {
+            Date statDate = order.getCreateTime() != null ? order.getCreateTime() : new Date();
+            storeDailyStatMapper.deleteByStoreIdAndDate(order.getStoreId(), statDate);
+            storeDailyStatMapper.rebuildByStoreIdAndDate(order.getStoreId(), statDate);
+            return;
+        }
+        StoreDailyStat delta = newDelta(order);
+        switch (event.getTransition()) {
+            case CREATE:
+                delta.setOrderCount(1);
+                break;
+            case PAY:
+                delta.setPaidCount(1);
+                delta.setPaidAmount(order.getTotalAmount());
+                break;
+            case AGREE_REFUND:
+                delta.setRefundCount(1);
+                delta.setRefundAmount(order.getTotalAmount());
+                break;
+            default:
+                return;
+        }
+        storeDailyStatMapper.increment(delta);
+    }
+
+    @Override
+    @Transactional
+    public int rebuild(Long storeId) {
+        storeDailyStatMapper.deleteByStoreId(storeId);
+        return storeDailyStatMapper.rebuildByStoreId(storeId);
+    }
+
+    /**
+     * 获取最近若干天的每日统计，缺失的日期补零
+     *
+     * @param storeId 店铺ID
+     * @param days    天数
+     * @return 每日统计列表
+     */
+    private List<Map<String, Object>> getDailySeries(Long storeId, int days) {
+        days = Math.max(1, Math.min(days, MAX_DAYS));
+        ZoneId zone = ZoneId.systemDefault();
+        LocalDate endDate = LocalDate.now(zone);
+        LocalDate startDate = endDate.minusDays(days - 1);
+
+        Map<LocalDate, StoreDailyStat> byDate = new HashMap<>();
+        List<StoreDailyStat> rows = storeDailyStatMapper.findByStoreIdAndDateRange(storeId,
+                Date.from(startDate.atStartOfDay(zone).toInstant()),
+                Date.from(endDate.atStartOfDay(zone).toInstant()));
+        for (StoreDailyStat row : rows) {
+            byDate.put(row.getStatDate().toInstant().atZone(zone).toLocalDate(), row);
+        }
+
+        List<Map<String, Object>> series = new ArrayList<>(days);
+        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+            StoreDailyStat row = byDate.get(date);
+            Map<String, Object> point = new LinkedHashMap<>();
+            point.put("date", date.toString());
+            point.put("orderCount", row != null ? row.getOrderCount() : 0);
+            point.put("paidCount", row != null ? row.getPaidCount() : 0);
+            point.put("paidAmount", row != null ? row.getPaidAmount() : BigDecimal.ZERO);
+            point.put("refundCount", row != null ? row.getRefundCount() : 0);
+            point.put("refundAmount", row != null ? row.getRefundAmount() : BigDecimal.ZERO);
+            series.add(point);
+        }
+        return series;
+    }
+
+    /**
+     * 构建归属于订单创建日期的空增量
+     */
+    private StoreDailyStat newDelta(Order order) {
+        StoreDailyStat delta = new StoreDailyStat();
+        delta.setStoreId(order.getStoreId());
+        delta.setStatDate(order.getCreateTime() != null ? order.getCreateTime() : new Date());
+        delta.setOrderCount(0);
+        delta.setPaidCount(0);
+        delta.setPaidAmount(BigDecimal.ZERO);
+        delta.setRefundCount(0);
+        delta.setRefundAmount(BigDecimal.ZERO);
+        return delta;
+    }
+
+    private int toInt(Object value) {
+        return value == null ? 0 : ((Number) value).intValue();
+    }
+
+    private BigDecimal toBigDecimal(Object value) {
+        if (value == null) {
+            return BigDecimal.ZERO;
+        }
+        return value instanceof BigDecimal ? (BigDecimal) value : new BigDecimal(value.toString());
+    }
+}
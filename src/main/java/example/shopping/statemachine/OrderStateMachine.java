@@ -0,0 +1,175 @@
+package example.shopping.statemachine;
+
+import example.shopping.entity.Order;
+import example.shopping.exception.BusinessException;
+import example.shopping.mapper.OrderMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 订单状态机
+ * <p>
+ * 按 {@link OrderTransition} 校验流转，并以 {@code WHERE id = ? AND status = ? AND version = ?}
+ * 的条件更新写入新状态：并发请求中只有一个能更新成功，其余得到“订单状态已变更”而不会重复执行
+ * 副作用（如重复恢复库存）。写入成功后发布 {@link OrderTransitionEvent}，缓存和统计统一在监听器中更新。
+ */
+@Component
+public class OrderStateMachine {
+
+    @Autowired
+    private OrderMapper orderMapper;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    /**
+     * 记录新建订单，订单需已插入
+     *
+     * @param order 订单信息
+     */
+    public void created(Order order) {
+        eventPublisher.publishEvent(new OrderTransitionEvent(order, null, order.getStatus(), OrderTransition.CREATE));
+    }
+
+    /**
+     * 执行订单状态流转
+     * <p>
+     * 调用方可在调用前设置随流转一起写入的字段（支付方式、支付时间、发货时间、退款原因）。
+     *
+     * @param order      已加载的订单
+     * @param transition 流转类型
+     */
+    public void fire(Order order, OrderTransition transition) {
+        if (!transition.canFireFrom(order.getStatus())) {
+            throw new BusinessException(transition.getErrorMessage());
+        }
+        apply(order, transition.getTo().getValue(), transition);
+    }
+
+    /**
+     * 不经流转表校验直接修改订单状态，供管理员使用
+     *
+     * @param order    已加载的订单
+     * @param toStatus 目标状态
+     */
+    public void forceStatus(Order order, Integer toStatus) {
+        if (toStatus == null || toStatus < 0 || toStatus >= OrderStatus.values().length) {
+            throw new BusinessException("订单状态无效");
+        }
+        apply(order, toStatus, null);
+    }
+
+    /**
+     * 批量执行同一种流转
+     * <p>
+     * 不满足流转条件的订单跳过，其余订单以一条多行更新按各自读取时的状态和版本号写入（CAS），
+     * 随流转写入的字段由 {@code changes} 统一给出。任一订单在读取后被其他请求修改时整批回滚，
+     * 由调用方刷新后重试，与单个订单的流转一样不加行锁。
+     *
+     * @param orders     读取的订单
+     * @param transition 流转类型
+     * @param changes    随流转写入的字段（发货时间等），可为null
+     * @return 未能流转的订单ID及原因
+     */
+    public Map<Long, String> fireAll(List<Order> orders, OrderTransition transition, Order changes) {
+        Map<Long, String> failures = new LinkedHashMap<>();
+        List<Order> eligible = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            if (transition.canFireFrom(order.getStatus())) {
+                eligible.add(order);
+            } else {
+                failures.put(order.getId(), transition.getErrorMessage());
+            }
+        }
+        applyAll(eligible, transition.getTo().getValue(), transition, changes);
+        return failures;
+    }
+
+    /**
+     * 批量直接修改订单状态，供管理员使用，写入方式同 {@link #fireAll}
+     *
+     * @param orders   读取的订单
+     * @param toStatus 目标状态
+     */
+    public void forceAll(List<Order> orders, Integer toStatus) {
+        if (toStatus == null || toStatus < 0 || toStatus >= OrderStatus.values().length) {
+            throw new BusinessException("订单状态无效");
+        }
+        applyAll(orders, toStatus, null, null);
+    }
+
+    private void applyAll(List<Order> orders, int toStatus, OrderTransition transition, Order changes) {
+        if (orders.isEmpty()) {
+            return;
+        }
+        Order update = changes != null ? changes : new Order();
+        update.setStatus(toStatus);
+        update.setUpdateTime(new Date());
+        stampTimes(update, toStatus);
+
+        for (Order order : orders) {
+            if (order.getVersion() == null) {
+                order.setVersion(0);
+            }
+        }
+        if (orderMapper.batchUpdateStatus(update, orders) != orders.size()) {
+            throw new BusinessException("订单状态已变更，请刷新后重试");
+        }
+
+        for (Order order : orders) {
+            Integer fromStatus = order.getStatus();
+            order.setStatus(toStatus);
+            order.setUpdateTime(update.getUpdateTime());
+            if (update.getShippingTime() != null) {
+                order.setShippingTime(update.getShippingTime());
+            }
+            if (update.getRefundReason() != null) {
+                order.setRefundReason(update.getRefundReason());
+            }
+            if (order.getPaymentTime() == null) {
+                order.setPaymentTime(update.getPaymentTime());
+            }
+            if (order.getRefundTime() == null) {
+                order.setRefundTime(update.getRefundTime());
+            }
+            order.setVersion(order.getVersion() + 1);
+            eventPublisher.publishEvent(new OrderTransitionEvent(order, fromStatus, toStatus, transition));
+        }
+    }
+
+    private void apply(Order order, int toStatus, OrderTransition transition) {
+        Integer fromStatus = order.getStatus();
+        int version = order.getVersion() == null ? 0 : order.getVersion();
+
+        order.setStatus(toStatus);
+        order.setUpdateTime(new Date());
+        stampTimes(order, toStatus);
+        if (orderMapper.compareAndSetStatus(order, fromStatus, version) == 0) {
+            order.setStatus(fromStatus);
+            throw new BusinessException("订单状态已变更，请刷新后重试");
+        }
+        order.setVersion(version + 1);
+
+        eventPublisher.publishEvent(new OrderTransitionEvent(order, fromStatus, toStatus, transition));
+    }
+
+    /**
+     * 进入已支付状态时补记支付时间（管理员直接修改状态时没有），进入已退款状态时记录退款时间。
+     * 统计按这两个时间计数，订单之后的状态变化不影响已发生的支付和退款。
+     */
+    private void stampTimes(Order order, int toStatus) {
+        if (toStatus == OrderStatus.PAID.getValue() && order.getPaymentTime() == null) {
+            order.setPaymentTime(order.getUpdateTime());
+        }
+        if (toStatus == OrderStatus.REFUNDED.getValue() && order.getRefundTime() == null) {
+            order.setRefundTime(order.getUpdateTime());
+        }
+    }
+}
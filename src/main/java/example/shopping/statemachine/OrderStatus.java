@@ -0,0 +1,41 @@
+package example.shopping.statemachine;
+
+/**
+ * 订单状态
+ */
+public enum OrderStatus {
+    UNPAID(0, "待支付"),
+    PAID(1, "已支付"),
+    SHIPPED(2, "已发货"),
+    COMPLETED(3, "已完成"),
+    CANCELLED(4, "已取消"),
+    REFUNDED(5, "已退款"),
+    REFUND_PENDING(6, "退款申请中"),
+    REFUND_REJECTED(7, "退款被拒绝"),
+    REVIEWED(8, "已评价");
+
+    private final int value;
+    private final String description;
+
+    OrderStatus(int value, String description) {
+        this.value = value;
+        this.description = description;
+    }
+
+    public int getValue() {
+        return value;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public static OrderStatus fromValue(int value) {
+        for (OrderStatus status : OrderStatus.values()) {
+            if (status.getValue() == value) {
+                return status;
+            }
+        }
+        throw new IllegalArgumentException("Unknown OrderStatus value: " + value);
+    }
+}
@@ -0,0 +1,70 @@
+package example.shopping.statemachine;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * 订单状态流转表
+ * <p>
+ * 每种流转声明允许的原状态、目标状态以及原状态不符时的提示信息，
+ * 所有订单状态变更都通过 {@link OrderStateMachine} 按此表执行。
+ */
+public enum OrderTransition {
+    CREATE(EnumSet.noneOf(OrderStatus.class), OrderStatus.UNPAID, "订单状态错误"),
+    PAY(EnumSet.of(OrderStatus.UNPAID), OrderStatus.PAID, "订单状态错误"),
+    CANCEL(EnumSet.of(OrderStatus.UNPAID), OrderStatus.CANCELLED, "只能取消待付款订单"),
+    SHIP(EnumSet.of(OrderStatus.PAID), OrderStatus.SHIPPED, "订单状态错误"),
+    RECEIVE(EnumSet.of(OrderStatus.SHIPPED), OrderStatus.COMPLETED, "订单状态错误"),
+    APPLY_REFUND(EnumSet.of(OrderStatus.PAID, OrderStatus.SHIPPED),
+            OrderStatus.REFUND_PENDING, "当前订单状态不支持申请退款"),
+    /**
+     * 支付接口的退款申请，已完成的订单也可申请
+     */
+    APPLY_PAYMENT_REFUND(EnumSet.of(OrderStatus.PAID, OrderStatus.SHIPPED, OrderStatus.COMPLETED),
+            OrderStatus.REFUND_PENDING, "订单状态不允许申请退款"),
+    AGREE_REFUND(EnumSet.of(OrderStatus.REFUND_PENDING), OrderStatus.REFUNDED, "退款状态错误"),
+    REJECT_REFUND(EnumSet.of(OrderStatus.REFUND_PENDING), OrderStatus.REFUND_REJECTED, "退款状态错误"),
+    REVIEW(EnumSet.of(OrderStatus.COMPLETED, OrderStatus.REFUNDED, OrderStatus.REFUND_PENDING, OrderStatus.REFUND_REJECTED),
+            OrderStatus.REVIEWED, "当前订单状态不可评价");
+
+    private final Set<OrderStatus> from;
+    private final OrderStatus to;
+    private final String errorMessage;
+
+    OrderTransition(Set<OrderStatus> from, OrderStatus to, String errorMessage) {
+        this.from = Collections.unmodifiableSet(from);
+        this.to = to;
+        this.errorMessage = errorMessage;
+    }
+
+    public Set<OrderStatus> getFrom() {
+        return from;
+    }
+
+    public OrderStatus getTo() {
+        return to;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    /**
+     * 判断是否允许从指定状态执行此流转
+     *
+     * @param status 当前状态值
+     * @return 是否允许
+     */
+    public boolean canFireFrom(Integer status) {
+        if (status == null) {
+            return false;
+        }
+        for (OrderStatus s : from) {
+            if (s.getValue() == status) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,92 @@
+package example.shopping.statemachine;
+
+import com.alibaba.fastjson.JSON;
+import example.shopping.entity.Order;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 订单状态流转事件
+ * <p>
+ * 在状态写入成功后于同一事务内发布，需要与订单一起提交的监听器使用 {@code @EventListener}，
+ * 只在提交后刷新内存数据的监听器使用 {@code @TransactionalEventListener}。
+ */
+public class OrderTransitionEvent {
+
+    private final Order order;
+    private final Integer fromStatus;
+    private final Integer toStatus;
+    private final OrderTransition transition;
+
+    public OrderTransitionEvent(Order order, Integer fromStatus, Integer toStatus, OrderTransition transition) {
+        this.order = order;
+        this.fromStatus = fromStatus;
+        this.toStatus = toStatus;
+        this.transition = transition;
+    }
+
+    /**
+     * 流转后的订单
+     */
+    public Order getOrder() {
+        return order;
+    }
+
+    /**
+     * 原状态，新建订单时为null
+     */
+    public Integer getFromStatus() {
+        return fromStatus;
+    }
+
+    public Integer getToStatus() {
+        return toStatus;
+    }
+
+    /**
+     * 流转类型，管理员直接修改状态时为null
+     */
+    public OrderTransition getTransition() {
+        return transition;
+    }
+
+    /**
+     * 本次流转引起的商品销量变化：新建订单为正，取消或同意退款为负，其余流转为空
+     *
+     * @return 商品ID到销量变化的映射
+     */
+    public Map<Long, Integer> getSalesDelta() {
+        int sign;
+        if (fromStatus == null) {
+            sign = 1;
+        } else if (transition == OrderTransition.CANCEL || transition == OrderTransition.AGREE_REFUND) {
+            sign = -1;
+        } else {
+            return Collections.emptyMap();
+        }
+        Map<Long, Integer> quantities = parseItemQuantities(order.getItems());
+        quantities.replaceAll((productId, quantity) -> sign * quantity);
+        return quantities;
+    }
+
+    /**
+     * 按商品汇总订单项数量
+     *
+     * @param items 订单项JSON
+     * @return 商品ID到数量的映射
+     */
+    public static Map<Long, Integer> parseItemQuantities(String items) {
+        Map<Long, Integer> quantities = new HashMap<>();
+        if (items == null || items.isEmpty()) {
+            return quantities;
+        }
+        for (Map item : JSON.parseArray(items, Map.class)) {
+            Long productId = Long.valueOf(item.get("productId").toString());
+            int quantity = Integer.parseInt(item.get("quantity").toString());
+            quantities.merge(productId, quantity, Integer::sum);
+        }
+        return quantities;
+    }
+}
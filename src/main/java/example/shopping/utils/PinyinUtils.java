@@ -0,0 +1,81 @@
+package example.shopping.utils;
+
+import java.nio.charset.Charset;
+
+/**
+ * 拼音首字母工具类
+ * <p>
+ * GB2312 一级汉字（3755 个常用字）按拼音顺序编码，只需比较编码落在哪个声母区间即可得到首字母，
+ * 不依赖拼音词典。二级汉字按部首编码，无法得到首字母，原样保留。
+ */
+public final class PinyinUtils {
+
+    private static final Charset GB2312 = Charset.forName("GB2312");
+
+    /**
+     * 各首字母第一个汉字的 GB2312 编码
+     */
+    private static final int[] BOUNDARIES = {
+            0xB0A1, 0xB0C5, 0xB2C1, 0xB4EE, 0xB6EA, 0xB7A2, 0xB8C1, 0xB9FE, 0xBBF7, 0xBFA6, 0xC0AC, 0xC2E8,
+            0xC4C3, 0xC5B6, 0xC5BE, 0xC6DA, 0xC8BB, 0xC8F6, 0xCBFA, 0xCDDA, 0xCEF4, 0xD1B9, 0xD4D1
+    };
+
+    private static final char[] LETTERS = "abcdefghjklmnopqrstwxyz".toCharArray();
+
+    /**
+     * 一级汉字之后的第一个编码
+     */
+    private static final int LEVEL1_END = 0xD7FA;
+
+    private PinyinUtils() {
+    }
+
+    /**
+     * 获取单个汉字的拼音首字母
+     *
+     * @param c 字符
+     * @return 小写首字母，不是一级汉字时返回0
+     */
+    public static char initial(char c) {
+        if (c < 0x4E00 || c > 0x9FA5) {
+            return 0;
+        }
+        byte[] bytes = String.valueOf(c).getBytes(GB2312);
+        if (bytes.length != 2) {
+            return 0;
+        }
+        int code = (bytes[0] & 0xFF) << 8 | (bytes[1] & 0xFF);
+        if (code < BOUNDARIES[0] || code >= LEVEL1_END) {
+            return 0;
+        }
+        int i = BOUNDARIES.length - 1;
+        while (code < BOUNDARIES[i]) {
+            i--;
+        }
+        return LETTERS[i];
+    }
+
+    /**
+     * 将文本中的汉字替换为拼音首字母，如"苹果 iPhone"得到"pgiphone"
+     * <p>
+     * 字母和数字转为小写保留，空白和标点被去掉，无法得到首字母的汉字原样保留。
+     *
+     * @param text 文本
+     * @return 首字母串，文本中没有可转换的汉字时返回null
+     */
+    public static String initials(String text) {
+        StringBuilder sb = new StringBuilder(text.length());
+        boolean converted = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            char initial = initial(c);
+            if (initial != 0) {
+                sb.append(initial);
+                converted = true;
+            } else if (Character.isLetterOrDigit(c)) {
+                sb.append(Character.toLowerCase(c));
+            }
+        }
+        return converted ? sb.toString() : null;
+    }
+}
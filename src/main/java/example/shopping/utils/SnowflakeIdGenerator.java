@@ -0,0 +1,72 @@
+package example.shopping.utils;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 雪花算法ID生成器
+ * <p>
+ * ID 由 41 位毫秒时间戳（相对 2024-01-01）、10 位节点ID和 12 位毫秒内序号组成，
+ * 按生成时间递增，不同节点配置不同的节点ID即可保证全局唯一。
+ * 时间戳和序号打包在一个 {@link AtomicLong} 中以 CAS 推进，不加锁；
+ * 同一毫秒内序号用尽或系统时钟回拨时，借用下一毫秒继续生成，而不是阻塞等待。
+ */
+@Component
+public class SnowflakeIdGenerator {
+
+    /**
+     * 起始时间 2024-01-01 00:00:00 UTC
+     */
+    private static final long EPOCH = 1704067200000L;
+
+    private static final int NODE_BITS = 10;
+
+    private static final int SEQUENCE_BITS = 12;
+
+    public static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final long nodeId;
+
+    /**
+     * 高位为相对起始时间的毫秒数，低 12 位为该毫秒内已用的序号
+     */
+    private final AtomicLong state = new AtomicLong();
+
+    public SnowflakeIdGenerator(@Value("${id-generator.node-id:0}") long nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("节点ID必须在0到" + MAX_NODE_ID + "之间: " + nodeId);
+        }
+        this.nodeId = nodeId;
+    }
+
+    /**
+     * 生成下一个ID
+     *
+     * @return ID
+     */
+    public long nextId() {
+        while (true) {
+            long current = state.get();
+            long now = System.currentTimeMillis() - EPOCH;
+            long next = (current >>> SEQUENCE_BITS) < now ? now << SEQUENCE_BITS : current + 1;
+            if (state.compareAndSet(current, next)) {
+                long timestamp = next >>> SEQUENCE_BITS;
+                return (timestamp << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    /**
+     * 将ID格式化为定长编号，字符串顺序与生成顺序一致
+     *
+     * @param id ID
+     * @return 19位数字编号
+     */
+    public static String toNo(long id) {
+        return String.format("%019d", id);
+    }
+}
@@ -0,0 +1,86 @@
+package example.shopping.cache;
+
+import example.shopping.entity.Store;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchLoaderTests {
+
+    private final List<List<Long>> batches = new ArrayList<>();
+
+    private final BatchLoader<Store> loader = new BatchLoader<>(ids -> {
+        batches.add(new ArrayList<>(ids));
+        return ids.stream().filter(id -> id < 100).map(BatchLoaderTests::store).collect(Collectors.toList());
+    }, Store::getId);
+
+    @Test
+    void batchesPendingIdsIntoOneQuery() {
+        CompletableFuture<Store> first = loader.load(1L);
+        CompletableFuture<Store> second = loader.load(2L);
+        CompletableFuture<Store> again = loader.load(1L);
+        CompletableFuture<Store> missing = loader.load(100L);
+        assertFalse(first.isDone());
+
+        loader.dispatch();
+        assertEquals(Collections.singletonList(Arrays.asList(1L, 2L, 100L)), batches);
+        assertEquals(1L, first.join().getId());
+        assertEquals(2L, second.join().getId());
+        assertSame(first, again);
+        assertNull(missing.join());
+        assertNull(loader.load(null).join());
+    }
+
+    @Test
+    void reusesLoadedEntities() {
+        Map<Long, Store> stores = loader.loadAll(Arrays.asList(1L, 2L, 100L, null));
+        assertEquals(new HashSet<>(Arrays.asList(1L, 2L)), stores.keySet());
+
+        assertSame(stores.get(1L), loader.get(1L));
+        loader.loadAll(Arrays.asList(2L, 3L));
+        assertEquals(Arrays.asList(Arrays.asList(1L, 2L, 100L), Collections.singletonList(3L)), batches);
+
+        loader.clear(1L);
+        loader.get(1L);
+        assertEquals(Collections.singletonList(1L), batches.get(2));
+    }
+
+    @Test
+    void splitsLargeBatches() {
+        List<Long> ids = new ArrayList<>();
+        for (long id = 1; id <= BatchLoader.MAX_BATCH_SIZE + 1; id++) {
+            ids.add(id);
+        }
+        loader.loadAll(ids);
+        assertEquals(2, batches.size());
+        assertEquals(BatchLoader.MAX_BATCH_SIZE, batches.get(0).size());
+    }
+
+    @Test
+    void failedBatchCanBeRetried() {
+        boolean[] fail = {true};
+        BatchLoader<Store> flaky = new BatchLoader<>(ids -> {
+            if (fail[0]) {
+                throw new IllegalStateException();
+            }
+            return ids.stream().map(BatchLoaderTests::store).collect(Collectors.toList());
+        }, Store::getId);
+
+        CompletableFuture<Store> future = flaky.load(1L);
+        assertThrows(IllegalStateException.class, flaky::dispatch);
+        assertTrue(future.isCompletedExceptionally());
+
+        fail[0] = false;
+        assertEquals(1L, flaky.get(1L).getId());
+    }
+
+    private static Store store(Long id) {
+        Store store = new Store();
+        store.setId(id);
+        return store;
+    }
+}
@@ -0,0 +1,89 @@
+package example.shopping.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CartCountCacheTests {
+
+    private final CartCountCache cache = new CartCountCache(true, 2);
+
+    private final AtomicInteger dbCount = new AtomicInteger(3);
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(cache, "invalidationBus", new InvalidationBus(false, 1000, 60000, 24, 500));
+    }
+
+    @Test
+    void loadsOnceUntilEvicted() {
+        assertEquals(3, cache.get(1L, this::load));
+        dbCount.set(7);
+        assertEquals(3, cache.get(1L, this::load));
+        assertEquals(1, loads.get());
+
+        cache.evict(1L);
+        assertEquals(7, cache.get(1L, this::load));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void doesNotCacheValueLoadedBeforeConcurrentEviction() {
+        // 加载读到提交前的旧值，加载期间另一个事务提交并失效
+        int stale = cache.get(1L, () -> {
+            int value = load();
+            dbCount.set(5);
+            cache.evict(1L);
+            return value;
+        });
+        assertEquals(3, stale);
+        assertEquals(5, cache.get(1L, this::load));
+    }
+
+    @Test
+    void remoteChangeRemovesCachedCount() {
+        cache.get(1L, this::load);
+        cache.get(2L, this::load);
+        dbCount.set(9);
+
+        cache.remove(1L);
+        assertEquals(9, cache.get(1L, this::load));
+        assertEquals(3, cache.get(2L, this::load));
+
+        cache.remove(null);
+        assertEquals(9, cache.get(2L, this::load));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedUsers() {
+        cache.get(1L, this::load);
+        cache.get(2L, this::load);
+        cache.get(1L, this::load);
+        cache.get(3L, this::load);
+        assertEquals(3, loads.get());
+
+        cache.get(1L, this::load);
+        assertEquals(3, loads.get());
+        cache.get(2L, this::load);
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    void disabledCacheAlwaysLoads() {
+        CartCountCache disabled = new CartCountCache(false, 2);
+        disabled.get(1L, this::load);
+        disabled.get(1L, this::load);
+        assertEquals(2, loads.get());
+    }
+
+    private int load() {
+        loads.incrementAndGet();
+        return dbCount.get();
+    }
+}
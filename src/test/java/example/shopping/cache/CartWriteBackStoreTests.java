@@ -0,0 +1,103 @@
+package example.shopping.cache;
+
+import example.shopping.entity.Cart;
+import example.shopping.mapper.CartMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.*;
+
+class CartWriteBackStoreTests {
+
+    private static final Long USER_ID = 7L;
+
+    private CartMapper cartMapper;
+
+    private CartWriteBackStore store;
+
+    @BeforeEach
+    void setUp() {
+        cartMapper = mock(CartMapper.class);
+        when(cartMapper.findByUserId(USER_ID)).thenAnswer(invocation -> Arrays.asList(
+                cart(1L, 10L, 2, true),
+                cart(2L, 11L, 1, true)));
+
+        store = new CartWriteBackStore(true, 100, 1000);
+        ReflectionTestUtils.setField(store, "cartMapper", cartMapper);
+        ReflectionTestUtils.setField(store, "transactionManager", mock(PlatformTransactionManager.class));
+    }
+
+    @Test
+    void servesReadsAndUpdatesFromMemory() {
+        assertEquals(2, store.getCarts(USER_ID).size());
+
+        assertEquals(5, store.updateQuantity(USER_ID, 1L, 5).getQuantity());
+        assertFalse(store.updateSelected(USER_ID, 2L, false).getSelected());
+        assertNull(store.updateQuantity(USER_ID, 99L, 1));
+
+        Cart first = store.getCart(USER_ID, 1L);
+        assertEquals(5, first.getQuantity());
+        first.setQuantity(100);
+        assertEquals(5, store.getCart(USER_ID, 1L).getQuantity());
+
+        verify(cartMapper, times(1)).findByUserId(USER_ID);
+        verify(cartMapper, never()).updateBatch(anyMap(), anyMap(), any());
+    }
+
+    @Test
+    void flushWritesOnlyChangedFieldsInOneStatement() {
+        store.updateQuantity(USER_ID, 1L, 5);
+        store.updateSelected(USER_ID, 2L, false);
+
+        store.flushAll();
+        verify(cartMapper).updateBatch(
+                Collections.singletonMap(1L, 5),
+                Collections.singletonMap(2L, false),
+                Arrays.asList(1L, 2L));
+
+        store.flushAll();
+        verifyNoMoreInteractions(ignoreStubs(cartMapper));
+    }
+
+    @Test
+    void failedFlushKeepsChangesForRetry() {
+        store.updateAllSelected(USER_ID, false);
+        when(cartMapper.updateBatch(anyMap(), anyMap(), any())).thenThrow(new IllegalStateException("down"));
+        assertThrows(IllegalStateException.class, () -> store.flush(USER_ID));
+
+        reset(cartMapper);
+        store.flush(USER_ID);
+        Map<Long, Boolean> selections = new HashMap<>();
+        selections.put(1L, false);
+        selections.put(2L, false);
+        verify(cartMapper).updateBatch(Collections.emptyMap(), selections, new ArrayList<>(selections.keySet()));
+    }
+
+    @Test
+    void invalidateWritesChangesAndReloads() {
+        store.updateQuantity(USER_ID, 2L, 3);
+
+        store.invalidate(USER_ID);
+        verify(cartMapper).updateBatch(Collections.singletonMap(2L, 3), Collections.emptyMap(), Collections.singletonList(2L));
+
+        assertEquals(1, store.getCart(USER_ID, 2L).getQuantity());
+        verify(cartMapper, times(2)).findByUserId(USER_ID);
+    }
+
+    private static Cart cart(Long id, Long productId, int quantity, boolean selected) {
+        Cart cart = new Cart();
+        cart.setId(id);
+        cart.setUserId(USER_ID);
+        cart.setProductId(productId);
+        cart.setQuantity(quantity);
+        cart.setSelected(selected);
+        return cart;
+    }
+}
@@ -0,0 +1,68 @@
+package example.shopping.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExistenceFilterTests {
+
+    @Test
+    void bloomFilterHasNoFalseNegativesAndBoundedFalsePositives() {
+        BloomFilter filter = new BloomFilter(10000, 0.01);
+        for (long id = 1; id <= 10000; id++) {
+            filter.put(id);
+        }
+        for (long id = 1; id <= 10000; id++) {
+            assertTrue(filter.mightContain(id));
+        }
+        long falsePositives = LongStream.rangeClosed(1_000_001, 1_100_000).filter(filter::mightContain).count();
+        assertTrue(falsePositives < 2000, "误判 " + falsePositives);
+        assertTrue(filter.expectedFpp() < 0.02);
+    }
+
+    @Test
+    void passesEverythingUntilLoaded() {
+        ExistenceFilter filter = new ExistenceFilter("test", 100, 0.01, 60, 10);
+        assertTrue(filter.mightExist(5L));
+        filter.recordMiss(5L);
+        assertFalse(filter.mightExist(null));
+
+        filter.load(LongStream.rangeClosed(1, 10).boxed().collect(Collectors.toList()));
+        assertTrue(filter.mightExist(5L));
+        assertTrue(LongStream.range(11, 1000).anyMatch(id -> !filter.mightExist(id)));
+    }
+
+    @Test
+    void cachesConfirmedMissesUntilInserted() {
+        ExistenceFilter filter = new ExistenceFilter("test", 100, 0.01, 60, 10);
+        filter.load(LongStream.rangeClosed(1, 10).boxed().collect(Collectors.toList()));
+        long missing = LongStream.range(11, 1_000_000).filter(id -> filter.mightExist(id)).findFirst()
+                .orElseThrow(IllegalStateException::new);
+
+        filter.recordMiss(missing);
+        assertFalse(filter.mightExist(missing));
+
+        filter.put(missing);
+        assertTrue(filter.mightExist(missing));
+
+        Map<String, Object> stat = filter.stat();
+        assertEquals(1L, stat.get("falsePositives"));
+        assertEquals(1L, stat.get("negativeHits"));
+        assertEquals(missing - 11, stat.get("rejected"));
+        assertEquals(2.0 / (missing - 11 + 2), (double) stat.get("falsePositiveRate"), 1e-9);
+    }
+
+    @Test
+    void expiresConfirmedMisses() throws InterruptedException {
+        ExistenceFilter filter = new ExistenceFilter("test", 1, 0.5, 0, 10);
+        filter.load(LongStream.rangeClosed(1, 1000).boxed().collect(Collectors.toList()));
+        assertTrue(filter.mightExist(5000L));
+        filter.recordMiss(5000L);
+        Thread.sleep(5);
+        assertTrue(filter.mightExist(5000L));
+    }
+}
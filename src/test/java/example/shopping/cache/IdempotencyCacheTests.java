@@ -0,0 +1,53 @@
+package example.shopping.cache;
+
+import example.shopping.utils.Result;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyCacheTests {
+
+    private final IdempotencyCache cache = new IdempotencyCache(60, 100);
+
+    @Test
+    void duplicateRequestsShareTheFirstResult() {
+        IdempotencyCache.Entry first = cache.claim("pay:alice:k1", "hash-a");
+        IdempotencyCache.Entry again = cache.claim("pay:alice:k1", "hash-a");
+        assertTrue(first.isOwner());
+        assertFalse(again.isOwner());
+        assertTrue(again.matches("hash-a"));
+
+        Result<String> result = Result.success("ok");
+        cache.complete(first, result);
+        assertSame(result, again.getFuture().join());
+    }
+
+    @Test
+    void remembersFingerprintOfTheFirstRequest() {
+        cache.claim("pay:alice:k1", "hash-a");
+        IdempotencyCache.Entry reused = cache.claim("pay:alice:k1", "hash-b");
+        assertFalse(reused.isOwner());
+        assertFalse(reused.matches("hash-b"));
+    }
+
+    @Test
+    void findDoesNotClaimTheKey() {
+        assertNull(cache.find("pay:alice:k1"));
+        IdempotencyCache.Entry first = cache.claim("pay:alice:k1", "hash-a");
+
+        IdempotencyCache.Entry found = cache.find("pay:alice:k1");
+        assertFalse(found.isOwner());
+        assertTrue(found.matches("hash-a"));
+        assertSame(first.getFuture(), found.getFuture());
+    }
+
+    @Test
+    void releasedKeyCanBeClaimedWithNewContent() {
+        IdempotencyCache.Entry first = cache.claim("pay:alice:k1", "hash-a");
+        cache.release("pay:alice:k1", first, Result.error("失败"), null);
+
+        IdempotencyCache.Entry retry = cache.claim("pay:alice:k1", "hash-b");
+        assertTrue(retry.isOwner());
+        assertTrue(retry.matches("hash-b"));
+    }
+}
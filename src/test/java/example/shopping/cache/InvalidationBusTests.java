@@ -0,0 +1,144 @@
+package example.shopping.cache;
+
+import example.shopping.entity.CacheChange;
+import example.shopping.mapper.CacheChangeMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class InvalidationBusTests {
+
+    private final ChangeLog changeLog = new ChangeLog();
+
+    private final List<String> receivedByA = new ArrayList<>();
+
+    private final List<String> receivedByB = new ArrayList<>();
+
+    private InvalidationBus nodeA;
+
+    private InvalidationBus nodeB;
+
+    @BeforeEach
+    void setUp() {
+        changeLog.insert(change("product", 99L));
+        nodeA = node(receivedByA);
+        nodeB = node(receivedByB);
+    }
+
+    @AfterEach
+    void tearDown() {
+        nodeA.stop();
+        nodeB.stop();
+    }
+
+    @Test
+    void deliversChangesToOtherNodesOnly() {
+        nodeA.publish(InvalidationBus.PRODUCT, 1L);
+        nodeB.publish(InvalidationBus.STORE, 2L);
+        nodeA.publish("example.shopping.mapper.UserMapper", null);
+
+        nodeA.poll();
+        nodeB.poll();
+        assertEquals(Collections.singletonList("store:2@3"), receivedByA);
+        assertEquals(Arrays.asList("product:1@2", "example.shopping.mapper.UserMapper:null@4"), receivedByB);
+
+        nodeB.poll();
+        assertEquals(2, receivedByB.size());
+    }
+
+    @Test
+    void picksUpChangesCommittedOutOfOrder() {
+        CacheChange late = changeLog.insertHidden(change(InvalidationBus.PRODUCT, 1L));
+        changeLog.insert(change(InvalidationBus.PRODUCT, 2L));
+
+        nodeB.poll();
+        assertEquals(Collections.singletonList("product:2@3"), receivedByB);
+
+        changeLog.commit(late);
+        nodeB.poll();
+        assertEquals(Arrays.asList("product:2@3", "product:1@2"), receivedByB);
+
+        nodeB.poll();
+        assertEquals(2, receivedByB.size());
+    }
+
+    private InvalidationBus node(List<String> received) {
+        InvalidationBus bus = new InvalidationBus(true, 60000, 60000, 24, 2);
+        ReflectionTestUtils.setField(bus, "cacheChangeMapper", changeLog);
+        ReflectionTestUtils.setField(bus, "eventPublisher", (ApplicationEventPublisher) event -> {
+            CacheInvalidationEvent e = (CacheInvalidationEvent) event;
+            received.add(e.getEntity() + ":" + e.getEntityId() + "@" + e.getVersion());
+        });
+        bus.start();
+        return bus;
+    }
+
+    private static CacheChange change(String entity, Long entityId) {
+        CacheChange change = new CacheChange();
+        change.setEntity(entity);
+        change.setEntityId(entityId);
+        change.setNodeId("other");
+        change.setCreateTime(new Date());
+        return change;
+    }
+
+    /**
+     * 模拟共享的 cache_changes 表，未提交的记录已分配ID但不可见
+     */
+    private static class ChangeLog implements CacheChangeMapper {
+
+        private final TreeMap<Long, CacheChange> rows = new TreeMap<>();
+
+        private final Set<Long> hidden = new HashSet<>();
+
+        private long nextId = 1;
+
+        @Override
+        public synchronized int insert(CacheChange change) {
+            change.setId(nextId++);
+            rows.put(change.getId(), change);
+            return 1;
+        }
+
+        synchronized CacheChange insertHidden(CacheChange change) {
+            insert(change);
+            hidden.add(change.getId());
+            return change;
+        }
+
+        synchronized void commit(CacheChange change) {
+            hidden.remove(change.getId());
+        }
+
+        @Override
+        public synchronized List<CacheChange> findAfter(long afterId, int limit) {
+            return rows.tailMap(afterId, false).values().stream()
+                    .filter(change -> !hidden.contains(change.getId()))
+                    .limit(limit)
+                    .collect(Collectors.toList());
+        }
+
+        @Override
+        public synchronized List<CacheChange> findByIds(Collection<Long> ids) {
+            return ids.stream().filter(id -> rows.containsKey(id) && !hidden.contains(id))
+                    .map(rows::get).collect(Collectors.toList());
+        }
+
+        @Override
+        public synchronized long findMaxId() {
+            return rows.isEmpty() ? 0 : rows.lastKey();
+        }
+
+        @Override
+        public synchronized int deleteBefore(Date before, int limit) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package example.shopping.cache;
+
+import example.shopping.entity.Store;
+import example.shopping.mapper.StoreMapper;
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MapperCacheTests {
+
+    @Test
+    void returnsCopiesAndEvictsLeastRecentlyUsed() {
+        MapperCache cache = new MapperCache("test.lru");
+        cache.setSize(2);
+        cache.putObject("a", Collections.singletonList(store(1L, "A")));
+        cache.putObject("b", Collections.singletonList(store(2L, "B")));
+
+        @SuppressWarnings("unchecked")
+        List<Store> cached = (List<Store>) cache.getObject("a");
+        cached.get(0).setName("changed");
+        assertEquals("A", firstName(cache.getObject("a")));
+
+        cache.putObject("c", Collections.singletonList(store(3L, "C")));
+        assertNull(cache.getObject("b"));
+        assertEquals(2, cache.getSize());
+
+        cache.putObject("d", null);
+        assertNull(cache.getObject("d"));
+
+        Map<String, Object> stat = MapperCache.stats().stream()
+                .filter(s -> "test.lru".equals(s.get("name"))).findFirst().orElseThrow(IllegalStateException::new);
+        assertEquals(2L, stat.get("hits"));
+        assertEquals(2L, stat.get("misses"));
+        assertEquals(0.5, stat.get("hitRatio"));
+        assertTrue((Long) stat.get("bytes") > 0);
+
+        cache.clear();
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    void expiresEntries() throws InterruptedException {
+        MapperCache cache = new MapperCache("test.ttl");
+        cache.setTtlSeconds(0);
+        cache.putObject("a", new ArrayList<>(Collections.singletonList(store(1L, "A"))));
+        Thread.sleep(5);
+        assertNull(cache.getObject("a"));
+    }
+
+    @Test
+    void configuredFromMapperAnnotation() {
+        Properties variables = new Properties();
+        variables.setProperty("mapper-cache.store.size", "7");
+        variables.setProperty("mapper-cache.store.ttl-seconds", "30");
+        Configuration configuration = new Configuration();
+        configuration.setVariables(variables);
+        configuration.addMapper(StoreMapper.class);
+
+        Cache cache = configuration.getCache(StoreMapper.class.getName());
+        Map<String, Object> stat = MapperCache.stats().stream()
+                .filter(s -> cache.getId().equals(s.get("name"))).findFirst().orElseThrow(IllegalStateException::new);
+        assertEquals(7, stat.get("maxEntries"));
+        assertEquals(30L, stat.get("ttlSeconds"));
+    }
+
+    private static String firstName(Object cached) {
+        return ((Store) ((List<?>) cached).get(0)).getName();
+    }
+
+    private static Store store(Long id, String name) {
+        Store store = new Store();
+        store.setId(id);
+        store.setName(name);
+        return store;
+    }
+}
@@ -0,0 +1,113 @@
+package example.shopping.cache;
+
+import example.shopping.entity.Order;
+import example.shopping.entity.Product;
+import example.shopping.mapper.OrderMapper;
+import example.shopping.mapper.ProductMapper;
+import example.shopping.statemachine.OrderStatus;
+import example.shopping.statemachine.OrderTransition;
+import example.shopping.statemachine.OrderTransitionEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProductLeaderboardTests {
+
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    private ProductLeaderboard leaderboard;
+
+    @BeforeEach
+    void setUp() {
+        long now = System.currentTimeMillis();
+        ProductMapper productMapper = mock(ProductMapper.class);
+        when(productMapper.findRankFields()).thenReturn(Arrays.asList(
+                product(1L, 100L, 50, now - 3 * HOUR),
+                product(2L, 100L, 30, now - 2 * HOUR),
+                product(3L, 200L, 40, now - HOUR)));
+        OrderMapper orderMapper = mock(OrderMapper.class);
+        // 商品1两天前卖出4件，商品3刚卖出3件：按24小时半衰期，商品1的热度只相当于1件
+        when(orderMapper.findItemsCreatedAfter(any(Date.class))).thenReturn(Arrays.asList(
+                order(items(1L, 4), now - 48 * HOUR),
+                order(items(3L, 3), now)));
+
+        leaderboard = new ProductLeaderboard(24);
+        ReflectionTestUtils.setField(leaderboard, "productMapper", productMapper);
+        ReflectionTestUtils.setField(leaderboard, "orderMapper", orderMapper);
+        leaderboard.rebuild();
+    }
+
+    @Test
+    void ranksGlobalAndCategoryBoards() {
+        assertEquals(Arrays.asList(1L, 3L, 2L), leaderboard.topSelling(null, 10));
+        assertEquals(Arrays.asList(1L, 2L), leaderboard.topSelling(100L, 10));
+        assertEquals(Collections.singletonList(3L), leaderboard.newest(null, 1));
+        assertEquals(Arrays.asList(3L, 1L, 2L), leaderboard.trending(null, 10));
+        assertEquals(Collections.emptyList(), leaderboard.topSelling(999L, 10));
+    }
+
+    @Test
+    void appliesOrderAndProductChanges() {
+        Order order = order(items(2L, 25), System.currentTimeMillis());
+        leaderboard.onTransition(new OrderTransitionEvent(order, null, OrderStatus.UNPAID.getValue(), OrderTransition.CREATE));
+        assertEquals(Arrays.asList(2L, 1L, 3L), leaderboard.topSelling(null, 10));
+        assertEquals(2L, leaderboard.trending(null, 1).get(0));
+
+        leaderboard.onTransition(new OrderTransitionEvent(order, OrderStatus.UNPAID.getValue(),
+                OrderStatus.CANCELLED.getValue(), OrderTransition.CANCEL));
+        assertEquals(Arrays.asList(1L, 3L, 2L), leaderboard.topSelling(null, 10));
+
+        Product moved = product(1L, 200L, 50, System.currentTimeMillis() - 3 * HOUR);
+        leaderboard.put(moved);
+        assertEquals(Collections.singletonList(2L), leaderboard.topSelling(100L, 10));
+        assertEquals(Arrays.asList(1L, 3L), leaderboard.topSelling(200L, 10));
+
+        moved.setStatus(0);
+        leaderboard.put(moved);
+        leaderboard.remove(2L);
+        assertEquals(Collections.singletonList(3L), leaderboard.topSelling(null, 10));
+    }
+
+    @Test
+    void productsWithoutCategoryOnlyJoinGlobalBoards() {
+        Product uncategorized = product(4L, null, 45, System.currentTimeMillis());
+        leaderboard.put(uncategorized);
+        assertEquals(Arrays.asList(1L, 4L, 3L, 2L), leaderboard.topSelling(null, 10));
+        assertEquals(Arrays.asList(1L, 2L), leaderboard.topSelling(100L, 10));
+
+        uncategorized.setStatus(0);
+        leaderboard.put(uncategorized);
+        assertEquals(Arrays.asList(1L, 3L, 2L), leaderboard.topSelling(null, 10));
+    }
+
+    private static Product product(Long id, Long categoryId, int sales, long createTime) {
+        Product product = new Product();
+        product.setId(id);
+        product.setCategoryId(categoryId);
+        product.setStatus(1);
+        product.setSales(sales);
+        product.setCreateTime(new Date(createTime));
+        return product;
+    }
+
+    private static Order order(String items, long createTime) {
+        Order order = new Order();
+        order.setItems(items);
+        order.setCreateTime(new Date(createTime));
+        return order;
+    }
+
+    private static String items(Long productId, int quantity) {
+        return "[{\"productId\":" + productId + ",\"quantity\":" + quantity + "}]";
+    }
+}
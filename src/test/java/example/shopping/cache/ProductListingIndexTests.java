@@ -0,0 +1,136 @@
+package example.shopping.cache;
+
+import example.shopping.dto.ProductFacetsDTO;
+import example.shopping.entity.Product;
+import example.shopping.mapper.ProductMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProductListingIndexTests {
+
+    private ProductListingIndex index;
+
+    @BeforeEach
+    void setUp() {
+        ProductMapper productMapper = mock(ProductMapper.class);
+        when(productMapper.findListingFields()).thenReturn(Arrays.asList(
+                product(1L, 100L, 10L, "19.90", 50, 4.5, 1, 1000L),
+                product(2L, 100L, 20L, "9.90", 80, 4.8, 1, 3000L),
+                product(3L, 200L, 10L, "29.90", 10, 4.2, 1, 2000L),
+                product(4L, 100L, 10L, "5.00", 90, 3.9, 0, 4000L)));
+
+        index = new ProductListingIndex(0);
+        ReflectionTestUtils.setField(index, "productMapper", productMapper);
+        index.load();
+    }
+
+    @Test
+    void filtersAndSorts() {
+        assertEquals(Arrays.asList(2L, 1L, 3L), query(null, null, 1, null, null, ProductListingIndex.SORT_PRICE, true).getIds());
+        assertEquals(Arrays.asList(2L, 1L), query(100L, null, 1, null, null, ProductListingIndex.SORT_SALES, false).getIds());
+        assertEquals(Arrays.asList(3L, 1L), query(null, 10L, 1, null, null, ProductListingIndex.SORT_RATING, true).getIds());
+        assertEquals(Arrays.asList(4L, 2L, 3L, 1L), query(null, null, null, null, null, ProductListingIndex.SORT_NEW, false).getIds());
+        assertEquals(Collections.singletonList(1L),
+                query(null, null, 1, new BigDecimal("9.91"), new BigDecimal("19.9"), null, true).getIds());
+        assertEquals(Collections.emptyList(), query(300L, null, 1, null, null, null, true).getIds());
+    }
+
+    @Test
+    void paginatesWithTotal() {
+        ProductListingIndex.Page page = index.query(null, null, 1, null, null, ProductListingIndex.SORT_PRICE, false, 1, 1);
+        assertEquals(Collections.singletonList(1L), page.getIds());
+        assertEquals(3, page.getTotal());
+
+        page = index.query(null, null, 1, null, null, ProductListingIndex.SORT_PRICE, false, 5, 1);
+        assertEquals(Collections.emptyList(), page.getIds());
+        assertEquals(3, page.getTotal());
+    }
+
+    @Test
+    void appliesProductChanges() {
+        index.addSales(3L, 100);
+        index.refresh();
+        assertEquals(Arrays.asList(3L, 2L, 1L), query(null, null, 1, null, null, ProductListingIndex.SORT_SALES, false).getIds());
+
+        index.put(product(5L, 200L, 20L, "1.00", 0, 5.0, 1, 5000L));
+        index.remove(2L);
+        index.refresh();
+        assertEquals(Arrays.asList(5L, 1L, 3L), query(null, null, 1, null, null, ProductListingIndex.SORT_PRICE, true).getIds());
+        assertEquals(Arrays.asList(3L, 5L), query(200L, null, 1, null, null, ProductListingIndex.SORT_PRICE, false).getIds());
+    }
+
+    @Test
+    void countsFacets() {
+        ProductFacetsDTO facets = index.facets(Arrays.asList(1L, 2L, 4L, 99L));
+
+        Map<Long, Integer> categories = new LinkedHashMap<>();
+        categories.put(100L, 3);
+        assertEquals(categories, facets.getCategories());
+        Map<Long, Integer> stores = new LinkedHashMap<>();
+        stores.put(10L, 2);
+        stores.put(20L, 1);
+        assertEquals(stores, facets.getStores());
+        assertEquals(Collections.singletonMap("0-50", 3), facets.getPrices());
+        Map<String, Integer> ratings = new LinkedHashMap<>();
+        ratings.put("3-4", 1);
+        ratings.put("4.5+", 2);
+        assertEquals(ratings, facets.getRatings());
+    }
+
+    @Test
+    void sortsByValueThenIdAcrossLargeCatalog() {
+        Random random = new Random(42);
+        List<Product> products = new ArrayList<>();
+        for (long id = 1; id <= 1000; id++) {
+            products.add(product(id, 100L, 10L, "1.00", random.nextInt(20), 4.0, 1, id));
+        }
+        ProductMapper productMapper = mock(ProductMapper.class);
+        when(productMapper.findListingFields()).thenReturn(products);
+        ReflectionTestUtils.setField(index, "productMapper", productMapper);
+        index.load();
+
+        List<Long> expected = products.stream()
+                .sorted(Comparator.comparing(Product::getSales).thenComparing(Product::getId))
+                .map(Product::getId).collect(Collectors.toList());
+        assertEquals(expected, index.query(null, null, null, null, null,
+                ProductListingIndex.SORT_SALES, true, 0, 1000).getIds());
+    }
+
+    @Test
+    void ratingChangesReachFacetsAfterRefresh() {
+        Product product = product(4L, 100L, 10L, "5.00", 90, 4.9, 0, 4000L);
+        index.put(product);
+        assertEquals(Integer.valueOf(1), index.facets(Collections.singletonList(4L)).getRatings().get("3-4"));
+
+        index.refresh();
+        assertEquals(Collections.singletonMap("4.5+", 1), index.facets(Collections.singletonList(4L)).getRatings());
+    }
+
+    private ProductListingIndex.Page query(Long categoryId, Long storeId, Integer status, BigDecimal minPrice,
+                                           BigDecimal maxPrice, String sort, boolean asc) {
+        return index.query(categoryId, storeId, status, minPrice, maxPrice, sort, asc, 0, 10);
+    }
+
+    private static Product product(Long id, Long categoryId, Long storeId, String price, int sales, double rating,
+                                   int status, long createTime) {
+        Product product = new Product();
+        product.setId(id);
+        product.setCategoryId(categoryId);
+        product.setStoreId(storeId);
+        product.setPrice(new BigDecimal(price));
+        product.setSales(sales);
+        product.setRating(rating);
+        product.setStatus(status);
+        product.setCreateTime(new Date(createTime));
+        return product;
+    }
+}
@@ -0,0 +1,61 @@
+package example.shopping.cache;
+
+import example.shopping.exception.BusinessException;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ProductSpecIndexTests {
+
+    private static final String SPECIFICATIONS = "{\"颜色\":[\"红色\",\"蓝色\",\"黑色\"],\"尺寸\":[\"S\",\"M\",\"L\",\"XL\"],\"材质\":\"纯棉\"}";
+
+    @Test
+    void validatesSpecNamesAndValues() {
+        ProductSpecIndex index = ProductSpecIndex.compile(SPECIFICATIONS);
+
+        index.validate(spec("颜色", "红色", "尺寸", "XL"));
+        index.validate(spec("材质", "纯棉"));
+        assertThrows(BusinessException.class, () -> index.validate(spec("颜色", "绿色")));
+        assertThrows(BusinessException.class, () -> index.validate(spec("重量", "1kg")));
+    }
+
+    @Test
+    void encodingIgnoresSubmissionOrder() {
+        ProductSpecIndex index = ProductSpecIndex.compile(SPECIFICATIONS);
+
+        String key = index.canonicalize(spec("颜色", "红色", "尺寸", "M"));
+        assertEquals(key, index.canonicalize(spec("尺寸", "M", "颜色", "红色")));
+        assertNull(index.canonicalize(new HashMap<>()));
+    }
+
+    @Test
+    void reencodesLegacySpecInfo() {
+        ProductSpecIndex index = ProductSpecIndex.compile(SPECIFICATIONS);
+        String key = index.canonicalize(spec("颜色", "红色", "尺寸", "M"));
+
+        assertEquals(key, ProductSpecIndex.reencode("{\"颜色\":\"红色\",\"尺寸\":\"M\"}"));
+        assertEquals(key, ProductSpecIndex.reencode(key));
+        assertNull(ProductSpecIndex.reencode("{}"));
+    }
+
+    @Test
+    void keepsDeclaredSpecOrder() {
+        Map<String, List<String>> specs = ProductSpecIndex.compile(SPECIFICATIONS).getSpecs();
+        assertEquals("[颜色, 尺寸, 材质]", specs.keySet().toString());
+    }
+
+    private Map<String, String> spec(String... pairs) {
+        Map<String, String> spec = new LinkedHashMap<>();
+        for (int i = 0; i < pairs.length; i += 2) {
+            spec.put(pairs[i], pairs[i + 1]);
+        }
+        return spec;
+    }
+}
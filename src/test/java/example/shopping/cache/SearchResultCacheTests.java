@@ -0,0 +1,83 @@
+package example.shopping.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchResultCacheTests {
+
+    @Test
+    void normalizesKeywords() {
+        assertEquals("red apple", SearchResultCache.normalize("  Red \t APPLE "));
+    }
+
+    @Test
+    void coalescesConcurrentQueries() throws Exception {
+        SearchResultCache cache = new SearchResultCache(true, 30, 100);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<List<Long>> first = executor.submit(() -> cache.get("apple", () -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                await(release);
+                return Arrays.asList(3L, 1L);
+            }));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            Future<List<Long>> second = executor.submit(() -> cache.get("apple", () -> {
+                loads.incrementAndGet();
+                return Collections.emptyList();
+            }));
+            release.countDown();
+
+            assertEquals(Arrays.asList(3L, 1L), first.get(5, TimeUnit.SECONDS));
+            assertEquals(Arrays.asList(3L, 1L), second.get(5, TimeUnit.SECONDS));
+            assertEquals(1, loads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void reloadsAfterInvalidationOrFailure() {
+        SearchResultCache cache = new SearchResultCache(true, 30, 100);
+        assertEquals(Collections.singletonList(1L), cache.get("apple", () -> Collections.singletonList(1L)));
+        assertEquals(Collections.singletonList(1L), cache.get("apple", () -> Collections.singletonList(2L)));
+
+        cache.invalidateAll();
+        assertEquals(Collections.singletonList(2L), cache.get("apple", () -> Collections.singletonList(2L)));
+
+        assertThrows(IllegalStateException.class, () -> cache.get("pear", () -> {
+            throw new IllegalStateException();
+        }));
+        assertEquals(Collections.singletonList(5L), cache.get("pear", () -> Collections.singletonList(5L)));
+    }
+
+    @Test
+    void expiresAfterTtl() {
+        SearchResultCache cache = new SearchResultCache(true, 0, 100);
+        cache.get("apple", () -> Collections.singletonList(1L));
+        // TTL为0时结果在下一毫秒过期
+        long start = System.currentTimeMillis();
+        while (System.currentTimeMillis() == start) {
+            Thread.yield();
+        }
+        assertEquals(Collections.singletonList(2L), cache.get("apple", () -> Collections.singletonList(2L)));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package example.shopping.cache;
+
+import example.shopping.entity.Store;
+import example.shopping.mapper.StoreMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class StoreSearchIndexTests {
+
+    private StoreSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        StoreMapper storeMapper = mock(StoreMapper.class);
+        when(storeMapper.findByStatus(1)).thenReturn(Arrays.asList(
+                store(1L, "数码旗舰店", "手机 电脑 配件", 1),
+                store(2L, "数码", "各类数码产品", 1),
+                store(3L, "小米数码专营", null, 1),
+                store(4L, "水果铺", "新鲜水果，也卖数码周边", 1)));
+
+        index = new StoreSearchIndex();
+        ReflectionTestUtils.setField(index, "storeMapper", storeMapper);
+        index.load();
+    }
+
+    @Test
+    void ranksByNameMatch() {
+        StoreSearchIndex.Page page = index.search("数码", 0, 10);
+        assertEquals(Arrays.asList(2L, 1L, 3L, 4L), page.getIds());
+        assertEquals(4, page.getTotal());
+
+        assertEquals(Collections.singletonList(1L), index.search("电脑", 0, 10).getIds());
+        assertEquals(Collections.singletonList(4L), index.search("果", 0, 10).getIds());
+        assertEquals(Collections.emptyList(), index.search("码旗店", 0, 10).getIds());
+    }
+
+    @Test
+    void paginates() {
+        StoreSearchIndex.Page page = index.search("数码", 2, 1);
+        assertEquals(Collections.singletonList(3L), page.getIds());
+        assertEquals(4, page.getTotal());
+    }
+
+    @Test
+    void keepsOnlyActiveStores() {
+        index.put(store(5L, "数码城", null, 0));
+        index.put(store(3L, "小米之家", null, 1));
+        index.put(store(1L, "数码旗舰店", "手机 电脑 配件", 2));
+        index.remove(4L);
+
+        assertEquals(Collections.singletonList(2L), index.search("数码", 0, 10).getIds());
+        assertEquals(Collections.singletonList(3L), index.search("小米", 0, 10).getIds());
+    }
+
+    private static Store store(Long id, String name, String description, int status) {
+        Store store = new Store();
+        store.setId(id);
+        store.setName(name);
+        store.setDescription(description);
+        store.setStatus(status);
+        return store;
+    }
+}
@@ -0,0 +1,43 @@
+package example.shopping.cache;
+
+import example.shopping.utils.PinyinUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class SuggestTrieTests {
+
+    @Test
+    void convertsPinyinInitials() {
+        assertEquals("pgsj", PinyinUtils.initials("苹果手机"));
+        assertEquals("pgiphone15", PinyinUtils.initials("苹果 iPhone 15"));
+        assertNull(PinyinUtils.initials("iPhone"));
+    }
+
+    @Test
+    void suggestsTopCompletionsByWeight() {
+        Map<String, Long> weights = new LinkedHashMap<>();
+        weights.put("苹果手机", 50L);
+        weights.put("苹果 iPhone 15", 80L);
+        weights.put("苹果汁", 10L);
+        weights.put("Apple Watch", 30L);
+        weights.put("apple  watch", 30L);
+        weights.put("平板电脑", 20L);
+        SuggestTrie trie = SuggestTrie.build(weights, 3);
+
+        assertEquals(Arrays.asList("苹果 iPhone 15", "苹果手机", "苹果汁"), trie.suggest("苹果", 10));
+        assertEquals(Collections.singletonList("苹果 iPhone 15"), trie.suggest("苹果", 1));
+        assertEquals(Collections.singletonList("苹果手机"), trie.suggest("苹果手", 10));
+        assertEquals(Collections.singletonList("Apple Watch"), trie.suggest(" APPLE  w", 10));
+        assertEquals(Arrays.asList("苹果 iPhone 15", "苹果手机", "平板电脑"), trie.suggest("p", 10));
+        assertEquals(Collections.singletonList("苹果手机"), trie.suggest("pgs", 10));
+        assertEquals(Collections.emptyList(), trie.suggest("香蕉", 10));
+        assertEquals(5, trie.size());
+    }
+}
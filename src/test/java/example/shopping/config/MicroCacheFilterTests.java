@@ -0,0 +1,173 @@
+package example.shopping.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.FilterChain;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MicroCacheFilterTests {
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private final MicroCacheFilter filter = new MicroCacheFilter(true, 60000, 10, 1024,
+            new String[]{"/api/products/**"}, "Authorization");
+
+    private final FilterChain chain = (request, response) -> {
+        calls.incrementAndGet();
+        response.setContentType("application/json;charset=UTF-8");
+        response.getWriter().write("{\"data\":" + calls.get() + "}");
+    };
+
+    @Test
+    void servesCachedBodyWithEtag() throws Exception {
+        MockHttpServletResponse first = get("/api/products/1", null);
+        MockHttpServletResponse second = get("/api/products/1", null);
+
+        assertEquals(1, calls.get());
+        assertEquals("{\"data\":1}", first.getContentAsString());
+        assertEquals("{\"data\":1}", second.getContentAsString());
+        assertEquals("application/json;charset=UTF-8", second.getContentType());
+        assertNotNull(second.getHeader("ETag"));
+        assertEquals(first.getHeader("ETag"), second.getHeader("ETag"));
+
+        get("/api/products/1?x=1", null);
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void revalidatesWithIfNoneMatch() throws Exception {
+        String etag = get("/api/products/1", null).getHeader("ETag");
+
+        MockHttpServletRequest request = request("/api/products/1");
+        request.addHeader("If-None-Match", "W/" + etag);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+
+        assertEquals(HttpServletResponse.SC_NOT_MODIFIED, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void servesPrecompressedBody() throws Exception {
+        get("/api/products/1", null);
+        MockHttpServletResponse response = get("/api/products/1", "gzip, deflate");
+
+        assertEquals("gzip", response.getHeader("Content-Encoding"));
+        assertEquals("{\"data\":1}", gunzip(response.getContentAsByteArray()));
+    }
+
+    @Test
+    void bypassesAuthenticatedAndUnmatchedRequests() throws Exception {
+        MockHttpServletRequest request = request("/api/products/1");
+        request.addHeader("Authorization", "Bearer token");
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+        get("/api/orders", null);
+        get("/api/orders", null);
+        assertEquals(4, calls.get());
+    }
+
+    @Test
+    void clearsOnWrite() throws Exception {
+        get("/api/products/1", null);
+        MockHttpServletRequest post = request("/api/products");
+        post.setMethod("POST");
+        filter.doFilter(post, new MockHttpServletResponse(), chain);
+
+        assertEquals("{\"data\":3}", get("/api/products/1", null).getContentAsString());
+    }
+
+    @Test
+    void doesNotCacheErrors() throws Exception {
+        FilterChain failing = (request, response) -> {
+            calls.incrementAndGet();
+            ((HttpServletResponse) response).setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            response.getWriter().write("{\"message\":\"商品不存在\"}");
+        };
+        for (int i = 0; i < 2; i++) {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            filter.doFilter(request("/api/products/1"), response, failing);
+            assertEquals(HttpServletResponse.SC_BAD_REQUEST, response.getStatus());
+            assertNull(response.getHeader("ETag"));
+        }
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void coalescesConcurrentMisses() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        FilterChain slow = (request, response) -> {
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            chain.doFilter(request, response);
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<MockHttpServletResponse> leader = executor.submit(() -> get("/api/products/1", null, slow));
+            entered.await();
+            Future<MockHttpServletResponse> follower = executor.submit(() -> get("/api/products/1", null, slow));
+            Thread.sleep(50);
+            release.countDown();
+
+            assertEquals("{\"data\":1}", leader.get(5, TimeUnit.SECONDS).getContentAsString());
+            assertEquals("{\"data\":1}", follower.get(5, TimeUnit.SECONDS).getContentAsString());
+            assertEquals(1, calls.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private MockHttpServletResponse get(String uri, String acceptEncoding) throws Exception {
+        return get(uri, acceptEncoding, chain);
+    }
+
+    private MockHttpServletResponse get(String uri, String acceptEncoding, FilterChain chain) throws Exception {
+        MockHttpServletRequest request = request(uri);
+        if (acceptEncoding != null) {
+            request.addHeader("Accept-Encoding", acceptEncoding);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String uri) {
+        int query = uri.indexOf('?');
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", query < 0 ? uri : uri.substring(0, query));
+        if (query >= 0) {
+            request.setQueryString(uri.substring(query + 1));
+        }
+        return request;
+    }
+
+    private static String gunzip(byte[] bytes) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[256];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                out.write(buffer, 0, n);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package example.shopping.service.impl;
+
+import example.shopping.cache.BatchLoaders;
+import example.shopping.cache.CartCountCache;
+import example.shopping.cache.CartWriteBackStore;
+import example.shopping.cache.InvalidationBus;
+import example.shopping.cache.ProductSpecIndexCache;
+import example.shopping.entity.Cart;
+import example.shopping.entity.Product;
+import example.shopping.exception.BusinessException;
+import example.shopping.mapper.CartMapper;
+import example.shopping.mapper.ProductMapper;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 同一组操作分别在数据库模式和写回模式下执行，结果应一致
+ */
+class CartServiceImplTests {
+
+    private static final Long USER_ID = 7L;
+
+    private static final Long OTHER_USER_ID = 8L;
+
+    /**
+     * 模拟 carts 表
+     */
+    private final Map<Long, Cart> rows = new TreeMap<>();
+
+    private CartWriteBackStore writeBackStore;
+
+    private CartServiceImpl cartService;
+
+    @ParameterizedTest(name = "write-back={0}")
+    @ValueSource(booleans = {false, true})
+    void sameResultsWithAndWithoutWriteBack(boolean writeBack) {
+        setUp(writeBack);
+
+        assertEquals(2, cartService.getCartList(USER_ID).size());
+        assertEquals(3, cartService.getCartProductCount(USER_ID));
+
+        assertEquals(5, cartService.updateQuantity(USER_ID, 1L, 5).getQuantity());
+        assertFalse(cartService.updateSelected(USER_ID, 2L, false).getSelected());
+        assertEquals(6, cartService.getCartProductCount(USER_ID));
+
+        List<Map<String, Object>> selected = cartService.getSelectedCartList(USER_ID);
+        assertEquals(Collections.singletonList(1L),
+                selected.stream().map(item -> item.get("id")).collect(Collectors.toList()));
+        assertEquals(new BigDecimal("50"), cartService.getCartAmount(USER_ID).get("totalAmount"));
+        assertEquals(5, cartService.checkProductInCart(USER_ID, 10L, null).getQuantity());
+
+        assertThrows(BusinessException.class, () -> cartService.updateQuantity(USER_ID, 3L, 1));
+        assertThrows(BusinessException.class, () -> cartService.updateSelected(USER_ID, 3L, false));
+        assertThrows(BusinessException.class, () -> cartService.updateQuantity(USER_ID, 1L, 1000));
+
+        assertTrue(cartService.updateAllSelected(USER_ID, true));
+        assertEquals(2, cartService.getSelectedCartList(USER_ID).size());
+
+        // 写回后数据库中的数据与直接写数据库一致
+        writeBackStore.flushAll();
+        assertEquals(5, rows.get(1L).getQuantity());
+        assertTrue(rows.get(2L).getSelected());
+        assertEquals(1, rows.get(3L).getQuantity());
+        assertTrue(rows.get(3L).getSelected());
+    }
+
+    private void setUp(boolean writeBack) {
+        rows.put(1L, cart(1L, USER_ID, 10L, 2));
+        rows.put(2L, cart(2L, USER_ID, 11L, 1));
+        rows.put(3L, cart(3L, OTHER_USER_ID, 10L, 1));
+
+        CartMapper cartMapper = mockCartMapper();
+        ProductMapper productMapper = mock(ProductMapper.class);
+        Map<Long, Product> products = new HashMap<>();
+        products.put(10L, product(10L));
+        products.put(11L, product(11L));
+        when(productMapper.findById(anyLong())).thenAnswer(invocation -> products.get(invocation.<Long>getArgument(0)));
+        when(productMapper.findByIds(anyCollection())).thenAnswer(invocation -> invocation.<Collection<Long>>getArgument(0)
+                .stream().map(products::get).filter(Objects::nonNull).collect(Collectors.toList()));
+
+        writeBackStore = new CartWriteBackStore(writeBack, 100, 1000);
+        ReflectionTestUtils.setField(writeBackStore, "cartMapper", cartMapper);
+        ReflectionTestUtils.setField(writeBackStore, "transactionManager", mock(PlatformTransactionManager.class));
+
+        CartCountCache cartCountCache = new CartCountCache(true, 100);
+        ReflectionTestUtils.setField(cartCountCache, "invalidationBus", new InvalidationBus(false, 1000, 60000, 24, 500));
+
+        BatchLoaders batchLoaders = new BatchLoaders();
+        ReflectionTestUtils.setField(batchLoaders, "productMapper", productMapper);
+
+        cartService = new CartServiceImpl();
+        ReflectionTestUtils.setField(cartService, "cartMapper", cartMapper);
+        ReflectionTestUtils.setField(cartService, "productMapper", productMapper);
+        ReflectionTestUtils.setField(cartService, "productSpecIndexCache", new ProductSpecIndexCache(100));
+        ReflectionTestUtils.setField(cartService, "cartWriteBackStore", writeBackStore);
+        ReflectionTestUtils.setField(cartService, "cartCountCache", cartCountCache);
+        ReflectionTestUtils.setField(cartService, "batchLoaders", batchLoaders);
+    }
+
+    /**
+     * 按 {@link #rows} 应答的 CartMapper，查询返回副本
+     */
+    private CartMapper mockCartMapper() {
+        CartMapper cartMapper = mock(CartMapper.class);
+        when(cartMapper.findByUserId(anyLong())).thenAnswer(invocation -> rows.values().stream()
+                .filter(row -> row.getUserId().equals(invocation.getArgument(0)))
+                .map(CartServiceImplTests::copyOf).collect(Collectors.toList()));
+        when(cartMapper.findById(anyLong())).thenAnswer(invocation -> {
+            Cart row = rows.get(invocation.<Long>getArgument(0));
+            return row != null ? copyOf(row) : null;
+        });
+        when(cartMapper.findByUserIdAndProductIdAndSpecInfo(anyLong(), anyLong(), any())).thenAnswer(invocation ->
+                rows.values().stream()
+                        .filter(row -> row.getUserId().equals(invocation.getArgument(0))
+                                && row.getProductId().equals(invocation.getArgument(1))
+                                && Objects.equals(row.getSpecInfo(), invocation.getArgument(2)))
+                        .findFirst().map(CartServiceImplTests::copyOf).orElse(null));
+        when(cartMapper.sumQuantityByUserId(anyLong())).thenAnswer(invocation -> rows.values().stream()
+                .filter(row -> row.getUserId().equals(invocation.getArgument(0)))
+                .mapToInt(Cart::getQuantity).sum());
+        when(cartMapper.updateQuantity(anyLong(), anyInt())).thenAnswer(invocation -> {
+            rows.get(invocation.<Long>getArgument(0)).setQuantity(invocation.getArgument(1));
+            return 1;
+        });
+        when(cartMapper.updateSelected(anyLong(), anyBoolean())).thenAnswer(invocation -> {
+            rows.get(invocation.<Long>getArgument(0)).setSelected(invocation.getArgument(1));
+            return 1;
+        });
+        when(cartMapper.updateAllSelected(anyLong(), anyBoolean())).thenAnswer(invocation -> {
+            List<Cart> owned = rows.values().stream()
+                    .filter(row -> row.getUserId().equals(invocation.getArgument(0))).collect(Collectors.toList());
+            owned.forEach(row -> row.setSelected(invocation.getArgument(1)));
+            return owned.size();
+        });
+        when(cartMapper.updateBatch(anyMap(), anyMap(), any())).thenAnswer(invocation -> {
+            Map<Long, Integer> quantities = invocation.getArgument(0);
+            Map<Long, Boolean> selections = invocation.getArgument(1);
+            quantities.forEach((id, quantity) -> rows.get(id).setQuantity(quantity));
+            selections.forEach((id, selected) -> rows.get(id).setSelected(selected));
+            return invocation.<Collection<Long>>getArgument(2).size();
+        });
+        return cartMapper;
+    }
+
+    private static Cart cart(Long id, Long userId, Long productId, int quantity) {
+        Cart cart = new Cart();
+        cart.setId(id);
+        cart.setUserId(userId);
+        cart.setProductId(productId);
+        cart.setQuantity(quantity);
+        cart.setSelected(true);
+        return cart;
+    }
+
+    private static Cart copyOf(Cart row) {
+        Cart cart = cart(row.getId(), row.getUserId(), row.getProductId(), row.getQuantity());
+        cart.setSpecInfo(row.getSpecInfo());
+        cart.setSelected(row.getSelected());
+        return cart;
+    }
+
+    private static Product product(Long id) {
+        Product product = new Product();
+        product.setId(id);
+        product.setStatus(1);
+        product.setStock(100);
+        product.setPrice(new BigDecimal("10"));
+        return product;
+    }
+}
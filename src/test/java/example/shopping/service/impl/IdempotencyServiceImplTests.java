@@ -0,0 +1,71 @@
+package example.shopping.service.impl;
+
+import example.shopping.cache.IdempotencyCache;
+import example.shopping.exception.IdempotencyKeyReusedException;
+import example.shopping.mapper.IdempotencyRecordMapper;
+import example.shopping.utils.Result;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class IdempotencyServiceImplTests {
+
+    private final IdempotencyRecordMapper recordMapper = mock(IdempotencyRecordMapper.class);
+
+    private final IdempotencyServiceImpl service = new IdempotencyServiceImpl();
+
+    private final AtomicInteger executions = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        when(recordMapper.insertIgnore(any())).thenReturn(1);
+        ReflectionTestUtils.setField(service, "idempotencyCache", new IdempotencyCache(60, 100));
+        ReflectionTestUtils.setField(service, "idempotencyRecordMapper", recordMapper);
+        ReflectionTestUtils.setField(service, "ttlMinutes", 60L);
+        ReflectionTestUtils.setField(service, "waitSeconds", 1L);
+    }
+
+    @Test
+    void repeatedKeyIsAnsweredFromMemory() {
+        Result<String> first = execute("k1", "order-a");
+        verify(recordMapper, times(1)).insertIgnore(any());
+        clearInvocations(recordMapper);
+
+        Result<String> again = execute("k1", "order-a");
+        assertSame(first, again);
+        assertEquals(1, executions.get());
+        verifyNoInteractions(recordMapper);
+    }
+
+    @Test
+    void reusedKeyWithDifferentBodyIsRejected() {
+        execute("k1", "order-a");
+        assertThrows(IdempotencyKeyReusedException.class, () -> execute("k1", "order-b"));
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void failedRequestReleasesKey() {
+        Result<String> failed = service.execute("k1", "order", Collections.singletonMap("body", "order-a"),
+                String.class, () -> Result.error("库存不足"));
+        assertFalse(failed.getSuccess());
+        verify(recordMapper).deleteByRequestKey(any());
+
+        execute("k1", "order-a");
+        assertEquals(1, executions.get());
+    }
+
+    private Result<String> execute(String key, String body) {
+        return service.execute(key, "order", Collections.singletonMap("body", body), String.class, () -> {
+            executions.incrementAndGet();
+            return Result.success("ok");
+        });
+    }
+}
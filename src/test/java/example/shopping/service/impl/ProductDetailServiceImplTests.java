@@ -0,0 +1,127 @@
+package example.shopping.service.impl;
+
+import example.shopping.entity.Product;
+import example.shopping.entity.Store;
+import example.shopping.entity.User;
+import example.shopping.exception.BusinessException;
+import example.shopping.service.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class ProductDetailServiceImplTests {
+
+    private static final Long PRODUCT_ID = 1L;
+
+    private final ProductService productService = mock(ProductService.class);
+
+    private final StoreService storeService = mock(StoreService.class);
+
+    private final ReviewService reviewService = mock(ReviewService.class);
+
+    private final FavoriteService favoriteService = mock(FavoriteService.class);
+
+    private final UserService userService = mock(UserService.class);
+
+    /**
+     * 放行慢查询，测试结束时释放线程
+     */
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private ProductDetailServiceImpl detailService;
+
+    @BeforeEach
+    void setUp() {
+        Product product = new Product();
+        product.setId(PRODUCT_ID);
+        product.setStoreId(2L);
+        when(productService.findById(PRODUCT_ID)).thenReturn(product);
+        when(storeService.findById(2L)).thenReturn(new Store());
+        when(reviewService.findByProductIdAndStatus(PRODUCT_ID, 1)).thenReturn(Collections.emptyList());
+        when(reviewService.countByProductId(PRODUCT_ID)).thenReturn(3);
+        when(reviewService.calculateAverageRating(PRODUCT_ID)).thenReturn(4.5);
+        when(favoriteService.countByProductId(PRODUCT_ID)).thenReturn(9);
+
+        detailService = new ProductDetailServiceImpl();
+        ReflectionTestUtils.setField(detailService, "productService", productService);
+        ReflectionTestUtils.setField(detailService, "storeService", storeService);
+        ReflectionTestUtils.setField(detailService, "reviewService", reviewService);
+        ReflectionTestUtils.setField(detailService, "favoriteService", favoriteService);
+        ReflectionTestUtils.setField(detailService, "userService", userService);
+        ReflectionTestUtils.setField(detailService, "threads", 8);
+        ReflectionTestUtils.setField(detailService, "queueCapacity", 16);
+        ReflectionTestUtils.setField(detailService, "branchTimeoutMillis", 200L);
+        detailService.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        detailService.shutdown();
+    }
+
+    @Test
+    void slowBranchIsReportedMissing() {
+        when(reviewService.findByProductIdAndStatus(PRODUCT_ID, 1)).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return Collections.emptyList();
+        });
+
+        long begin = System.nanoTime();
+        Map<String, Object> detail = detailService.getDetail(PRODUCT_ID, null);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+
+        assertEquals(Collections.singletonList("reviews"), detail.get("missing"));
+        assertNull(detail.get("reviews"));
+        assertNotNull(detail.get("product"));
+        assertNotNull(detail.get("store"));
+        assertEquals(9, detail.get("favoriteCount"));
+        assertTrue(elapsedMillis < 2000, "慢查询不应拖住整个详情页");
+    }
+
+    @Test
+    void failedBranchIsReportedMissing() {
+        when(favoriteService.countByProductId(PRODUCT_ID)).thenThrow(new IllegalStateException("down"));
+
+        Map<String, Object> detail = detailService.getDetail(PRODUCT_ID, null);
+        assertEquals(Collections.singletonList("favoriteCount"), detail.get("missing"));
+        assertNull(detail.get("favoriteCount"));
+    }
+
+    @Test
+    void missingProductThrows() {
+        BusinessException e = assertThrows(BusinessException.class, () -> detailService.getDetail(99L, null));
+        assertEquals("商品不存在", e.getMessage());
+        verify(storeService, never()).findById(anyLong());
+    }
+
+    @Test
+    void anonymousUserIsNotFavorite() {
+        Map<String, Object> detail = detailService.getDetail(PRODUCT_ID, null);
+        assertEquals(false, detail.get("favorite"));
+        assertTrue(((List<?>) detail.get("missing")).isEmpty());
+        verifyNoInteractions(userService);
+        verify(favoriteService, never()).isFavorite(anyLong(), anyLong());
+    }
+
+    @Test
+    void signedInUserSeesFavoriteState() {
+        User user = new User();
+        user.setId(5L);
+        when(userService.findByUsername("alice")).thenReturn(user);
+        when(favoriteService.isFavorite(5L, PRODUCT_ID)).thenReturn(true);
+
+        assertEquals(true, detailService.getDetail(PRODUCT_ID, "alice").get("favorite"));
+    }
+}
@@ -0,0 +1,109 @@
+package example.shopping.utils;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnowflakeIdGeneratorTests {
+
+    private static final long NODE_MASK = SnowflakeIdGenerator.MAX_NODE_ID << 12;
+
+    @Test
+    void idsAreUniqueAcrossThreads() throws Exception {
+        assertEquals(4 * 5_000, generateConcurrently(4, 5_000, 10).size());
+    }
+
+    @Test
+    void sustainsConcurrentThroughput() throws Exception {
+        // 每毫秒最多4096个序号，80万个ID在单节点上至少需要约200ms，超时说明生成器在竞争下退化
+        assertEquals(8 * 100_000, generateConcurrently(8, 100_000, 10).size());
+    }
+
+    /**
+     * 多个线程同时从同一个生成器取ID，检查线程内递增，返回全部ID去重后的集合
+     */
+    private static Set<Long> generateConcurrently(int threads, int idsPerThread, long timeoutSeconds) throws Exception {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<long[]>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    long[] ids = new long[idsPerThread];
+                    start.await();
+                    for (int i = 0; i < ids.length; i++) {
+                        ids[i] = generator.nextId();
+                    }
+                    return ids;
+                }));
+            }
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+            start.countDown();
+            Set<Long> all = new HashSet<>(threads * idsPerThread * 2);
+            for (Future<long[]> future : futures) {
+                long[] ids = future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                for (int i = 0; i < ids.length; i++) {
+                    if (i > 0) {
+                        assertTrue(ids[i] > ids[i - 1], "同一线程内ID应递增");
+                    }
+                    all.add(ids[i]);
+                }
+            }
+            return all;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void nodesWithSameTimestampAndSequenceDoNotCollide() {
+        SnowflakeIdGenerator node1 = new SnowflakeIdGenerator(1);
+        SnowflakeIdGenerator node2 = new SnowflakeIdGenerator(2);
+        // 两个节点停在同一个（未来的）毫秒和序号上，下一个ID只有节点位不同
+        long state = (TimeUnit.DAYS.toMillis(365 * 30) << 12) | 7;
+        ReflectionTestUtils.setField(node1, "state", new AtomicLong(state));
+        ReflectionTestUtils.setField(node2, "state", new AtomicLong(state));
+
+        long id1 = node1.nextId();
+        long id2 = node2.nextId();
+        assertNotEquals(id1, id2);
+        assertEquals(id1 & ~NODE_MASK, id2 & ~NODE_MASK);
+        assertEquals(1L << 12, id1 & NODE_MASK);
+        assertEquals(2L << 12, id2 & NODE_MASK);
+    }
+
+    @Test
+    void orderNumbersSortInGenerationOrder() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(0);
+        String previous = SnowflakeIdGenerator.toNo(generator.nextId());
+        for (int i = 0; i < 1_000; i++) {
+            String current = SnowflakeIdGenerator.toNo(generator.nextId());
+            assertEquals(19, current.length());
+            assertTrue(current.compareTo(previous) > 0);
+            previous = current;
+        }
+    }
+
+    @Test
+    void rejectsInvalidNodeId() {
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeIdGenerator(-1));
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeIdGenerator(SnowflakeIdGenerator.MAX_NODE_ID + 1));
+    }
+}